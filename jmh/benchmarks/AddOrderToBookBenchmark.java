@@ -0,0 +1,49 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.CommandTarget;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  cost of resting orders in an empty book, spread evenly over a number of price levels.
+ *  every invocation starts from a fresh engine so the book never grows across invocations
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AddOrderToBookBenchmark {
+
+    static final int ORDERS = 10_000;
+
+    @Param({"TradingEngineImpl", "HPBookOrder", "PriceLadderBook", "PooledLadderBook", "OffHeapLadderBook"})
+    String engine;
+
+    @Param({"10", "100", "1000"})
+    int levels;
+
+    Order[] orders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            Order.OrderType side = (i & 1) == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+            orders[i] = Orders.limit("o-" + i, side, Orders.levelPrice(side, (i >> 1) % levels), 100);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public CommandTarget addOrdertoBook() {
+        CommandTarget book = Engines.target(engine);
+        for (Order order : orders) {
+            book.addOrdertoBook(order);
+        }
+        return book;
+    }
+}
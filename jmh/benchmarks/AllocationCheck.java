@@ -0,0 +1,50 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+/**
+ *  runs AllocationFreeMatchBenchmark under the gc profiler and fails (exit code 1) if any
+ *  case allocates more than MAX_BYTES_PER_OP on the matching path.
+ *
+ *  usage: java -cp target/benchmarks.jar benchmarks.AllocationCheck
+ */
+public class AllocationCheck {
+
+    // a fraction of a byte per op is profiler noise; one object per op is at least 16 bytes
+    static final double MAX_BYTES_PER_OP = 1.0;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AllocationFreeMatchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        boolean failed = false;
+        for (RunResult result : results) {
+            Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            String name = result.getParams().getBenchmark() + " " + result.getParams().getParam("engine");
+            if (allocation == null) {
+                System.out.println("MISSING gc.alloc.rate.norm for " + name);
+                failed = true;
+                continue;
+            }
+            double bytesPerOp = allocation.getScore();
+            boolean ok = bytesPerOp <= MAX_BYTES_PER_OP;
+            System.out.printf("%s %-60s %.3f B/op%n", ok ? "OK  " : "FAIL", name, bytesPerOp);
+            failed |= !ok;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
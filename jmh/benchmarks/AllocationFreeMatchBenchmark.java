@@ -0,0 +1,62 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.ExecutionBuffer;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  steady state of addOrder(Order, ExecutionBuffer): aggressive buys against a best ask level
+ *  deep enough never to run out within an iteration, so nothing but the matching path runs.
+ *  gc.alloc.rate.norm is expected to be ~0 B/op; AllocationCheck enforces it
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationFreeMatchBenchmark {
+
+    static final int QUANTITY = 100;
+    static final int RESTING_ORDERS = 1000;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    TradingEngine book;
+    ExecutionBuffer buffer;
+    Order marketBuy;
+    Order limitBuy;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = Engines.create(engine);
+        double best = Orders.levelPrice(Order.OrderType.SELL, 0);
+        for (int i = 0; i < RESTING_ORDERS; i++) {
+            book.addOrdertoBook(Orders.limit("ask-" + i, Order.OrderType.SELL, best, Integer.MAX_VALUE));
+        }
+        for (int level = 1; level < 10; level++) {
+            book.addOrdertoBook(Orders.limit("ask-l" + level, Order.OrderType.SELL, Orders.levelPrice(Order.OrderType.SELL, level), QUANTITY));
+        }
+        buffer = new ExecutionBuffer(16);
+        marketBuy = Orders.market("mkt", Order.OrderType.BUY, QUANTITY);
+        limitBuy = Orders.limit("lmt", Order.OrderType.BUY, best, QUANTITY);
+    }
+
+    @Benchmark
+    public int market() {
+        buffer.clear();
+        marketBuy.setRemaningQuality(QUANTITY);
+        return book.addOrder(marketBuy, buffer);
+    }
+
+    @Benchmark
+    public int limit() {
+        buffer.clear();
+        limitBuy.setRemaningQuality(QUANTITY);
+        return book.addOrder(limitBuy, buffer);
+    }
+}
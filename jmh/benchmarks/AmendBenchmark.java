@@ -0,0 +1,85 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.TradingEngine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  amendOrder against the cancel + add that clients used before, on an order behind 1000
+ *  others on its level.
+ *
+ *  quantityDown shrinks the order in place (it keeps its queue position, no map operation);
+ *  reprice moves it between two bid levels that do not cross and cancelAndAdd does the same
+ *  move by hand. reprice should cost about what cancelAndAdd does, quantityDown a fraction
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AmendBenchmark {
+
+    static final int QUEUE_DEPTH = 1000;
+
+    @Param({"TradingEngineImpl", "HPBookOrder", "PriceLadderBook"})
+    String engine;
+
+    TradingEngine book;
+    Order order;
+    double[] prices;
+    Order[] reprices;
+    Order down;
+    int total;
+    int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = Engines.create(engine);
+        prices = new double[]{Orders.levelPrice(Order.OrderType.BUY, 1), Orders.levelPrice(Order.OrderType.BUY, 2)};
+        for (double price : prices) {
+            for (int i = 0; i < QUEUE_DEPTH; i++) {
+                book.addOrdertoBook(Orders.limit("bid-" + price + "-" + i, Order.OrderType.BUY, price, 100));
+            }
+        }
+        book.addOrdertoBook(Orders.limit("ask", Order.OrderType.SELL, Orders.levelPrice(Order.OrderType.SELL, 0), 100));
+
+        // large enough to be reduced by one on every invocation of an iteration
+        total = Integer.MAX_VALUE;
+        order = Orders.limit("amended", Order.OrderType.BUY, prices[0], total);
+        book.addOrdertoBook(order);
+
+        // amend requests carry the resting order's ids, the new price and the new total
+        down = request(prices[0], total);
+        reprices = new Order[]{request(prices[1], 100), request(prices[0], 100)};
+        next = 0;
+    }
+
+    private Order request(double price, int quantity) {
+        Order request = Orders.limit(order.getOrderId(), Order.OrderType.BUY, price, quantity);
+        request.setId(order.getId());
+        return request;
+    }
+
+    @Benchmark
+    public List<?> quantityDown() {
+        down.setOrginalQuality(--total);
+        return book.amendOrder(down);
+    }
+
+    @Benchmark
+    public List<?> reprice() {
+        return book.amendOrder(reprices[next++ & 1]);
+    }
+
+    @Benchmark
+    public boolean cancelAndAdd() {
+        boolean cancelled = book.cancelOrder(order);
+        order.setPrice(prices[++next & 1]);
+        book.addOrdertoBook(order);
+        return cancelled;
+    }
+}
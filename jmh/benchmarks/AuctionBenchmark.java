@@ -0,0 +1,98 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import services.AuctionBook;
+import services.ExecutionBuffer;
+import services.TradingEngine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  opening a book from queued orders: buys and sells priced over the same 20 ticks around the
+ *  mid, so most of them cross. uncross executes the book accumulated during the auction in one
+ *  call, auction is the whole auction (accumulate + uncross) and continuous enters the same
+ *  orders one addOrder at a time. every invocation starts from an empty book
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+@State(Scope.Thread)
+public class AuctionBenchmark {
+
+    static final int TICKS = 20;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    @Param({"10000", "50000"})
+    int orders;
+
+    TradingEngine book;
+    AuctionBook auction;
+    Order[] queued;
+    ExecutionBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUpOrders() {
+        Random random = new Random(42);
+        queued = new Order[orders];
+        for (int i = 0; i < orders; i++) {
+            Order.OrderType side = random.nextBoolean() ? Order.OrderType.BUY : Order.OrderType.SELL;
+            double price = Orders.MID + (random.nextInt(TICKS) - TICKS / 2) * Orders.TICK;
+            queued[i] = Orders.limit("open-" + i, side, price, 1 + random.nextInt(100));
+            queued[i].setTimeInForce(Order.TimeInForce.GTC);
+        }
+        buffer = new ExecutionBuffer(orders);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset(BenchmarkParams params) {
+        // what the last invocation left resting is unlinked before the orders are reused
+        if (book != null) {
+            for (Order order : queued) {
+                book.cancelOrder(order);
+            }
+        }
+        book = Engines.create(engine);
+        auction = (AuctionBook) book;
+        buffer.clear();
+        for (Order order : queued) {
+            order.setId(0);
+            order.setRemaningQuality((int) order.getOrginalQuality());
+        }
+        if (params.getBenchmark().endsWith("uncross")) {
+            auction.beginAuction();
+            for (Order order : queued) {
+                book.addOrder(order, buffer);
+            }
+        }
+    }
+
+    @Benchmark
+    public int uncross() {
+        return auction.uncross(buffer);
+    }
+
+    @Benchmark
+    public int auction() {
+        auction.beginAuction();
+        for (Order order : queued) {
+            book.addOrder(order, buffer);
+        }
+        return auction.uncross(buffer);
+    }
+
+    @Benchmark
+    public int continuous() {
+        int fills = 0;
+        for (Order order : queued) {
+            fills += book.addOrder(order, buffer);
+        }
+        return fills;
+    }
+}
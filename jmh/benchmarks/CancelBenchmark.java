@@ -0,0 +1,57 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.CommandTarget;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  cancel of the most recent order on a deep price level, followed by re-adding it so the
+ *  level keeps its depth. the cancelled order sits at the back of the queue, which is the
+ *  worst case for a queue that has to be scanned from the head.
+ *
+ *  with the intrusive OrderQueue the cancel unlinks the order through its own links, so the
+ *  average and sampled latency should stay flat across queueDepth.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CancelBenchmark {
+
+    @Param({"TradingEngineImpl", "HPBookOrder", "PriceLadderBook", "PooledLadderBook", "OffHeapLadderBook"})
+    String engine;
+
+    @Param({"10", "1000", "10000", "100000"})
+    int queueDepth;
+
+    CommandTarget book;
+    Order last;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = Engines.target(engine);
+        double price = Orders.levelPrice(Order.OrderType.BUY, 0);
+        for (int i = 0; i < queueDepth; i++) {
+            last = Orders.limit("bid-" + i, Order.OrderType.BUY, price, 100);
+            book.addOrdertoBook(last);
+        }
+        // a few levels on each side so the level lookup is not a single-node map
+        for (int level = 1; level < 10; level++) {
+            book.addOrdertoBook(Orders.limit("bid-l" + level, Order.OrderType.BUY,
+                    Orders.levelPrice(Order.OrderType.BUY, level), 100));
+            book.addOrdertoBook(Orders.limit("ask-l" + level, Order.OrderType.SELL,
+                    Orders.levelPrice(Order.OrderType.SELL, level), 100));
+        }
+    }
+
+    @Benchmark
+    public boolean cancelOrder() {
+        boolean cancelled = book.cancelOrder(last);
+        book.addOrdertoBook(last);
+        return cancelled;
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import model.DepthSink;
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  top-N depth polling into a reused DepthSink; gc.alloc.rate.norm should stay at ~0 B/op
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DepthBenchmark {
+
+    static final int BOOK_LEVELS = 100;
+
+    @Param({"TradingEngineImpl", "HPBookOrder", "PriceLadderBook"})
+    String engine;
+
+    @Param({"5", "20"})
+    int levels;
+
+    TradingEngine book;
+    DepthSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = Engines.create(engine);
+        for (int level = 0; level < BOOK_LEVELS; level++) {
+            for (int i = 0; i < 5; i++) {
+                for (Order.OrderType side : Order.OrderType.values()) {
+                    book.addOrdertoBook(Orders.limit(side + "-" + level + "-" + i, side, Orders.levelPrice(side, level), 100));
+                }
+            }
+        }
+        sink = new DepthSink(levels);
+    }
+
+    @Benchmark
+    public DepthSink getDepth() {
+        book.getDepth(levels, sink);
+        return sink;
+    }
+}
@@ -0,0 +1,539 @@
+package benchmarks;
+
+import journal.JournalReader;
+import journal.JournaledEngine;
+import journal.OrderJournal;
+import model.DepthSink;
+import model.Order;
+import model.Trade;
+import services.AuctionBook;
+import services.BookSnapshot;
+import services.CommandTarget;
+import services.ExecutionBuffer;
+import services.ExecutionSink;
+import services.PriceLadderBook;
+import services.SlotLadderBook;
+import services.TradingEngine;
+import services.TradingEngineImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ *  the behaviour the benchmarks only exercise, checked: the same random order flow against every
+ *  book that takes it, amend priority, stop cascades, the uncross price against a brute force
+ *  equilibrium, and a journaled session replayed (and restored from a snapshot) against the
+ *  original. fails (exit code 1) if any check disagrees.
+ *
+ *  usage: java -cp target/benchmarks.jar benchmarks.EngineCheck
+ */
+public class EngineCheck {
+
+    static final int SEEDS = 10;
+    static final int COMMANDS = 100_000;
+    static final int AUCTIONS = 200;
+    static final int ACCOUNTS = 5;
+    // the random flow trades within this many ticks either side of the mid
+    static final int BAND = 20;
+    static final int DEPTH = 2 * BAND + 2;
+
+    interface Check {
+        String run() throws Exception;
+    }
+
+    public static void main(String[] args) {
+        boolean failed = false;
+        failed |= run("differential", EngineCheck::differential);
+        failed |= run("amend priority", EngineCheck::amendPriority);
+        failed |= run("stop cascade", EngineCheck::stopCascade);
+        failed |= run("uncross", EngineCheck::uncross);
+        failed |= run("journal replay", EngineCheck::journalReplay);
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(String name, Check check) {
+        try {
+            System.out.printf("OK   %-16s %s%n", name, check.run());
+            return false;
+        } catch (Exception | AssertionError e) {
+            System.out.printf("FAIL %-16s %s%n", name, e);
+            return true;
+        }
+    }
+
+    // every book that takes the full command set gets a copy of each command and must fill,
+    // cancel and amend exactly like TradingEngineImpl and end with the same depth
+    private static String differential() {
+        String[] engines = {"TradingEngineImpl", "PriceLadderBook", "PooledLadderBook", "OffHeapLadderBook"};
+        long fills = 0;
+        for (int seed = 0; seed < SEEDS; seed++) {
+            CommandTarget[] books = new CommandTarget[engines.length];
+            ExecutionBuffer[] buffers = new ExecutionBuffer[engines.length];
+            for (int e = 0; e < engines.length; e++) {
+                books[e] = Engines.target(engines[e]);
+                buffers[e] = new ExecutionBuffer();
+            }
+            Random random = new Random(seed);
+            List<Long> resting = new ArrayList<>();
+            for (int i = 1; i <= COMMANDS; i++) {
+                int op = random.nextInt(10);
+                String at = engines[0] + " seed " + seed + " command " + i;
+                if (op < 3 && !resting.isEmpty()) {
+                    long id = resting.remove(random.nextInt(resting.size()));
+                    boolean expected = books[0].cancelOrder(reference(id));
+                    for (int e = 1; e < books.length; e++) {
+                        check(books[e].cancelOrder(reference(id)) == expected, engines[e] + " cancel of " + id, at);
+                    }
+                } else if (op == 3 && !resting.isEmpty()) {
+                    long id = resting.get(random.nextInt(resting.size()));
+                    double price = price(random);
+                    int quantity = 1 + random.nextInt(150);
+                    List<Trade> expected = books[0].amendOrder(amend(id, price, quantity));
+                    for (int e = 1; e < books.length; e++) {
+                        List<Trade> trades = books[e].amendOrder(amend(id, price, quantity));
+                        check(sameTrades(expected, trades), engines[e] + " amend of " + id + " " + trades, at + " " + expected);
+                    }
+                    fills += expected == null ? 0 : expected.size();
+                } else {
+                    Order template = random(random, i, false);
+                    long remaining = -1;
+                    for (int e = 0; e < books.length; e++) {
+                        Order order = copy(template);
+                        buffers[e].clear();
+                        books[e].addOrder(order, buffers[e]);
+                        if (e == 0) {
+                            remaining = order.getRemaningQuality();
+                        } else {
+                            check(sameFills(buffers[0], buffers[e]), engines[e] + " fills of " + i, at);
+                            check(order.getRemaningQuality() == remaining, engines[e] + " remaining of " + i, at);
+                        }
+                    }
+                    fills += buffers[0].size();
+                    if (remaining > 0 && template.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER
+                            && template.getTimeInForce() == Order.TimeInForce.GTC) {
+                        resting.add((long) i);
+                    }
+                }
+            }
+            String expected = depth(books[0]);
+            for (int e = 1; e < books.length; e++) {
+                check(depth(books[e]).equals(expected), engines[e] + " depth", engines[0] + " seed " + seed);
+            }
+        }
+        return SEEDS + " seeds x " + COMMANDS + " commands, " + fills + " fills per book";
+    }
+
+    // a reduction at the same price keeps time priority, an increase or a price change re-enters
+    private static String amendPriority() {
+        String[] engines = {"TradingEngineImpl", "HPBookOrder", "PriceLadderBook", "PooledLadderBook", "OffHeapLadderBook"};
+        double bid = Orders.levelPrice(Order.OrderType.BUY, 0);
+        double better = Orders.MID;
+        for (String engine : engines) {
+            CommandTarget book = Engines.target(engine);
+            book.addOrdertoBook(withId(Orders.limit("1", Order.OrderType.BUY, bid, 10), 1));
+            book.addOrdertoBook(withId(Orders.limit("2", Order.OrderType.BUY, bid, 10), 2));
+
+            List<Trade> trades = book.amendOrder(withId(Orders.limit("1", Order.OrderType.BUY, bid, 5), 1));
+            check(trades != null && trades.isEmpty(), engine + " reduction in place", String.valueOf(trades));
+            check(hits(book, bid, 3) == 1, engine + " reduction lost priority", "");
+
+            book.amendOrder(withId(Orders.limit("1", Order.OrderType.BUY, bid, 20), 1));
+            check(hits(book, bid, 4) == 2, engine + " increase kept priority", "");
+
+            book.amendOrder(withId(Orders.limit("2", Order.OrderType.BUY, better, 10), 2));
+            check(hits(book, better, 5) == 2, engine + " reprice did not re-enter", "");
+            check(book.amendOrder(withId(Orders.limit("6", Order.OrderType.BUY, bid, 10), 6)) == null,
+                    engine + " amend of an order that is not resting", "");
+        }
+        return engines.length + " engines";
+    }
+
+    // buy stops one tick apart above a ladder of asks: the market order's fill triggers the first,
+    // whose fills trigger the next, until the chain runs out. stops further away stay pending
+    private static String stopCascade() {
+        String[] engines = {"TradingEngineImpl", "PriceLadderBook"};
+        List<String> expected = null;
+        for (String engine : engines) {
+            TradingEngine book = Engines.create(engine);
+            for (int level = 0; level < 10; level++) {
+                book.addOrdertoBook(Orders.limit("a" + level, Order.OrderType.SELL, Orders.levelPrice(Order.OrderType.SELL, level), 10));
+            }
+            for (int level = 0; level < 5; level++) {
+                book.addOrdertoBook(stop("s" + level, Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.SELL, level), 10));
+            }
+            Order far = stop("far", Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.SELL, 50), 10);
+            book.addOrdertoBook(far);
+            book.addOrdertoBook(stop("down", Order.OrderType.SELL, Orders.levelPrice(Order.OrderType.BUY, 50), 10));
+
+            List<Trade> trades = book.addOrder(Orders.market("m", Order.OrderType.BUY, 5));
+            List<String> prints = new ArrayList<>();
+            long volume = 0;
+            for (Trade trade : trades) {
+                prints.add(trade.getBuyOrderId() + "/" + trade.getSellOderId() + " " + trade.getTradeQuality() + "@" + ticks(trade.getPrice()));
+                volume += trade.getTradeQuality();
+            }
+            check(volume == 55, engine + " cascade volume " + volume, String.valueOf(prints));
+            check(expected == null || expected.equals(prints), engine + " cascade " + prints, String.valueOf(expected));
+            expected = prints;
+
+            DepthSink depth = new DepthSink(1);
+            book.getDepth(1, depth);
+            check(ticks(depth.getAskPrice(0)) == ticks(Orders.levelPrice(Order.OrderType.SELL, 5)) && depth.getAskQuantity(0) == 5,
+                    engine + " best ask " + depth.getAskPrice(0) + " x " + depth.getAskQuantity(0), "");
+            check(stopCount(book) == 2, engine + " pending stops " + stopCount(book), "");
+            check(book.cancelOrder(far) && !book.cancelOrder(far), engine + " cancel of a pending stop", "");
+            check(stopCount(book) == 1, engine + " pending stops after cancel " + stopCount(book), "");
+        }
+        return engines.length + " engines, " + expected.size() + " fills";
+    }
+
+    // random crossed books built in an auction: the uncross must trade the volume the best
+    // single price can, at that price, leave the book uncrossed and agree across engines
+    private static String uncross() {
+        Random random = new Random(3);
+        long total = 0;
+        for (int t = 0; t < AUCTIONS; t++) {
+            TradingEngine[] books = {Engines.create("TradingEngineImpl"), Engines.create("PriceLadderBook")};
+            for (TradingEngine book : books) {
+                ((AuctionBook) book).beginAuction();
+            }
+            long[] bids = new long[DEPTH];
+            long[] asks = new long[DEPTH];
+            int orders = 1 + random.nextInt(200);
+            for (int i = 0; i < orders; i++) {
+                Order.OrderType side = random.nextBoolean() ? Order.OrderType.BUY : Order.OrderType.SELL;
+                int level = random.nextInt(DEPTH);
+                int quantity = 1 + random.nextInt(50);
+                for (TradingEngine book : books) {
+                    book.addOrder(Orders.limit("o" + i, side, Orders.MID + (level - BAND) * Orders.TICK, quantity));
+                }
+                (side == Order.OrderType.BUY ? bids : asks)[level] += quantity;
+            }
+            long best = 0;
+            for (int level = 0; level < DEPTH; level++) {
+                long bought = 0;
+                long sold = 0;
+                for (int j = level; j < DEPTH; j++) {
+                    bought += bids[j];
+                }
+                for (int j = 0; j <= level; j++) {
+                    sold += asks[j];
+                }
+                best = Math.max(best, Math.min(bought, sold));
+            }
+
+            long price = -1;
+            for (TradingEngine book : books) {
+                String at = book.getClass().getSimpleName() + " auction " + t;
+                double indicative = book instanceof TradingEngineImpl
+                        ? ((TradingEngineImpl) book).getIndicativePrice() : ((PriceLadderBook) book).getIndicativePrice();
+                ExecutionBuffer out = new ExecutionBuffer();
+                ((AuctionBook) book).uncross(out);
+                long volume = 0;
+                for (int i = 0; i < out.size(); i++) {
+                    volume += out.getQuantity(i);
+                    check(ticks(out.getPrice(i)) == ticks(indicative), "fill away from the indicative price", at);
+                }
+                check(volume == best, "volume " + volume + " rather than " + best, at);
+                check(best == 0 || price < 0 || ticks(indicative) == price, "price " + indicative, at);
+                price = best == 0 ? price : ticks(indicative);
+
+                DepthSink depth = new DepthSink(1);
+                book.getDepth(1, depth);
+                check(depth.getBidLevels() == 0 || depth.getAskLevels() == 0 || depth.getBidPrice(0) < depth.getAskPrice(0),
+                        "crossed after the uncross", at);
+            }
+            total += best;
+        }
+        return AUCTIONS + " auctions, " + total + " lots uncrossed";
+    }
+
+    // a journaled session with an auction, a clock, stops and mass cancels, snapshotted half way:
+    // replaying the journal, or restoring the snapshot and replaying the rest, rebuilds the book
+    private static String journalReplay() throws IOException {
+        int replays = 0;
+        long fillCount = 0;
+        long rejectCount = 0;
+        for (int seed = 0; seed < 3; seed++) {
+            Path directory = Files.createTempDirectory("engine-check");
+            try {
+                TradingEngineImpl original = new TradingEngineImpl(Orders.SYMBOL);
+                Fingerprint fills = new Fingerprint();
+                original.setExecutionSink(fills);
+                Path journalDirectory = directory.resolve("journal");
+                Path snapshot = directory.resolve("snapshot.bin");
+                long rejected;
+                try (OrderJournal journal = new OrderJournal(journalDirectory)) {
+                    rejected = session(new JournaledEngine.Session(original, journal), new Random(seed),
+                            () -> BookSnapshot.capture(original, journal.getLastSequence()).writeTo(snapshot));
+                }
+                String expected = state(original);
+
+                TradingEngineImpl replayed = new TradingEngineImpl(Orders.SYMBOL);
+                Fingerprint replayedFills = new Fingerprint();
+                replayed.setExecutionSink(replayedFills);
+                JournalReader reader = new JournalReader(journalDirectory);
+                reader.replay(0, replayed);
+                check(state(replayed).equals(expected), "replayed book", "seed " + seed);
+                check(replayedFills.equals(fills), "replayed fills " + replayedFills, fills + " seed " + seed);
+                check(reader.getRejectedCommands() == rejected,
+                        "replay rejected " + reader.getRejectedCommands() + " rather than " + rejected, "seed " + seed);
+
+                TradingEngineImpl restored = new TradingEngineImpl(Orders.SYMBOL);
+                long sequence = BookSnapshot.restore(snapshot, restored);
+                new JournalReader(journalDirectory).replay(sequence, restored);
+                check(state(restored).equals(expected), "restored book", "seed " + seed + " snapshot at " + sequence);
+
+                PriceLadderBook ladder = (PriceLadderBook) Engines.create("PriceLadderBook");
+                new JournalReader(journalDirectory).replay(0, ladder);
+                check(state(ladder).equals(expected), "ladder replay", "seed " + seed);
+                replays += 3;
+                fillCount += fills.fills;
+                rejectCount += rejected;
+            } finally {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+        return replays + " replays of " + fillCount + " fills and " + rejectCount + " refused commands";
+    }
+
+    interface Snapshot {
+        void take() throws IOException;
+    }
+
+    // drives the session and returns how many commands the engine refused
+    private static long session(JournaledEngine.Session engine, Random random, Snapshot snapshot) throws IOException {
+        List<Order> resting = new ArrayList<>();
+        ExecutionBuffer out = new ExecutionBuffer();
+        long now = 1;
+        long rejected = 0;
+        engine.setSessionEnd(COMMANDS / 2);
+        engine.advanceClock(now);
+        for (int i = 1; i <= COMMANDS / 4; i++) {
+            if (i == COMMANDS / 8) {
+                snapshot.take();
+            }
+            if (i == COMMANDS / 16) {
+                engine.beginAuction();
+            } else if (i == COMMANDS / 16 + 500) {
+                out.clear();
+                engine.uncross(out);
+            }
+            try {
+                int op = random.nextInt(100);
+                if (op < 20 && !resting.isEmpty()) {
+                    engine.cancelOrder(resting.remove(random.nextInt(resting.size())));
+                } else if (op < 28 && !resting.isEmpty()) {
+                    Order order = resting.get(random.nextInt(resting.size()));
+                    engine.amendOrder(amend(order.getId(), price(random), 1 + random.nextInt(150)));
+                } else if (op < 30) {
+                    Order.OrderType side = random.nextBoolean() ? Order.OrderType.BUY : Order.OrderType.SELL;
+                    engine.cancelAll(1 + random.nextInt(ACCOUNTS), random.nextBoolean() ? side : null, price(random), price(random) + 5 * Orders.TICK);
+                } else if (op < 32) {
+                    now += random.nextInt(400);
+                    engine.advanceClock(now);
+                } else if (op < 35) {
+                    Order order = stop("stop" + i, random.nextBoolean() ? Order.OrderType.BUY : Order.OrderType.SELL, price(random), 1 + random.nextInt(50));
+                    order.setAccountId(1 + random.nextInt(ACCOUNTS));
+                    engine.addOrdertoBook(order);
+                } else {
+                    Order order = random(random, 0, true);
+                    if (order.getTimeInForce() == Order.TimeInForce.GTD) {
+                        order.setExpireTime(now + random.nextInt(500));
+                    }
+                    out.clear();
+                    engine.addOrder(order, out);
+                    if (order.getRemaningQuality() > 0 && order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER) {
+                        resting.add(order);
+                    }
+                }
+            } catch (RuntimeException e) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    // the resting orders of every account and the depth, in a form two books can be compared by
+    private static String state(TradingEngine book) {
+        StringBuilder state = new StringBuilder(depth(book));
+        for (long account = 1; account <= ACCOUNTS; account++) {
+            List<String> orders = new ArrayList<>();
+            book.forEachOrder(account, order -> orders.add(order.getId() + " " + order.getOrderType() + " "
+                    + ticks(order.getPrice()) + " " + order.getRemaningQuality() + "/" + order.getOrginalQuality()));
+            Collections.sort(orders);
+            state.append(account).append(orders).append('\n');
+        }
+        return state.toString();
+    }
+
+    private static String depth(CommandTarget book) {
+        DepthSink depth = new DepthSink(DEPTH);
+        if (book instanceof TradingEngine) {
+            ((TradingEngine) book).getDepth(DEPTH, depth);
+        } else {
+            ((SlotLadderBook) book).getDepth(DEPTH, depth);
+        }
+        StringBuilder levels = new StringBuilder("bids");
+        for (int i = 0; i < depth.getBidLevels(); i++) {
+            levels.append(' ').append(depth.getBidQuantity(i)).append('/').append(depth.getBidOrderCount(i))
+                    .append('@').append(ticks(depth.getBidPrice(i)));
+        }
+        levels.append("\nasks");
+        for (int i = 0; i < depth.getAskLevels(); i++) {
+            levels.append(' ').append(depth.getAskQuantity(i)).append('/').append(depth.getAskOrderCount(i))
+                    .append('@').append(ticks(depth.getAskPrice(i)));
+        }
+        return levels.append('\n').toString();
+    }
+
+    // sells one lot at price and returns the id of the bid it filled
+    private static long hits(CommandTarget book, double price, long id) {
+        ExecutionBuffer out = new ExecutionBuffer();
+        book.addOrder(withId(Orders.limit(String.valueOf(id), Order.OrderType.SELL, price, 1), id), out);
+        check(out.size() == 1, "sell of one lot at " + price + " filled " + out.size() + " times", "");
+        return out.getBuyOrderId(0);
+    }
+
+    private static int stopCount(TradingEngine book) {
+        return book instanceof TradingEngineImpl
+                ? ((TradingEngineImpl) book).getStopOrderCount() : ((PriceLadderBook) book).getStopOrderCount();
+    }
+
+    private static boolean sameFills(ExecutionBuffer expected, ExecutionBuffer actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.getBuyOrderId(i) != actual.getBuyOrderId(i) || expected.getSellOrderId(i) != actual.getSellOrderId(i)
+                    || expected.getQuantity(i) != actual.getQuantity(i) || ticks(expected.getPrice(i)) != ticks(actual.getPrice(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameTrades(List<Trade> expected, List<Trade> actual) {
+        if (expected == null || actual == null) {
+            return expected == actual;
+        }
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Trade e = expected.get(i);
+            Trade a = actual.get(i);
+            if (e.getBuyId() != a.getBuyId() || e.getSellId() != a.getSellId()
+                    || e.getTradeQuality() != a.getTradeQuality() || ticks(e.getPrice()) != ticks(a.getPrice())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // DAY and GTD orders only for books with a session clock
+    private static Order random(Random random, long id, boolean expiring) {
+        Order.OrderType side = random.nextBoolean() ? Order.OrderType.BUY : Order.OrderType.SELL;
+        int quantity = 1 + random.nextInt(100);
+        int kind = random.nextInt(20);
+        Order order = kind == 0
+                ? Orders.market("o" + id, side, quantity)
+                : Orders.limit("o" + id, side, price(random), quantity);
+        order.setId(id);
+        order.setAccountId(1 + random.nextInt(ACCOUNTS));
+        order.setTimeInForce(kind == 1 ? Order.TimeInForce.IOC : kind == 2 ? Order.TimeInForce.FOK
+                : expiring && kind == 3 ? Order.TimeInForce.DAY : expiring && kind == 4 ? Order.TimeInForce.GTD : Order.TimeInForce.GTC);
+        return order;
+    }
+
+    private static double price(Random random) {
+        return Orders.MID + (random.nextInt(2 * BAND + 1) - BAND) * Orders.TICK;
+    }
+
+    private static Order stop(String orderId, Order.OrderType side, double stopPrice, int quantity) {
+        Order order = Orders.market(orderId, side, quantity);
+        order.setOrderStrategy(Order.OrderStrategy.STOP);
+        order.setStopPrice(stopPrice);
+        return order;
+    }
+
+    private static Order copy(Order template) {
+        Order order = template.getOrderStrategy() == Order.OrderStrategy.MARKET
+                ? Orders.market(template.getOrderId(), template.getOrderType(), (int) template.getOrginalQuality())
+                : Orders.limit(template.getOrderId(), template.getOrderType(), template.getPrice(), (int) template.getOrginalQuality());
+        order.setId(template.getId());
+        order.setAccountId(template.getAccountId());
+        order.setTimeInForce(template.getTimeInForce());
+        return order;
+    }
+
+    private static Order reference(long id) {
+        Order order = new Order();
+        order.setId(id);
+        return order;
+    }
+
+    private static Order amend(long id, double price, int quantity) {
+        Order order = reference(id);
+        order.setPrice(price);
+        order.setOrginalQuality(quantity);
+        return order;
+    }
+
+    private static Order withId(Order order, long id) {
+        order.setId(id);
+        return order;
+    }
+
+    private static long ticks(double price) {
+        return Math.round(price / Orders.TICK);
+    }
+
+    private static void check(boolean ok, String what, String where) {
+        if (!ok) {
+            throw new IllegalStateException(what + " (" + where + ")");
+        }
+    }
+
+    // count, volume and an order sensitive hash of the fills a book published
+    static final class Fingerprint implements ExecutionSink {
+
+        long fills;
+        long volume;
+        long hash;
+
+        @Override
+        public void onTrade(long tradeId, long buyOrderId, long sellOrderId, double price, long quantity, long timestamp) {
+            fills++;
+            volume += quantity;
+            hash = 31 * (31 * (31 * (31 * hash + buyOrderId) + sellOrderId) + ticks(price)) + quantity;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Fingerprint && ((Fingerprint) other).fills == fills
+                    && ((Fingerprint) other).volume == volume && ((Fingerprint) other).hash == hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+        @Override
+        public String toString() {
+            return fills + " fills, " + volume + " lots";
+        }
+    }
+}
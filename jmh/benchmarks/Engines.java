@@ -0,0 +1,48 @@
+package benchmarks;
+
+import model.OrderPool;
+import model.OrderSlab;
+import model.TickSize;
+import services.CommandTarget;
+import services.HPBookOrder;
+import services.PriceLadderBook;
+import services.SlotLadderBook;
+import services.TradingEngine;
+import services.TradingEngineImpl;
+
+/**
+ *  maps the benchmark "engine" parameter to an engine instance
+ */
+final class Engines {
+
+    // wide enough for the deepest book any benchmark builds on either side of the mid
+    static final int LADDER_LEVELS = 8192;
+
+    private Engines() {
+    }
+
+    static TradingEngine create(String engine) {
+        switch (engine) {
+            case "TradingEngineImpl":
+                return new TradingEngineImpl(Orders.SYMBOL);
+            case "HPBookOrder":
+                return new HPBookOrder();
+            case "PriceLadderBook":
+                return new PriceLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, LADDER_LEVELS);
+            default:
+                throw new IllegalArgumentException("unknown engine " + engine);
+        }
+    }
+
+    // also the SlotLadderBooks, which only take commands, for the benchmarks that need no more
+    static CommandTarget target(String engine) {
+        switch (engine) {
+            case "PooledLadderBook":
+                return new SlotLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, LADDER_LEVELS, new OrderPool());
+            case "OffHeapLadderBook":
+                return new SlotLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, LADDER_LEVELS, new OrderSlab());
+            default:
+                return create(engine);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.SessionClock;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  cost of time in force on the book: rest + cancel of a GTC order against a DAY / GTD order,
+ *  which is also scheduled on and cancelled from the timing wheel. the clock is in milliseconds
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpiryBenchmark {
+
+    static final long SESSION_END = 8 * 3600_000L;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    @Param({"GTC", "DAY", "GTD"})
+    Order.TimeInForce timeInForce;
+
+    TradingEngine book;
+    Order order;
+
+    @Setup(Level.Trial)
+    public void setUpBook() {
+        book = Engines.create(engine);
+        ((SessionClock) book).setSessionEnd(SESSION_END);
+        // a bid further down keeps the ladder's best bid cursor from walking to the bottom on cancel
+        book.addOrdertoBook(Orders.limit("depth", Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.BUY, 9), 100));
+        order = Orders.limit("expiring", Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.BUY, 3), 100);
+        order.setTimeInForce(timeInForce);
+    }
+
+    @Benchmark
+    public boolean restAndCancel() {
+        order.setId(0);
+        // a GTD expiry somewhere in the session, a DAY order takes the session end
+        order.setExpireTime(timeInForce == Order.TimeInForce.GTD ? 60_000L : 0);
+        book.addOrdertoBook(order);
+        return book.cancelOrder(order);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import codec.MessageHeader;
+import codec.OrderFlyweight;
+import model.Order;
+import model.TickSize;
+import org.openjdk.jmh.annotations.*;
+import services.ExecutionBuffer;
+import services.PriceLadderBook;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  matching an encoded order straight off a buffer (addOrder(OrderFlyweight, ...)) against
+ *  decoding it into an Order first, on PriceLadderBook with the same deep best ask as
+ *  AllocationFreeMatchBenchmark. the flyweight path is expected at ~0 B/op
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlyweightMatchBenchmark {
+
+    TickSize tickSize;
+    PriceLadderBook book;
+    ExecutionBuffer buffer;
+    ByteBuffer message;
+    OrderFlyweight order;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tickSize = new TickSize(Orders.TICK);
+        book = new PriceLadderBook(Orders.SYMBOL, tickSize, Orders.MID, Engines.LADDER_LEVELS);
+        double best = Orders.levelPrice(Order.OrderType.SELL, 0);
+        for (int i = 0; i < AllocationFreeMatchBenchmark.RESTING_ORDERS; i++) {
+            book.addOrdertoBook(Orders.limit("ask-" + i, Order.OrderType.SELL, best, Integer.MAX_VALUE));
+        }
+        buffer = new ExecutionBuffer(16);
+
+        // a limit buy as it would arrive from a gateway: header + order block
+        message = ByteBuffer.allocateDirect(MessageHeader.ENCODED_LENGTH + OrderFlyweight.BLOCK_LENGTH)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        new MessageHeader().wrap(message, 0).set(OrderFlyweight.BLOCK_LENGTH, OrderFlyweight.TEMPLATE_ID);
+        order = new OrderFlyweight().wrap(message, MessageHeader.ENCODED_LENGTH);
+        order.encode(Orders.limit("c3f1a2b4-5d6e-4f70-8a9b-0c1d2e3f4a5b", Order.OrderType.BUY, best,
+                AllocationFreeMatchBenchmark.QUANTITY), tickSize);
+    }
+
+    @Benchmark
+    public int flyweight() {
+        buffer.clear();
+        order.setRemainingQuantity(AllocationFreeMatchBenchmark.QUANTITY);
+        return book.addOrder(order, buffer);
+    }
+
+    @Benchmark
+    public int decodeToOrder() {
+        buffer.clear();
+        order.setRemainingQuantity(AllocationFreeMatchBenchmark.QUANTITY);
+        return book.addOrder(order.toOrder(tickSize), buffer);
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import journal.JournalReader;
+import journal.OrderJournal;
+import journal.RecordType;
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.TradingEngineImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ *  cost of journaling one command (what JournaledEngine adds to the match path) with and
+ *  without msync batching, and replay speed of a journal of add/cancel commands into a
+ *  fresh TradingEngineImpl.
+ *  journal files go to a temp directory that is deleted after each iteration
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    static final int REPLAY_COMMANDS = 1_000_000;
+
+    @Param({"0", "4096"})
+    int syncEvery;
+
+    Path directory;
+    OrderJournal journal;
+    Order order;
+
+    Path replayDirectory;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-bench");
+        journal = new OrderJournal(directory, OrderJournal.DEFAULT_SEGMENT_SIZE, syncEvery);
+        order = Orders.limit("c3f1a2b4-5d6e-4f70-8a9b-0c1d2e3f4a5b", Order.OrderType.BUY, Orders.MID, 100);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        delete(directory);
+    }
+
+    @Setup(Level.Trial)
+    public void writeReplayJournal() throws IOException {
+        replayDirectory = Files.createTempDirectory("journal-replay");
+        try (OrderJournal replayJournal = new OrderJournal(replayDirectory)) {
+            // every add is cancelled 8 commands later, so replay keeps a small book busy
+            Order[] window = new Order[8];
+            for (int i = 0; i < REPLAY_COMMANDS / 2; i++) {
+                Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+                Order add = Orders.limit("replay-" + i, side, Orders.levelPrice(side, i % 16), 100);
+                add.setId(i + 1);
+                replayJournal.append(RecordType.ADD_TO_BOOK, add);
+                Order old = window[i % window.length];
+                window[i % window.length] = add;
+                replayJournal.append(RecordType.CANCEL, old != null ? old : add);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteReplayJournal() throws IOException {
+        delete(replayDirectory);
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long append() {
+        return journal.append(RecordType.ADD_TO_BOOK, order);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(REPLAY_COMMANDS)
+    public long replay() throws IOException {
+        return new JournalReader(replayDirectory).replay(0, new TradingEngineImpl(Orders.SYMBOL));
+    }
+}
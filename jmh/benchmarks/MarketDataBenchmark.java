@@ -0,0 +1,83 @@
+package benchmarks;
+
+import marketdata.ConflatedSubscription;
+import marketdata.MarketDataListener;
+import marketdata.MarketDataPublisher;
+import model.DepthSink;
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  cost of level updates on the matching path: a cancel and re-add of an order on a 10 level
+ *  book, two level updates per op. feed "none" has no publisher, "direct" one in-line listener,
+ *  "conflated" a ConflatedSubscription drained every 1024 ops, so most updates are merged into
+ *  a pending one
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarketDataBenchmark {
+
+    static final int LEVELS = 10;
+    static final int POLL_EVERY = 1024;
+
+    @Param({"TradingEngineImpl", "HPBookOrder", "PriceLadderBook"})
+    String engine;
+
+    @Param({"none", "direct", "conflated"})
+    String feed;
+
+    TradingEngine book;
+    Order[] orders;
+    ConflatedSubscription subscription;
+    MarketDataListener consumer;
+    int next;
+
+    @Setup(Level.Iteration)
+    public void setUp(Blackhole blackhole) {
+        book = Engines.create(engine);
+        orders = new Order[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            orders[level] = Orders.limit("bid-" + level, Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.BUY, level), 100);
+            book.addOrdertoBook(orders[level]);
+            book.addOrdertoBook(Orders.limit("ask-" + level, Order.OrderType.SELL, Orders.levelPrice(Order.OrderType.SELL, level), 100));
+        }
+        consumer = new MarketDataListener() {
+            @Override
+            public void onLevelUpdate(long sequence, Order.OrderType side, double price, long quantity, int orderCount) {
+                blackhole.consume(quantity);
+            }
+
+            @Override
+            public void onRefresh(long sequence, DepthSink depth) {
+                blackhole.consume(depth);
+            }
+        };
+        if (!feed.equals("none")) {
+            MarketDataPublisher publisher = new MarketDataPublisher(book, LEVELS);
+            if (feed.equals("direct")) {
+                publisher.subscribe(consumer);
+            } else {
+                subscription = publisher.subscribeConflated();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean cancelAndAdd() {
+        Order order = orders[next++ % LEVELS];
+        boolean cancelled = book.cancelOrder(order);
+        book.addOrdertoBook(order);
+        if (subscription != null && next % POLL_EVERY == 0) {
+            subscription.poll(consumer);
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  disconnect handling: cancelling all of one account's orders with cancelAll against one
+ *  cancelOrder call per order, on a book where 10000 orders of other accounts rest on the
+ *  same 20 levels. the account's orders are re-added before every invocation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MassCancelBenchmark {
+
+    static final long ACCOUNT = 42;
+    static final int LEVELS = 10;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    @Param({"100", "1000", "10000"})
+    int accountOrders;
+
+    TradingEngine book;
+    Order[] orders;
+
+    @Setup(Level.Trial)
+    public void setUpBook() {
+        book = Engines.create(engine);
+        for (int i = 0; i < 10000; i++) {
+            Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+            Order order = Orders.limit("other-" + i, side, Orders.levelPrice(side, i % LEVELS), 100);
+            order.setAccountId(1000 + i % 100);
+            book.addOrdertoBook(order);
+        }
+        orders = new Order[accountOrders];
+        for (int i = 0; i < accountOrders; i++) {
+            Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+            orders[i] = Orders.limit("account-" + i, side, Orders.levelPrice(side, i % LEVELS), 100);
+            orders[i].setAccountId(ACCOUNT);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void addAccountOrders() {
+        for (Order order : orders) {
+            book.addOrdertoBook(order);
+        }
+    }
+
+    @Benchmark
+    public int cancelAll() {
+        return book.cancelAll(ACCOUNT);
+    }
+
+    @Benchmark
+    public int cancelEach() {
+        int cancelled = 0;
+        for (Order order : orders) {
+            if (book.cancelOrder(order)) cancelled++;
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import model.Order;
+import model.Trade;
+import org.openjdk.jmh.annotations.*;
+import services.TradingEngine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  aggressive MARKET and LIMIT_ORDER flow against a book with a given number of ask levels.
+ *
+ *  each operation replenishes one resting ask at the best price and sends a buy for the same
+ *  quantity, which fills exactly the order at the head of the best level. the book therefore
+ *  stays at the same shape for the whole run and only the matching path is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchBenchmark {
+
+    static final int QUANTITY = 100;
+    static final int ORDERS_PER_LEVEL = 10;
+
+    // recycled resting orders; larger than the best level so a reused order has always been filled
+    static final int RING = 64;
+
+    @Param({"TradingEngineImpl", "HPBookOrder", "PriceLadderBook"})
+    String engine;
+
+    @Param({"1", "10", "100", "1000"})
+    int depth;
+
+    TradingEngine book;
+    Order[] ring;
+    int next;
+
+    Order marketBuy;
+    Order limitBuy;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = Engines.create(engine);
+        double best = Orders.levelPrice(Order.OrderType.SELL, 0);
+
+        ring = new Order[RING];
+        for (int i = 0; i < RING; i++) {
+            ring[i] = Orders.limit("ring-" + i, Order.OrderType.SELL, best, QUANTITY);
+        }
+        for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+            book.addOrdertoBook(ring[i]);
+        }
+        next = ORDERS_PER_LEVEL;
+
+        for (int level = 1; level < depth; level++) {
+            for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                book.addOrdertoBook(Orders.limit("ask-" + level + "-" + i, Order.OrderType.SELL,
+                        Orders.levelPrice(Order.OrderType.SELL, level), QUANTITY));
+            }
+        }
+
+        marketBuy = Orders.market("mkt", Order.OrderType.BUY, QUANTITY);
+        limitBuy = Orders.limit("lmt", Order.OrderType.BUY, best, QUANTITY);
+    }
+
+    private void replenish() {
+        Order resting = ring[next];
+        resting.setRemaningQuality(QUANTITY);
+        book.addOrdertoBook(resting);
+        next = (next + 1) % RING;
+    }
+
+    @Benchmark
+    public List<Trade> market() {
+        replenish();
+        marketBuy.setRemaningQuality(QUANTITY);
+        return book.addOrder(marketBuy);
+    }
+
+    @Benchmark
+    public List<Trade> limit() {
+        replenish();
+        limitBuy.setRemaningQuality(QUANTITY);
+        return book.addOrder(limitBuy);
+    }
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import model.LongOrderMap;
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  order index lookups and add/cancel churn at book sizes of 1M and 10M resting orders,
+ *  LongOrderMap against the boxed Long maps. run OrderIndexFootprint for the retained heap
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class OrderIndexBenchmark {
+
+    static final int PROBES = 1 << 20;
+
+    @Param({"LongOrderMap", "ConcurrentHashMap", "HashMap"})
+    String index;
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    Index orders;
+    long[] probes;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orders = Index.create(index, size);
+        for (long id = 1; id <= size; id++) {
+            Order order = new Order();
+            order.setId(id);
+            orders.put(id, order);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        probes = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    private long nextId() {
+        long id = probes[next];
+        next = (next + 1) & (PROBES - 1);
+        return id;
+    }
+
+    @Benchmark
+    public Order get() {
+        return orders.get(nextId());
+    }
+
+    // cancel followed by a re-add of the same order, keeps the index size constant
+    @Benchmark
+    public Order removeAndPut() {
+        long id = nextId();
+        Order order = orders.remove(id);
+        orders.put(id, order);
+        return order;
+    }
+
+    /**
+     *  the three indexes behind one call site; each trial only ever sees one implementation
+     */
+    interface Index {
+
+        Order get(long id);
+
+        Order put(long id, Order order);
+
+        Order remove(long id);
+
+        static Index create(String index, int size) {
+            switch (index) {
+                case "LongOrderMap":
+                    LongOrderMap primitive = new LongOrderMap(size);
+                    return new Index() {
+                        public Order get(long id) { return primitive.get(id); }
+                        public Order put(long id, Order order) { return primitive.put(id, order); }
+                        public Order remove(long id) { return primitive.remove(id); }
+                    };
+                case "ConcurrentHashMap":
+                    return boxed(new ConcurrentHashMap<>(size));
+                case "HashMap":
+                    return boxed(new HashMap<>(size));
+                default:
+                    throw new IllegalArgumentException("unknown index " + index);
+            }
+        }
+
+        static Index boxed(Map<Long, Order> map) {
+            return new Index() {
+                public Order get(long id) { return map.get(id); }
+                public Order put(long id, Order order) { return map.put(id, order); }
+                public Order remove(long id) { return map.remove(id); }
+            };
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import model.LongOrderMap;
+import model.Order;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ *  retained heap of the order index alone (the Order objects are allocated before the
+ *  baseline is taken), measured as the used heap delta after full gcs.
+ *
+ *  usage: java -Xmx8g -cp target/benchmarks.jar benchmarks.OrderIndexFootprint [sizes...]
+ *  default sizes are 1M and 10M
+ */
+public class OrderIndexFootprint {
+
+    // keeps the index under measurement reachable across the second gc
+    static Object retained;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000_000, 10_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-20s %12s %16s %12s%n", "index", "orders", "retained bytes", "bytes/order");
+        for (int size : sizes) {
+            Order[] orders = new Order[size];
+            for (int i = 0; i < size; i++) {
+                orders[i] = new Order();
+                orders[i].setId(i + 1);
+            }
+
+            report("LongOrderMap", size, measure(() -> {
+                LongOrderMap index = new LongOrderMap();
+                for (Order order : orders) index.put(order.getId(), order);
+                return index;
+            }));
+            report("ConcurrentHashMap", size, measure(() -> {
+                Map<Long, Order> index = new ConcurrentHashMap<>();
+                for (Order order : orders) index.put(order.getId(), order);
+                return index;
+            }));
+            report("HashMap", size, measure(() -> {
+                Map<Long, Order> index = new HashMap<>();
+                for (Order order : orders) index.put(order.getId(), order);
+                return index;
+            }));
+        }
+    }
+
+    private static void report(String index, int size, long bytes) {
+        System.out.printf("%-20s %12d %16d %12.1f%n", index, size, bytes, (double) bytes / size);
+    }
+
+    // grows the index the way an engine does (no presizing) and keeps it reachable while measuring
+    static long measure(Supplier<Object> build) {
+        long before = usedAfterGc();
+        retained = build.get();
+        long after = usedAfterGc();
+        retained = null;
+        return after - before;
+    }
+
+    static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
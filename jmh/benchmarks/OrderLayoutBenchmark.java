@@ -0,0 +1,104 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.CommandTarget;
+import services.ExecutionBuffer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  what the layout of the resting orders costs the matching loop: a market sell sweeping SWEEP
+ *  bids off the top of a deep book, then the filled orders re-added at random levels, reported
+ *  per order. the same flow against the Order object graph (TradingEngineImpl, PriceLadderBook)
+ *  and against SlotLadderBook over the columnar OrderPool and the off-heap OrderSlab.
+ *
+ *  the orders are allocated in one order and rested in a shuffled one, and every level holds
+ *  orders from all over the book, so walking a queue jumps around memory like a long running book
+ *  does rather than reading objects the allocator happened to lay out in queue order. at 1M
+ *  resting orders nothing fits in the caches; run it under perf for the miss counts:
+ *
+ *  java -cp target/benchmarks.jar org.openjdk.jmh.Main OrderLayoutBenchmark -prof perfnorm
+ *
+ *  and compare L1-dcache-load-misses and LLC-load-misses per op across the engines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderLayoutBenchmark {
+
+    static final int QUANTITY = 100;
+    static final int LEVELS = 1000;
+    static final int SWEEP = 64;
+    static final int LEVEL_RING = 1 << 16;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook", "PooledLadderBook", "OffHeapLadderBook"})
+    String engine;
+
+    @Param({"10000", "1000000"})
+    int restingOrders;
+
+    CommandTarget book;
+    ExecutionBuffer buffer;
+    Order marketSell;
+
+    // orders[id - 1] has id id; the filled ones are found again through the buffer
+    Order[] orders;
+    double[] levelPrices;
+    int[] levelRing;
+    int nextLevel;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = Engines.target(engine);
+        Random random = new Random(42);
+
+        levelPrices = new double[LEVELS];
+        for (int level = 0; level < LEVELS; level++) {
+            levelPrices[level] = Orders.levelPrice(Order.OrderType.BUY, level);
+        }
+        levelRing = new int[LEVEL_RING];
+        for (int i = 0; i < LEVEL_RING; i++) {
+            levelRing[i] = random.nextInt(LEVELS);
+        }
+
+        orders = new Order[restingOrders];
+        for (int i = 0; i < restingOrders; i++) {
+            orders[i] = Orders.limit("bid-" + i, Order.OrderType.BUY, levelPrices[random.nextInt(LEVELS)], QUANTITY);
+            orders[i].setId(i + 1);
+        }
+        int[] shuffled = new int[restingOrders];
+        for (int i = 0; i < restingOrders; i++) {
+            int j = random.nextInt(i + 1);
+            shuffled[i] = shuffled[j];
+            shuffled[j] = i;
+        }
+        for (int i : shuffled) {
+            book.addOrdertoBook(orders[i]);
+        }
+
+        buffer = new ExecutionBuffer(SWEEP);
+        marketSell = Orders.market("mkt", Order.OrderType.SELL, SWEEP * QUANTITY);
+        marketSell.setId(restingOrders + 1L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SWEEP)
+    public int sweepAndRest() {
+        buffer.clear();
+        marketSell.setRemaningQuality(SWEEP * QUANTITY);
+        int fills = book.addOrder(marketSell, buffer);
+        for (int i = 0; i < buffer.size(); i++) {
+            Order filled = orders[(int) buffer.getBuyOrderId(i) - 1];
+            filled.setPrice(levelPrices[levelRing[nextLevel]]);
+            filled.setRemaningQuality(QUANTITY);
+            book.addOrdertoBook(filled);
+            nextLevel = (nextLevel + 1) & (LEVEL_RING - 1);
+        }
+        return fills;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import model.Order;
+
+/**
+ *  order factory shared by the benchmarks
+ */
+final class Orders {
+
+    static final String SYMBOL = "USDSGD";
+
+    static final double MID = 1.3500;
+    static final double TICK = 0.0001;
+
+    private Orders() {
+    }
+
+    static Order limit(String orderId, Order.OrderType side, double price, int quantity) {
+        return new Order(
+                orderId,
+                SYMBOL,
+                Order.OrderStatus.NEW,
+                Order.OrderStrategy.LIMIT_ORDER,
+                quantity,
+                quantity,
+                price,
+                side
+        );
+    }
+
+    static Order market(String orderId, Order.OrderType side, int quantity) {
+        return new Order(
+                orderId,
+                SYMBOL,
+                Order.OrderStatus.NEW,
+                Order.OrderStrategy.MARKET,
+                quantity,
+                quantity,
+                0,
+                side
+        );
+    }
+
+    // price of the n-th level away from the mid, bids below and asks above
+    static double levelPrice(Order.OrderType side, int level) {
+        return side == Order.OrderType.BUY ? MID - (level + 1) * TICK : MID + (level + 1) * TICK;
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import risk.PreTradeRisk;
+import risk.RiskCheckedEngine;
+import risk.RiskLimits;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  the pre-trade check on its own (an account lookup among 1024 and three limit comparisons)
+ *  and a rest + cancel through RiskCheckedEngine against the bare engine, which adds the check
+ *  and two exposure updates
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RiskCheckBenchmark {
+
+    static final int ACCOUNTS = 1024;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    PreTradeRisk risk;
+    TradingEngine bare;
+    TradingEngine checked;
+    Order[] orders;
+    int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        risk = new PreTradeRisk(new RiskLimits(1_000_000, 1e9, 1e12));
+        bare = Engines.create(engine);
+        checked = new RiskCheckedEngine(Engines.create(engine), risk);
+        // resting depth so a cancel never empties a level
+        for (int level = 0; level < 10; level++) {
+            bare.addOrdertoBook(Orders.limit("depth-" + level, Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.BUY, level), 100));
+            checked.addOrdertoBook(Orders.limit("depth-" + level, Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.BUY, level), 100));
+        }
+        orders = new Order[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            orders[i] = Orders.limit("bid-" + i, Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.BUY, i % 10), 100);
+            orders[i].setAccountId(1000 + i * 7L);
+            risk.account(orders[i].getAccountId());
+        }
+    }
+
+    @Benchmark
+    public PreTradeRisk.Reject check() {
+        return risk.check(orders[next++ & (ACCOUNTS - 1)]);
+    }
+
+    @Benchmark
+    public boolean restAndCancelBare() {
+        return restAndCancel(bare);
+    }
+
+    @Benchmark
+    public boolean restAndCancelChecked() {
+        return restAndCancel(checked);
+    }
+
+    private boolean restAndCancel(TradingEngine book) {
+        Order order = orders[next++ & (ACCOUNTS - 1)];
+        book.addOrdertoBook(order);
+        return book.cancelOrder(order);
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import router.MatchingEngineRouter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  publish throughput of several producer threads into the MatchingEngineRouter, spreading
+ *  market orders over a set of symbols so every shard's matching thread gets work.
+ *  per-shard command counts and publish -> processed latency are printed per trial.
+ *
+ *  needs at least producers + shards cores to show the scaling across shards
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+
+    @Param({"1", "2", "4"})
+    int shards;
+
+    @Param({"64"})
+    int symbols;
+
+    @Param({"yielding"})
+    String waitStrategy;
+
+    MatchingEngineRouter router;
+    Order[] marketBuys;
+
+    @State(Scope.Thread)
+    public static class Producer {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        router = new MatchingEngineRouter(shards, 4096, () -> SequencerBenchmark.strategy(waitStrategy));
+        marketBuys = new Order[symbols];
+        for (int i = 0; i < symbols; i++) {
+            marketBuys[i] = Orders.market("mkt" + i, Order.OrderType.BUY, 100);
+            marketBuys[i].setTicker("SYM" + i);
+        }
+        router.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        router.halt();
+        System.out.println();
+        for (int i = 0; i < shards; i++) {
+            System.out.println("shard " + i + " symbols=" + router.getShardSymbolCount(i)
+                    + " commands=" + router.getShardCommands(i) + " " + router.getShardLatency(i).summary());
+        }
+    }
+
+    @Benchmark
+    public long publish(Producer producer) {
+        Order order = marketBuys[producer.next++ % symbols];
+        return router.addOrder(order);
+    }
+}
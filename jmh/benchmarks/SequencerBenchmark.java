@@ -0,0 +1,71 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import sequencer.BusySpinWaitStrategy;
+import sequencer.OrderSequencer;
+import sequencer.ParkingWaitStrategy;
+import sequencer.WaitStrategy;
+import sequencer.YieldingWaitStrategy;
+import services.TradingEngineImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  publish throughput of several producer threads into the OrderSequencer, with one matching
+ *  thread applying the commands to a TradingEngineImpl. the commands are market orders against
+ *  an empty book so the sequencer hand-off is what gets measured.
+ *  the end-to-end publish -> processed latency is printed per trial.
+ *
+ *  needs at least producers + 1 cores, otherwise the busy-spin strategy starves the producers
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+@State(Scope.Benchmark)
+public class SequencerBenchmark {
+
+    @Param({"busySpin", "yielding", "parking"})
+    String waitStrategy;
+
+    @Param({"4096"})
+    int capacity;
+
+    OrderSequencer sequencer;
+    Order marketBuy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sequencer = new OrderSequencer(new TradingEngineImpl(Orders.SYMBOL), capacity, strategy(waitStrategy));
+        marketBuy = Orders.market("mkt", Order.OrderType.BUY, 100);
+        sequencer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        sequencer.halt();
+        System.out.println();
+        System.out.println(waitStrategy + " publish->processed " + sequencer.getLatency().summary());
+    }
+
+    static WaitStrategy strategy(String name) {
+        switch (name) {
+            case "busySpin":
+                return new BusySpinWaitStrategy();
+            case "yielding":
+                return new YieldingWaitStrategy();
+            case "parking":
+                return new ParkingWaitStrategy();
+            default:
+                throw new IllegalArgumentException("unknown wait strategy " + name);
+        }
+    }
+
+    @Benchmark
+    public long publish() {
+        return sequencer.addOrder(marketBuy);
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import services.SessionClock;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  the session end: one advanceClock call expiring every resting DAY order, spread over 10
+ *  levels per side. the orders are rested again for a new session before every invocation
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionEndBenchmark {
+
+    static final long SESSION_LENGTH = 8 * 3600_000L;
+    static final int LEVELS = 10;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    @Param({"10000", "100000"})
+    int orders;
+
+    TradingEngine book;
+    SessionClock clock;
+    Order[] resting;
+    long sessionEnd;
+
+    @Setup(Level.Trial)
+    public void setUpBook() {
+        book = Engines.create(engine);
+        clock = (SessionClock) book;
+        resting = new Order[orders];
+        for (int i = 0; i < orders; i++) {
+            Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+            resting[i] = Orders.limit("day-" + i, side, Orders.levelPrice(side, i % LEVELS), 100);
+            resting[i].setTimeInForce(Order.TimeInForce.DAY);
+        }
+    }
+
+    // the clock only moves forward, every invocation is the next session
+    @Setup(Level.Iteration)
+    public void openSession() {
+        sessionEnd += SESSION_LENGTH;
+        clock.setSessionEnd(sessionEnd);
+        for (Order order : resting) {
+            order.setId(0);
+            order.setExpireTime(0);
+            book.addOrdertoBook(order);
+        }
+    }
+
+    @Benchmark
+    public int expireAll() {
+        return clock.advanceClock(sessionEnd);
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import journal.SnapshotStore;
+import model.IdGenerator;
+import model.Order;
+import services.BookSnapshot;
+import services.TradingEngineImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *  warm restart time of a large book: builds a book of resting orders with uuid order ids,
+ *  captures and writes a snapshot, then restores it into a fresh engine. capture and restore
+ *  are repeated so the later runs show the warmed up time. run it with a fixed size heap, like
+ *  a production engine, or the restore mostly measures heap growth.
+ *
+ *  usage: java -Xms4g -Xmx4g -cp target/benchmarks.jar benchmarks.SnapshotRestoreTime [orders]
+ *  default is 5M orders over 2000 price levels
+ */
+public class SnapshotRestoreTime {
+
+    static final int LEVELS_PER_SIDE = 1000;
+    static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length == 0 ? 5_000_000 : Integer.parseInt(args[0]);
+        Path directory = Files.createTempDirectory("snapshot-restore");
+        try {
+            TradingEngineImpl engine = new TradingEngineImpl(Orders.SYMBOL);
+            for (int i = 0; i < orders; i++) {
+                Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+                Order order = Orders.limit(IdGenerator.toUuidString(i + 1), side,
+                        Orders.levelPrice(side, (i / 2) % LEVELS_PER_SIDE), 100);
+                engine.addOrdertoBook(order);
+            }
+
+            Path file = null;
+            for (int run = 1; run <= RUNS; run++) {
+                long start = System.nanoTime();
+                BookSnapshot snapshot = BookSnapshot.capture(engine, run);
+                long captured = System.nanoTime();
+                file = new SnapshotStore(directory).write(snapshot);
+                long written = System.nanoTime();
+                System.out.printf("snapshot run %d: %d bytes, capture %d ms, write %d ms%n",
+                        run, Files.size(file), (captured - start) / 1_000_000, (written - captured) / 1_000_000);
+            }
+
+            engine = null;
+            for (int run = 1; run <= RUNS; run++) {
+                System.gc();
+                TradingEngineImpl restored = new TradingEngineImpl(Orders.SYMBOL);
+                long start = System.nanoTime();
+                BookSnapshot.restore(file, restored);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("restore run %d: %d ms, %d resting orders, %d + %d levels%n",
+                        run, elapsed / 1_000_000, restored.getTotalOrderCount(), restored.getBidLevels(), restored.getAskLevels());
+            }
+        } finally {
+            JournalBenchmark.delete(directory);
+        }
+    }
+}
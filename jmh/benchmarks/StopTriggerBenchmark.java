@@ -0,0 +1,100 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import services.TradingEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  a burst of 1000 buy stops triggered by one market order, each filling against its own ask
+ *  on the first level, next to the same 1001 fills taken by a single market order without any
+ *  stops. the burst waits on one stop price, so triggering it is a single range pop. further
+ *  stops that the burst does not reach wait far away from the mid on both sides. the asks and
+ *  the stops are re-entered before every invocation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StopTriggerBenchmark {
+
+    static final int BURST = 1000;
+    static final int QUANTITY = 10;
+
+    @Param({"TradingEngineImpl", "PriceLadderBook"})
+    String engine;
+
+    @Param({"0", "100000"})
+    int pendingStops;
+
+    TradingEngine book;
+    Order[] asks;
+    Order[] burst;
+    Order trigger;
+    Order sweep;
+
+    @Setup(Level.Trial)
+    public void setUpBook() {
+        book = Engines.create(engine);
+        // stops 1000-1100 levels out, never reached
+        for (int i = 0; i < pendingStops; i++) {
+            Order.OrderType side = i % 2 == 0 ? Order.OrderType.BUY : Order.OrderType.SELL;
+            Order.OrderType away = side == Order.OrderType.BUY ? Order.OrderType.SELL : Order.OrderType.BUY;
+            book.addOrdertoBook(stop("pending-" + i, side, Orders.levelPrice(away, 1000 + i % 100)));
+        }
+        asks = new Order[BURST + 1];
+        for (int i = 0; i < asks.length; i++) {
+            asks[i] = Orders.limit("ask-" + i, Order.OrderType.SELL, Orders.levelPrice(Order.OrderType.SELL, 0), QUANTITY);
+        }
+        burst = new Order[BURST];
+        for (int i = 0; i < BURST; i++) {
+            burst[i] = stop("stop-" + i, Order.OrderType.BUY, Orders.levelPrice(Order.OrderType.SELL, 0));
+        }
+        trigger = Orders.market("trigger", Order.OrderType.BUY, QUANTITY);
+        sweep = Orders.market("sweep", Order.OrderType.BUY, QUANTITY * asks.length);
+    }
+
+    static Order stop(String orderId, Order.OrderType side, double stopPrice) {
+        Order order = Orders.market(orderId, side, QUANTITY);
+        order.setOrderStrategy(Order.OrderStrategy.STOP);
+        order.setStopPrice(stopPrice);
+        return order;
+    }
+
+    @Setup(Level.Invocation)
+    public void reset(BenchmarkParams params) {
+        for (Order ask : asks) {
+            ask.setId(0);
+            ask.setRemaningQuality(QUANTITY);
+            book.addOrdertoBook(ask);
+        }
+        trigger.setId(0);
+        trigger.setRemaningQuality(QUANTITY);
+        sweep.setId(0);
+        sweep.setRemaningQuality(QUANTITY * asks.length);
+        // the burst is only parked for triggerBurst, fillsOnly would trigger it as well
+        if (params.getBenchmark().endsWith("triggerBurst")) {
+            for (Order stop : burst) {
+                stop.setId(0);
+                stop.setOrderStrategy(Order.OrderStrategy.STOP);
+                stop.setRemaningQuality(QUANTITY);
+                book.addOrdertoBook(stop);
+            }
+        }
+    }
+
+    @Benchmark
+    public int triggerBurst() {
+        return book.addOrder(trigger).size();
+    }
+
+    // the same fills without stops: the difference is the cost of triggering and entering 1000 orders
+    @Benchmark
+    public int fillsOnly() {
+        return book.addOrder(sweep).size();
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import model.Order;
+import org.openjdk.jmh.annotations.*;
+import model.TickSize;
+import services.HPBookOrder;
+import services.PriceLadderBook;
+import services.TradingEngineImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  best bid and spread reads on a populated book. the engines expose these as
+ *  public methods outside the TradingEngine interface, so each gets its own benchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopOfBookBenchmark {
+
+    @Param({"100"})
+    int levels;
+
+    TradingEngineImpl tradingEngine;
+    HPBookOrder hpBookOrder;
+    PriceLadderBook priceLadderBook;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tradingEngine = new TradingEngineImpl(Orders.SYMBOL);
+        hpBookOrder = new HPBookOrder();
+        priceLadderBook = new PriceLadderBook(Orders.SYMBOL, new TickSize(Orders.TICK), Orders.MID, Engines.LADDER_LEVELS);
+        for (int level = 0; level < levels; level++) {
+            for (Order.OrderType side : Order.OrderType.values()) {
+                tradingEngine.addOrdertoBook(Orders.limit("t-" + side + level, side, Orders.levelPrice(side, level), 100));
+                hpBookOrder.addOrdertoBook(Orders.limit("h-" + side + level, side, Orders.levelPrice(side, level), 100));
+                priceLadderBook.addOrdertoBook(Orders.limit("p-" + side + level, side, Orders.levelPrice(side, level), 100));
+            }
+        }
+    }
+
+    @Benchmark
+    public Double tradingEngineImplBestBid() {
+        return tradingEngine.getBestBid();
+    }
+
+    @Benchmark
+    public Double tradingEngineImplSpread() {
+        return tradingEngine.getSpread();
+    }
+
+    @Benchmark
+    public Double hpBookOrderBestBid() {
+        return hpBookOrder.getBestBid();
+    }
+
+    @Benchmark
+    public Double hpBookOrderSpread() {
+        return hpBookOrder.getSpread();
+    }
+
+    @Benchmark
+    public Double priceLadderBookBestBid() {
+        return priceLadderBook.getBestBid();
+    }
+
+    @Benchmark
+    public Double priceLadderBookSpread() {
+        return priceLadderBook.getSpread();
+    }
+
+    @Benchmark
+    public long priceLadderBookSpreadTicks() {
+        return priceLadderBook.getSpreadTicks();
+    }
+}
@@ -0,0 +1,45 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  fixed length ascii fields: the value padded with 0 bytes up to the field length.
+ *  an all-zero field reads back as null
+ */
+final class Ascii {
+
+    private Ascii() {
+    }
+
+    static void put(ByteBuffer buffer, int offset, int length, CharSequence value) {
+        int size = value == null ? 0 : value.length();
+        if (size > length) {
+            throw new IllegalArgumentException("'" + value + "' is longer than the " + length + " byte field");
+        }
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c == 0 || c >= 0x80) {
+                throw new IllegalArgumentException("'" + value + "' is not printable ascii");
+            }
+            buffer.put(offset + i, (byte) c);
+        }
+        for (int i = size; i < length; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    static String get(ByteBuffer buffer, int offset, int length) {
+        int size = 0;
+        while (size < length && buffer.get(offset + size) != 0) {
+            size++;
+        }
+        if (size == 0) {
+            return null;
+        }
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) buffer.get(offset + i);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,61 @@
+package codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *  8 byte header in front of every encoded message, as in SBE: block length, template id,
+ *  schema id and version, all unsigned 16 bit little endian.
+ *  a flyweight: wrap it over a buffer and read or write the fields in place
+ */
+public class MessageHeader {
+
+    public static final int ENCODED_LENGTH = 8;
+    public static final int SCHEMA_ID = 1;
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final int BLOCK_LENGTH_OFFSET = 0;
+    private static final int TEMPLATE_ID_OFFSET = 2;
+    private static final int SCHEMA_ID_OFFSET = 4;
+    private static final int VERSION_OFFSET = 6;
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public MessageHeader wrap(ByteBuffer buffer, int offset) {
+        if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalArgumentException("codec buffers must be little endian");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    // writes a header for a message of this schema
+    public void set(int blockLength, int templateId) {
+        buffer.putShort(offset + BLOCK_LENGTH_OFFSET, (short) blockLength);
+        buffer.putShort(offset + TEMPLATE_ID_OFFSET, (short) templateId);
+        buffer.putShort(offset + SCHEMA_ID_OFFSET, (short) SCHEMA_ID);
+        buffer.putShort(offset + VERSION_OFFSET, (short) SCHEMA_VERSION);
+    }
+
+    public int getBlockLength() {
+        return Short.toUnsignedInt(buffer.getShort(offset + BLOCK_LENGTH_OFFSET));
+    }
+
+    public int getTemplateId() {
+        return Short.toUnsignedInt(buffer.getShort(offset + TEMPLATE_ID_OFFSET));
+    }
+
+    public int getSchemaId() {
+        return Short.toUnsignedInt(buffer.getShort(offset + SCHEMA_ID_OFFSET));
+    }
+
+    public int getVersion() {
+        return Short.toUnsignedInt(buffer.getShort(offset + VERSION_OFFSET));
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,239 @@
+package codec;
+
+import model.Order;
+import model.TickSize;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *  fixed layout order message read and written in place over a ByteBuffer, in the style of SBE.
+ *
+ *  prices are long ticks, enums single bytes (ordinal, -1 for null) and the strings fixed
+ *  length ascii fields padded with 0, so every field sits at a constant offset:
+ *
+ *    0  long  id                 32 long  timestamp
+ *    8  long  price ticks        40 byte  side, strategy, status, time in force
+ *   16  long  original quantity  44 char[8]  ticker
+ *   24  long  remaining quantity 52 char[36] order id
+ *                                88 long  account id
+ *                                96 long  expire time
+ *                               104 long  stop price ticks (0 unless STOP / STOP_LIMIT)
+ *
+ *  one flyweight can be re-wrapped over any number of messages; reading a numeric field
+ *  never allocates, only the String getters do.
+ */
+public class OrderFlyweight {
+
+    public static final int TEMPLATE_ID = 1;
+    public static final int BLOCK_LENGTH = 112;
+    public static final int TICKER_LENGTH = 8;
+    public static final int ORDER_ID_LENGTH = 36;
+
+    private static final int ID_OFFSET = 0;
+    private static final int PRICE_OFFSET = 8;
+    private static final int ORIGINAL_QUANTITY_OFFSET = 16;
+    private static final int REMAINING_QUANTITY_OFFSET = 24;
+    private static final int TIMESTAMP_OFFSET = 32;
+    private static final int SIDE_OFFSET = 40;
+    private static final int STRATEGY_OFFSET = 41;
+    private static final int STATUS_OFFSET = 42;
+    private static final int TIME_IN_FORCE_OFFSET = 43;
+    private static final int TICKER_OFFSET = 44;
+    private static final int ORDER_ID_OFFSET = 52;
+    private static final int ACCOUNT_ID_OFFSET = 88;
+    private static final int EXPIRE_TIME_OFFSET = 96;
+    private static final int STOP_PRICE_OFFSET = 104;
+
+    private static final Order.OrderType[] SIDES = Order.OrderType.values();
+    private static final Order.OrderStrategy[] STRATEGIES = Order.OrderStrategy.values();
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OrderFlyweight wrap(ByteBuffer buffer, int offset) {
+        if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalArgumentException("codec buffers must be little endian");
+        }
+        if (offset < 0 || offset + BLOCK_LENGTH > buffer.capacity()) {
+            throw new IllegalArgumentException("order message at " + offset + " does not fit the buffer");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     *  writes the order's fields, converting its price to ticks
+     */
+    public void encode(Order order, TickSize tickSize) {
+        setId(order.getId());
+        Order.OrderStrategy strategy = order.getOrderStrategy();
+        setPriceTicks(strategy == Order.OrderStrategy.MARKET || strategy == Order.OrderStrategy.STOP ? 0 : tickSize.toTicks(order.getPrice()));
+        setStopPriceTicks(order.isStop() ? tickSize.toTicks(order.getStopPrice()) : 0);
+        setOriginalQuantity(order.getOrginalQuality());
+        setRemainingQuantity(order.getRemaningQuality());
+        setTimestamp(order.getTimestamp());
+        setSide(order.getOrderType());
+        setStrategy(order.getOrderStrategy());
+        setStatus(order.getOrderStatus());
+        setTicker(order.getTicker());
+        setOrderId(order.getOrderId());
+        setAccountId(order.getAccountId());
+        setTimeInForce(order.getTimeInForce());
+        setExpireTime(order.getExpireTime());
+    }
+
+    /**
+     *  materialises the message as an Order, e.g. when it has to rest on a book
+     */
+    public Order toOrder(TickSize tickSize) {
+        Order order = new Order();
+        order.setId(getId());
+        order.setOrderId(getOrderId());
+        order.setTicker(getTicker());
+        order.setOrderType(getSide());
+        order.setOrderStrategy(getStrategy());
+        order.setOrderStatus(getStatus());
+        order.setOrginalQuality(Math.toIntExact(getOriginalQuantity()));
+        order.setRemaningQuality(Math.toIntExact(getRemainingQuantity()));
+        order.setPrice(tickSize.toPrice(getPriceTicks()));
+        order.setTimestamp(getTimestamp());
+        order.setAccountId(getAccountId());
+        order.setTimeInForce(getTimeInForce());
+        order.setExpireTime(getExpireTime());
+        order.setStopPrice(tickSize.toPrice(getStopPriceTicks()));
+        return order;
+    }
+
+    public long getId() {
+        return buffer.getLong(offset + ID_OFFSET);
+    }
+
+    public void setId(long id) {
+        buffer.putLong(offset + ID_OFFSET, id);
+    }
+
+    public long getPriceTicks() {
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    public void setPriceTicks(long ticks) {
+        buffer.putLong(offset + PRICE_OFFSET, ticks);
+    }
+
+    public long getOriginalQuantity() {
+        return buffer.getLong(offset + ORIGINAL_QUANTITY_OFFSET);
+    }
+
+    public void setOriginalQuantity(long quantity) {
+        buffer.putLong(offset + ORIGINAL_QUANTITY_OFFSET, quantity);
+    }
+
+    public long getRemainingQuantity() {
+        return buffer.getLong(offset + REMAINING_QUANTITY_OFFSET);
+    }
+
+    public void setRemainingQuantity(long quantity) {
+        buffer.putLong(offset + REMAINING_QUANTITY_OFFSET, quantity);
+    }
+
+    public long getTimestamp() {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    public void setTimestamp(long timestamp) {
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+    }
+
+    public Order.OrderType getSide() {
+        byte side = buffer.get(offset + SIDE_OFFSET);
+        return side < 0 ? null : SIDES[side];
+    }
+
+    // cheaper than comparing getSide() when only the direction matters
+    public boolean isBuy() {
+        return buffer.get(offset + SIDE_OFFSET) == Order.OrderType.BUY.ordinal();
+    }
+
+    public void setSide(Order.OrderType side) {
+        buffer.put(offset + SIDE_OFFSET, ordinalOf(side));
+    }
+
+    public Order.OrderStrategy getStrategy() {
+        byte strategy = buffer.get(offset + STRATEGY_OFFSET);
+        return strategy < 0 ? null : STRATEGIES[strategy];
+    }
+
+    public void setStrategy(Order.OrderStrategy strategy) {
+        buffer.put(offset + STRATEGY_OFFSET, ordinalOf(strategy));
+    }
+
+    public Order.OrderStatus getStatus() {
+        byte status = buffer.get(offset + STATUS_OFFSET);
+        return status < 0 ? null : STATUSES[status];
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        buffer.put(offset + STATUS_OFFSET, ordinalOf(status));
+    }
+
+    public Order.TimeInForce getTimeInForce() {
+        byte timeInForce = buffer.get(offset + TIME_IN_FORCE_OFFSET);
+        return timeInForce < 0 ? null : TIMES_IN_FORCE[timeInForce];
+    }
+
+    public void setTimeInForce(Order.TimeInForce timeInForce) {
+        buffer.put(offset + TIME_IN_FORCE_OFFSET, ordinalOf(timeInForce));
+    }
+
+    public String getTicker() {
+        return Ascii.get(buffer, offset + TICKER_OFFSET, TICKER_LENGTH);
+    }
+
+    public void setTicker(CharSequence ticker) {
+        Ascii.put(buffer, offset + TICKER_OFFSET, TICKER_LENGTH, ticker);
+    }
+
+    public String getOrderId() {
+        return Ascii.get(buffer, offset + ORDER_ID_OFFSET, ORDER_ID_LENGTH);
+    }
+
+    public void setOrderId(CharSequence orderId) {
+        Ascii.put(buffer, offset + ORDER_ID_OFFSET, ORDER_ID_LENGTH, orderId);
+    }
+
+    public long getAccountId() {
+        return buffer.getLong(offset + ACCOUNT_ID_OFFSET);
+    }
+
+    public void setAccountId(long accountId) {
+        buffer.putLong(offset + ACCOUNT_ID_OFFSET, accountId);
+    }
+
+    public long getStopPriceTicks() {
+        return buffer.getLong(offset + STOP_PRICE_OFFSET);
+    }
+
+    public void setStopPriceTicks(long ticks) {
+        buffer.putLong(offset + STOP_PRICE_OFFSET, ticks);
+    }
+
+    public long getExpireTime() {
+        return buffer.getLong(offset + EXPIRE_TIME_OFFSET);
+    }
+
+    public void setExpireTime(long expireTime) {
+        buffer.putLong(offset + EXPIRE_TIME_OFFSET, expireTime);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    private static byte ordinalOf(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+}
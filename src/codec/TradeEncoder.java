@@ -0,0 +1,86 @@
+package codec;
+
+import model.TickSize;
+import services.ExecutionSink;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  execution sink that appends every fill as a header + trade message to a caller-owned
+ *  little endian buffer, e.g. the send buffer of a gateway session. nothing is allocated per fill.
+ *  a fill that does not fit first hands the full buffer to the drain and starts over, so no fill is
+ *  ever lost; flush() drains what is left at the end of a batch
+ */
+public class TradeEncoder implements ExecutionSink {
+
+    public static final int MESSAGE_LENGTH = MessageHeader.ENCODED_LENGTH + TradeFlyweight.BLOCK_LENGTH;
+
+    /**
+     *  takes the encoded messages out of the buffer, e.g. writes them to the session: they lie
+     *  between 0 and the buffer's position. the encoder clears the buffer once it returns
+     */
+    @FunctionalInterface
+    public interface Drain {
+        void drain(ByteBuffer buffer, int messages);
+    }
+
+    private final ByteBuffer buffer;
+    private final TickSize tickSize;
+    private final Drain drain;
+    private final MessageHeader header = new MessageHeader();
+    private final TradeFlyweight trade = new TradeFlyweight();
+
+    private int encoded;
+    private long drains;
+
+    public TradeEncoder(ByteBuffer buffer, TickSize tickSize, Drain drain) {
+        if (buffer.capacity() < MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("trade buffer of " + buffer.capacity() + " bytes does not hold one "
+                    + MESSAGE_LENGTH + " byte message");
+        }
+        this.buffer = buffer;
+        this.tickSize = tickSize;
+        this.drain = drain;
+    }
+
+    @Override
+    public void onTrade(long tradeId, long buyOrderId, long sellOrderId, double price, long quantity, long timestamp) {
+        if (buffer.limit() - buffer.position() < MESSAGE_LENGTH) {
+            drain();
+        }
+        int offset = buffer.position();
+        header.wrap(buffer, offset).set(TradeFlyweight.BLOCK_LENGTH, TradeFlyweight.TEMPLATE_ID);
+        trade.wrap(buffer, offset + MessageHeader.ENCODED_LENGTH)
+                .set(tradeId, buyOrderId, sellOrderId, tickSize.toTicks(price), quantity, timestamp);
+        buffer.position(offset + MESSAGE_LENGTH);
+        encoded++;
+    }
+
+    // hands whatever is encoded to the drain, if anything
+    public void flush() {
+        if (encoded > 0) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        drain.drain(buffer, encoded);
+        drains++;
+        clear();
+    }
+
+    // messages encoded since the last drain or clear
+    public int size() {
+        return encoded;
+    }
+
+    // how often a full buffer (or flush) was drained
+    public long getDrains() {
+        return drains;
+    }
+
+    public void clear() {
+        buffer.clear();
+        encoded = 0;
+    }
+}
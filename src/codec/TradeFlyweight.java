@@ -0,0 +1,76 @@
+package codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *  fixed layout trade (fill) message read and written in place over a ByteBuffer:
+ *
+ *    0  long  trade id           24 long  price ticks
+ *    8  long  buy order id       32 long  quantity
+ *   16  long  sell order id      40 long  timestamp
+ */
+public class TradeFlyweight {
+
+    public static final int TEMPLATE_ID = 2;
+    public static final int BLOCK_LENGTH = 48;
+
+    private static final int TRADE_ID_OFFSET = 0;
+    private static final int BUY_ORDER_ID_OFFSET = 8;
+    private static final int SELL_ORDER_ID_OFFSET = 16;
+    private static final int PRICE_OFFSET = 24;
+    private static final int QUANTITY_OFFSET = 32;
+    private static final int TIMESTAMP_OFFSET = 40;
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public TradeFlyweight wrap(ByteBuffer buffer, int offset) {
+        if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalArgumentException("codec buffers must be little endian");
+        }
+        if (offset < 0 || offset + BLOCK_LENGTH > buffer.capacity()) {
+            throw new IllegalArgumentException("trade message at " + offset + " does not fit the buffer");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public void set(long tradeId, long buyOrderId, long sellOrderId, long priceTicks, long quantity, long timestamp) {
+        buffer.putLong(offset + TRADE_ID_OFFSET, tradeId);
+        buffer.putLong(offset + BUY_ORDER_ID_OFFSET, buyOrderId);
+        buffer.putLong(offset + SELL_ORDER_ID_OFFSET, sellOrderId);
+        buffer.putLong(offset + PRICE_OFFSET, priceTicks);
+        buffer.putLong(offset + QUANTITY_OFFSET, quantity);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+    }
+
+    public long getTradeId() {
+        return buffer.getLong(offset + TRADE_ID_OFFSET);
+    }
+
+    public long getBuyOrderId() {
+        return buffer.getLong(offset + BUY_ORDER_ID_OFFSET);
+    }
+
+    public long getSellOrderId() {
+        return buffer.getLong(offset + SELL_ORDER_ID_OFFSET);
+    }
+
+    public long getPriceTicks() {
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    public long getQuantity() {
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+
+    public long getTimestamp() {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+}
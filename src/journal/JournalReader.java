@@ -0,0 +1,214 @@
+package journal;
+
+import model.Order;
+import services.AuctionBook;
+import services.ExecutionBuffer;
+import services.SessionClock;
+import services.TradingEngine;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ *  reads the segments of an OrderJournal directory back in sequence order.
+ *
+ *  segments are mapped read only and decoded in place; the only allocation per record is the
+ *  Order (and its order id string) handed to the handler, which the engine keeps if it rests.
+ */
+public class JournalReader {
+
+    /**
+     *  receives each command read from the journal
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void onCommand(long sequence, RecordType type, Order order);
+
+        // a mass cancel, see OrderJournal.appendCancelAll
+        default void onCancelAll(long sequence, long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        }
+
+        // a CLOCK or SESSION_END change, see OrderJournal.appendTime
+        default void onTime(long sequence, RecordType type, long time) {
+        }
+
+        // the start or the end of a call auction, see OrderJournal.appendAuction
+        default void onAuction(long sequence, RecordType type) {
+        }
+    }
+
+    /**
+     *  told about every command the engine throws on during replay, like the sequencer's
+     *  sequencer.RejectHandler: replay skips it and carries on. a mass cancel, clock or auction
+     *  record comes without an order; one the engine has no clock or auction for is refused too
+     */
+    @FunctionalInterface
+    public interface RejectHandler {
+
+        RejectHandler NONE = (sequence, type, order, error) -> { };
+
+        void onReject(long sequence, RecordType type, Order order, RuntimeException error);
+    }
+
+    private final Path directory;
+
+    // commands skipped by replay so far
+    private long rejected;
+
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     *  hands every record with a sequence above afterSequence to the handler, returns the last sequence read
+     *  (afterSequence if there was nothing newer)
+     */
+    public long read(long afterSequence, Handler handler) throws IOException {
+        List<Path> segments = OrderJournal.segments(directory);
+        byte[] scratch = new byte[Short.MAX_VALUE];
+        String ticker = null;
+        long last = afterSequence;
+
+        for (int s = 0; s < segments.size(); s++) {
+            // a segment is entirely old when the next one starts at or before the first wanted sequence
+            if (s + 1 < segments.size() && OrderJournal.firstSequenceOf(segments.get(s + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            MappedByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(segments.get(s), StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+
+            int position = 0;
+            int length;
+            while (position + JournalRecord.LENGTH_SIZE <= segment.limit()
+                    && (length = segment.getInt(position)) != 0) {
+                long sequence = JournalRecord.sequenceAt(segment, position);
+                if (sequence > afterSequence) {
+                    RecordType type = JournalRecord.typeAt(segment, position);
+                    int body = position + JournalRecord.LENGTH_SIZE + 1 + Long.BYTES;
+                    if (type == RecordType.CANCEL_ALL) {
+                        handler.onCancelAll(sequence, segment.getLong(body), JournalRecord.sideAt(segment, body + Long.BYTES),
+                                segment.getDouble(body + Long.BYTES + 1), segment.getDouble(body + Long.BYTES + 1 + Double.BYTES));
+                    } else if (type == RecordType.CLOCK || type == RecordType.SESSION_END) {
+                        handler.onTime(sequence, type, segment.getLong(body));
+                    } else if (type == RecordType.AUCTION || type == RecordType.UNCROSS) {
+                        handler.onAuction(sequence, type);
+                    } else {
+                        segment.position(body);
+                        Order order = JournalRecord.readOrder(segment, scratch, ticker);
+                        ticker = order.getTicker();
+                        handler.onCommand(sequence, type, order);
+                    }
+                    last = sequence;
+                }
+                position += JournalRecord.LENGTH_SIZE + length;
+            }
+        }
+        return last;
+    }
+
+    /**
+     *  rebuilds the engine by applying every command above afterSequence to it, returns the last
+     *  sequence applied. replay into the plain engine, not a JournaledEngine, or the commands are
+     *  journaled again; fills are published to the engine's execution sink as they were originally.
+     *  engine ids are assigned in command order, so replaying into an engine in the state it had at
+     *  afterSequence (empty for 0) gives every order the id it had before
+     */
+    public long replay(long afterSequence, TradingEngine engine) throws IOException {
+        return replay(afterSequence, engine, RejectHandler.NONE);
+    }
+
+    // the same, with every command the engine throws on counted and handed to rejects
+    public long replay(long afterSequence, TradingEngine engine, RejectHandler rejects) throws IOException {
+        ExecutionBuffer executions = new ExecutionBuffer();
+        return read(afterSequence, new Handler() {
+            @Override
+            public void onCommand(long sequence, RecordType type, Order order) {
+                try {
+                    apply(engine, type, order, executions);
+                } catch (RuntimeException e) {
+                    // a command the engine rejected when it was journaled is rejected again, like the sequencer does
+                    reject(sequence, type, order, e);
+                }
+            }
+
+            @Override
+            public void onCancelAll(long sequence, long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+                try {
+                    engine.cancelAll(accountId, side, minPrice, maxPrice);
+                } catch (RuntimeException e) {
+                    reject(sequence, RecordType.CANCEL_ALL, null, e);
+                }
+            }
+
+            @Override
+            public void onTime(long sequence, RecordType type, long time) {
+                try {
+                    if (!(engine instanceof SessionClock)) {
+                        throw new UnsupportedOperationException(engine.getClass().getSimpleName() + " has no clock");
+                    }
+                    if (type == RecordType.CLOCK) {
+                        ((SessionClock) engine).advanceClock(time);
+                    } else {
+                        ((SessionClock) engine).setSessionEnd(time);
+                    }
+                } catch (RuntimeException e) {
+                    reject(sequence, type, null, e);
+                }
+            }
+
+            @Override
+            public void onAuction(long sequence, RecordType type) {
+                try {
+                    if (!(engine instanceof AuctionBook)) {
+                        throw new UnsupportedOperationException(engine.getClass().getSimpleName() + " has no call auction");
+                    }
+                    if (type == RecordType.AUCTION) {
+                        ((AuctionBook) engine).beginAuction();
+                    } else {
+                        executions.clear();
+                        ((AuctionBook) engine).uncross(executions);
+                    }
+                } catch (RuntimeException e) {
+                    reject(sequence, type, null, e);
+                }
+            }
+
+            private void reject(long sequence, RecordType type, Order order, RuntimeException error) {
+                rejected++;
+                rejects.onReject(sequence, type, order, error);
+            }
+        });
+    }
+
+    static void apply(TradingEngine engine, RecordType type, Order order, ExecutionBuffer executions) {
+        switch (type) {
+            case ADD_ORDER:
+                executions.clear();
+                engine.addOrder(order, executions);
+                break;
+            case ADD_TO_BOOK:
+                engine.addOrdertoBook(order);
+                break;
+            case CANCEL:
+                engine.cancelOrder(order);
+                break;
+            case AMEND:
+                engine.amendOrder(order);
+                break;
+            default:
+                throw new IllegalArgumentException(type + " is not an order command");
+        }
+    }
+
+    public long getRejectedCommands() {
+        return rejected;
+    }
+}
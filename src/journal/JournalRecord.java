@@ -0,0 +1,215 @@
+package journal;
+
+import model.Order;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  binary layout of one journaled command, little helpers shared by the writer and the reader.
+ *
+ *  int    body length, written last so a torn record reads as the end of the segment (0)
+ *  byte   record type (RecordType.code)
+ *  long   journal sequence
+ *  long   engine order id (0 for an order that has not reached the engine yet)
+ *  long   account id
+ *  byte   side, strategy, status, time in force (ordinal, -1 for null)
+ *  long   original quantity, remaining quantity
+ *  double price, stop price
+ *  long   order timestamp, expire time
+ *  short  order id length (-1 for null) + bytes, then the same for the ticker
+ *
+ *  strings are ascii in practice and are written byte by byte; anything else goes through utf-8.
+ *
+ *  a CANCEL_ALL record carries its filter instead of an order, after the sequence:
+ *  long account id, byte side (-1 for both), double min price, double max price
+ *
+ *  CLOCK and SESSION_END records carry a single long time after the sequence.
+ *
+ *  AUCTION and UNCROSS records end with the sequence.
+ */
+final class JournalRecord {
+
+    static final int LENGTH_SIZE = Integer.BYTES;
+    static final int FIXED_BODY_SIZE = 1 + Long.BYTES * 3 + 4 + Long.BYTES * 2 + Double.BYTES * 2 + Long.BYTES * 2;
+    static final int CANCEL_ALL_SIZE = LENGTH_SIZE + 1 + Long.BYTES * 2 + 1 + Double.BYTES * 2;
+    static final int TIME_SIZE = LENGTH_SIZE + 1 + Long.BYTES * 2;
+    static final int AUCTION_SIZE = LENGTH_SIZE + 1 + Long.BYTES;
+
+    private static final Order.OrderType[] SIDES = Order.OrderType.values();
+    private static final Order.OrderStrategy[] STRATEGIES = Order.OrderStrategy.values();
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+
+    private JournalRecord() {
+    }
+
+    // bytes the record takes in a segment, length prefix included
+    static int sizeOf(Order order) {
+        return LENGTH_SIZE + FIXED_BODY_SIZE + stringSize(order.getOrderId()) + stringSize(order.getTicker());
+    }
+
+    /**
+     *  writes the record at the buffer's position and moves the position past it
+     */
+    static void write(ByteBuffer buffer, RecordType type, long sequence, Order order) {
+        int start = buffer.position();
+        buffer.position(start + LENGTH_SIZE);
+        buffer.put(type.code);
+        buffer.putLong(sequence);
+        buffer.putLong(order.getId());
+        buffer.putLong(order.getAccountId());
+        buffer.put(ordinalOf(order.getOrderType()));
+        buffer.put(ordinalOf(order.getOrderStrategy()));
+        buffer.put(ordinalOf(order.getOrderStatus()));
+        buffer.put(ordinalOf(order.getTimeInForce()));
+        buffer.putLong(order.getOrginalQuality());
+        buffer.putLong(order.getRemaningQuality());
+        buffer.putDouble(order.getPrice());
+        buffer.putDouble(order.getStopPrice());
+        buffer.putLong(order.getTimestamp());
+        buffer.putLong(order.getExpireTime());
+        putString(buffer, order.getOrderId());
+        putString(buffer, order.getTicker());
+        buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+    }
+
+    static void writeCancelAll(ByteBuffer buffer, long sequence, long accountId, Order.OrderType side,
+                               double minPrice, double maxPrice) {
+        int start = buffer.position();
+        buffer.position(start + LENGTH_SIZE);
+        buffer.put(RecordType.CANCEL_ALL.code);
+        buffer.putLong(sequence);
+        buffer.putLong(accountId);
+        buffer.put(ordinalOf(side));
+        buffer.putDouble(minPrice);
+        buffer.putDouble(maxPrice);
+        buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+    }
+
+    static void writeTime(ByteBuffer buffer, RecordType type, long sequence, long time) {
+        int start = buffer.position();
+        buffer.position(start + LENGTH_SIZE);
+        buffer.put(type.code);
+        buffer.putLong(sequence);
+        buffer.putLong(time);
+        buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+    }
+
+    static void writeAuction(ByteBuffer buffer, RecordType type, long sequence) {
+        int start = buffer.position();
+        buffer.position(start + LENGTH_SIZE);
+        buffer.put(type.code);
+        buffer.putLong(sequence);
+        buffer.putInt(start, buffer.position() - start - LENGTH_SIZE);
+    }
+
+    // side byte of a CANCEL_ALL filter
+    static Order.OrderType sideAt(ByteBuffer buffer, int position) {
+        byte side = buffer.get(position);
+        return side < 0 ? null : SIDES[side];
+    }
+
+    static RecordType typeAt(ByteBuffer buffer, int recordStart) {
+        return RecordType.of(buffer.get(recordStart + LENGTH_SIZE));
+    }
+
+    static long sequenceAt(ByteBuffer buffer, int recordStart) {
+        return buffer.getLong(recordStart + LENGTH_SIZE + 1);
+    }
+
+    /**
+     *  decodes the order of the record at the buffer's position, which must be just past the
+     *  sequence, and leaves the position at the end of the record.
+     *  the previous ticker is reused when it has the same bytes, so replay does not allocate a ticker per record
+     */
+    static Order readOrder(ByteBuffer buffer, byte[] scratch, String previousTicker) {
+        Order order = new Order();
+        order.setId(buffer.getLong());
+        order.setAccountId(buffer.getLong());
+        byte side = buffer.get();
+        byte strategy = buffer.get();
+        byte status = buffer.get();
+        byte timeInForce = buffer.get();
+        order.setOrderType(side < 0 ? null : SIDES[side]);
+        order.setOrderStrategy(strategy < 0 ? null : STRATEGIES[strategy]);
+        order.setOrderStatus(status < 0 ? null : STATUSES[status]);
+        order.setTimeInForce(timeInForce < 0 ? null : TIMES_IN_FORCE[timeInForce]);
+        order.setOrginalQuality(Math.toIntExact(buffer.getLong()));
+        order.setRemaningQuality(Math.toIntExact(buffer.getLong()));
+        order.setPrice(buffer.getDouble());
+        order.setStopPrice(buffer.getDouble());
+        order.setTimestamp(buffer.getLong());
+        order.setExpireTime(buffer.getLong());
+        order.setOrderId(getString(buffer, scratch, null));
+        order.setTicker(getString(buffer, scratch, previousTicker));
+        return order;
+    }
+
+    private static byte ordinalOf(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    private static int stringSize(String value) {
+        return Short.BYTES + (value == null ? 0 : isAscii(value) ? value.length() : utf8(value).length);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else if (isAscii(value)) {
+            buffer.putShort(checkedLength(value.length()));
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = utf8(value);
+            buffer.putShort(checkedLength(bytes.length));
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, byte[] scratch, String previous) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        buffer.get(scratch, 0, length);
+        if (previous != null && sameBytes(previous, scratch, length)) {
+            return previous;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean sameBytes(String value, byte[] bytes, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static short checkedLength(int length) {
+        if (length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("string too long for the journal: " + length + " bytes");
+        }
+        return (short) length;
+    }
+}
@@ -0,0 +1,156 @@
+package journal;
+
+import model.DepthSink;
+import model.Order;
+import model.Trade;
+import services.AuctionBook;
+import services.ExecutionBuffer;
+import services.ExecutionSink;
+import services.LevelUpdateSink;
+import services.OrderBatch;
+import services.SessionClock;
+import services.TradingEngine;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ *  engine decorator that writes every book changing command to the journal before applying it.
+ *  use it as the engine of an OrderSequencer so the journal has a single writer
+ */
+public class JournaledEngine implements TradingEngine {
+
+    private final TradingEngine engine;
+    private final OrderJournal journal;
+    private final OrderBatch single = new OrderBatch(1);
+
+    public JournaledEngine(TradingEngine engine, OrderJournal journal) {
+        this.engine = engine;
+        this.journal = journal;
+    }
+
+    @Override
+    public List<Trade> addOrder(Order order) {
+        journal.append(RecordType.ADD_ORDER, order);
+        return engine.addOrder(order);
+    }
+
+    @Override
+    public int addOrder(Order order, ExecutionBuffer out) {
+        journal.append(RecordType.ADD_ORDER, order);
+        return engine.addOrder(order, out);
+    }
+
+    // journaled as the ADD_ORDER commands the batch is equivalent to, replay needs no batches.
+    // each order is appended just before the engine takes it, one order batches at a time, so an
+    // order the engine refuses ends the journal where it ends the batch
+    @Override
+    public int addOrders(OrderBatch batch, ExecutionSink sink) {
+        int total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isRejected(i)) {
+                continue;
+            }
+            single.clear();
+            single.add(batch.get(i));
+            journal.append(RecordType.ADD_ORDER, batch.get(i));
+            total += engine.addOrders(single, sink);
+            batch.setResult(i, single.getResult(0));
+        }
+        single.clear();
+        return total;
+    }
+
+    @Override
+    public boolean cancelOrder(Order order) {
+        journal.append(RecordType.CANCEL, order);
+        return engine.cancelOrder(order);
+    }
+
+    @Override
+    public List<Trade> amendOrder(Order order) {
+        journal.append(RecordType.AMEND, order);
+        return engine.amendOrder(order);
+    }
+
+    @Override
+    public void addOrdertoBook(Order order) {
+        journal.append(RecordType.ADD_TO_BOOK, order);
+        engine.addOrdertoBook(order);
+    }
+
+    @Override
+    public int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        journal.appendCancelAll(accountId, side, minPrice, maxPrice);
+        return engine.cancelAll(accountId, side, minPrice, maxPrice);
+    }
+
+    @Override
+    public void forEachOrder(long accountId, Consumer<Order> action) {
+        engine.forEachOrder(accountId, action);
+    }
+
+    @Override
+    public void getDepth(int levels, DepthSink sink) {
+        engine.getDepth(levels, sink);
+    }
+
+    @Override
+    public void setExecutionSink(ExecutionSink sink) {
+        engine.setExecutionSink(sink);
+    }
+
+    public TradingEngine getEngine() {
+        return engine;
+    }
+
+    public OrderJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void setLevelUpdateSink(LevelUpdateSink sink) {
+        engine.setLevelUpdateSink(sink);
+    }
+
+    /**
+     *  the journaled engine of a book with a call auction and a clock (TradingEngineImpl,
+     *  PriceLadderBook); a plain JournaledEngine has neither, so nothing it cannot apply is journaled
+     */
+    public static class Session extends JournaledEngine implements AuctionBook, SessionClock {
+
+        private final AuctionBook auction;
+        private final SessionClock clock;
+
+        public <E extends TradingEngine & AuctionBook & SessionClock> Session(E engine, OrderJournal journal) {
+            super(engine, journal);
+            this.auction = engine;
+            this.clock = engine;
+        }
+
+        @Override
+        public void beginAuction() {
+            getJournal().appendAuction(RecordType.AUCTION);
+            auction.beginAuction();
+        }
+
+        @Override
+        public int uncross(ExecutionSink out) {
+            getJournal().appendAuction(RecordType.UNCROSS);
+            return auction.uncross(out);
+        }
+
+        // expiries depend on the clock, so it is journaled like a command
+        @Override
+        public int advanceClock(long now, Consumer<Order> expired) {
+            getJournal().appendTime(RecordType.CLOCK, now);
+            return clock.advanceClock(now, expired);
+        }
+
+        @Override
+        public void setSessionEnd(long time) {
+            getJournal().appendTime(RecordType.SESSION_END, time);
+            clock.setSessionEnd(time);
+        }
+    }
+}
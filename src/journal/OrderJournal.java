@@ -0,0 +1,213 @@
+package journal;
+
+import model.Order;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ *  append-only write-ahead journal of order commands.
+ *
+ *  records (see JournalRecord) go into fixed size memory-mapped segment files named after the
+ *  sequence of their first record, so appending is a few stores into the page cache and survives
+ *  a process crash. msync (force) is batched: every syncEvery records, or never with 0, or on
+ *  demand through sync(); only forced records are safe from a machine crash.
+ *
+ *  opening a directory that already holds segments continues after the last complete record.
+ *  single writer, not thread safe: append from the matching thread (see JournaledEngine).
+ */
+public class OrderJournal implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int syncEvery;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    // last appended sequence, 0 for an empty journal
+    private long sequence;
+    private int unsynced;
+
+    public OrderJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, 0);
+    }
+
+    public OrderJournal(Path directory, int segmentSize, int syncEvery) throws IOException {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        }
+        if (syncEvery < 0) {
+            throw new IllegalArgumentException("syncEvery must not be negative: " + syncEvery);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncEvery = syncEvery;
+        Files.createDirectories(directory);
+
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            long first = firstSequenceOf(last);
+            map(last);
+            sequence = first - 1;
+            // skip to the end of the complete records
+            int position = 0;
+            int length;
+            while (position + JournalRecord.LENGTH_SIZE <= segment.limit()
+                    && (length = segment.getInt(position)) != 0) {
+                sequence = JournalRecord.sequenceAt(segment, position);
+                position += JournalRecord.LENGTH_SIZE + length;
+            }
+            segment.position(position);
+        }
+    }
+
+    /**
+     *  appends the command and returns its journal sequence
+     */
+    public long append(RecordType type, Order order) {
+        if (!type.isOrderCommand()) {
+            throw new IllegalArgumentException(type + " is not journaled as an order command");
+        }
+        int size = JournalRecord.sizeOf(order);
+        if (size + JournalRecord.LENGTH_SIZE > segmentSize) {
+            throw new IllegalArgumentException("record of " + size + " bytes does not fit a segment");
+        }
+        reserve(size);
+        long next = sequence + 1;
+        JournalRecord.write(segment, type, next, order);
+        return appended(next);
+    }
+
+    /**
+     *  appends a mass cancel of the account (side null for both sides) and returns its journal sequence
+     */
+    public long appendCancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        reserve(JournalRecord.CANCEL_ALL_SIZE);
+        long next = sequence + 1;
+        JournalRecord.writeCancelAll(segment, next, accountId, side, minPrice, maxPrice);
+        return appended(next);
+    }
+
+    /**
+     *  appends a CLOCK or SESSION_END change and returns its journal sequence
+     */
+    public long appendTime(RecordType type, long time) {
+        if (type != RecordType.CLOCK && type != RecordType.SESSION_END) {
+            throw new IllegalArgumentException(type + " does not carry a time");
+        }
+        reserve(JournalRecord.TIME_SIZE);
+        long next = sequence + 1;
+        JournalRecord.writeTime(segment, type, next, time);
+        return appended(next);
+    }
+
+    /**
+     *  appends the start (AUCTION) or the end (UNCROSS) of a call auction and returns its journal sequence
+     */
+    public long appendAuction(RecordType type) {
+        if (type != RecordType.AUCTION && type != RecordType.UNCROSS) {
+            throw new IllegalArgumentException(type + " is not an auction change");
+        }
+        reserve(JournalRecord.AUCTION_SIZE);
+        long next = sequence + 1;
+        JournalRecord.writeAuction(segment, type, next);
+        return appended(next);
+    }
+
+    // keep room for the 0 length that marks the end of the segment
+    private void reserve(int size) {
+        if (segment.remaining() < size + JournalRecord.LENGTH_SIZE) {
+            roll();
+        }
+    }
+
+    private long appended(long next) {
+        sequence = next;
+        if (syncEvery > 0 && ++unsynced >= syncEvery) {
+            sync();
+        }
+        return next;
+    }
+
+    // forces the appended records of the current segment to disk
+    public void sync() {
+        segment.force();
+        unsynced = 0;
+    }
+
+    private void roll() {
+        try {
+            segment.force();
+            unsynced = 0;
+            channel.close();
+            openSegment(sequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        map(directory.resolve(String.format("%020d%s", firstSequence, SUFFIX)));
+    }
+
+    // an existing segment keeps its size, even when the journal was opened with a smaller one
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("segment " + file + " is larger than 2 GB");
+        }
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public long getLastSequence() {
+        return sequence;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment.force();
+        channel.close();
+    }
+
+    // segment files of the directory in sequence order
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
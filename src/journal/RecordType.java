@@ -0,0 +1,50 @@
+package journal;
+
+/**
+ *  what a journal record holds: one of the order commands, or an engine wide change that the
+ *  sequencer runs as a task and only the journal names.
+ *
+ *  code is the type byte on disk (see JournalRecord); the values are those of the segments
+ *  already written and must not change
+ */
+public enum RecordType {
+    ADD_ORDER(0),
+    ADD_TO_BOOK(1),
+    CANCEL(2),
+    AMEND(3),
+    // mass cancel of an account
+    CANCEL_ALL(5),
+    // engine clock and session end changes
+    CLOCK(6),
+    SESSION_END(7),
+    // start and end of a call auction
+    AUCTION(8),
+    UNCROSS(9);
+
+    private static final RecordType[] BY_CODE = new RecordType[16];
+
+    static {
+        for (RecordType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    final byte code;
+
+    RecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    static RecordType of(byte code) {
+        RecordType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalStateException("unknown journal record type " + code);
+        }
+        return type;
+    }
+
+    // whether the record carries an order, see OrderJournal.append
+    public boolean isOrderCommand() {
+        return this == ADD_ORDER || this == ADD_TO_BOOK || this == CANCEL || this == AMEND;
+    }
+}
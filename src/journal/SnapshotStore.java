@@ -0,0 +1,124 @@
+package journal;
+
+import sequencer.OrderSequencer;
+import services.BookSnapshot;
+import services.TradingEngineImpl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ *  periodic book snapshots next to the journal, and restart from the latest snapshot plus the
+ *  journal tail.
+ *
+ *  a snapshot is captured at a barrier of the sequencer driving the engine, so it reflects
+ *  exactly the commands up to the journal sequence it is named after; only the in-memory copy
+ *  happens on the matching thread, the file is written by the caller while matching goes on.
+ *  the KEEP newest snapshots are kept.
+ */
+public class SnapshotStore {
+
+    static final String SUFFIX = ".snapshot";
+    static final int KEEP = 2;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     *  snapshots an engine that the sequencer drives through a JournaledEngine writing to journal,
+     *  returns the snapshot file
+     */
+    public Path take(OrderSequencer sequencer, TradingEngineImpl engine, OrderJournal journal) throws IOException, InterruptedException {
+        CompletableFuture<BookSnapshot> captured = new CompletableFuture<>();
+        sequencer.execute(() -> {
+            try {
+                captured.complete(BookSnapshot.capture(engine, journal.getLastSequence()));
+            } catch (RuntimeException e) {
+                captured.completeExceptionally(e);
+            }
+        });
+        try {
+            return write(captured.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("snapshot capture failed", e.getCause());
+        }
+    }
+
+    // writes an already captured snapshot and drops the old ones
+    public Path write(BookSnapshot snapshot) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", snapshot.getJournalSequence(), SUFFIX));
+        snapshot.writeTo(file);
+        List<Path> snapshots = snapshots();
+        for (int i = 0; i < snapshots.size() - KEEP; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return file;
+    }
+
+    /**
+     *  takes a snapshot every period on the executor until the returned future is cancelled
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, long period, TimeUnit unit,
+                                       OrderSequencer sequencer, TradingEngineImpl engine, OrderJournal journal) {
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                take(sequencer, engine, journal);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     *  rebuilds an empty engine from the latest snapshot and the journal commands after it,
+     *  returns the last journal sequence applied. fills of the replayed tail go to the engine's
+     *  execution sink, set it afterwards to avoid publishing them again
+     */
+    public long restore(TradingEngineImpl engine, Path journalDirectory) throws IOException {
+        return restore(engine, journalDirectory, JournalReader.RejectHandler.NONE);
+    }
+
+    // the same, with the journal commands the engine throws on handed to rejects
+    public long restore(TradingEngineImpl engine, Path journalDirectory, JournalReader.RejectHandler rejects) throws IOException {
+        Path latest = latest();
+        long sequence = latest == null ? 0 : BookSnapshot.restore(latest, engine);
+        return new JournalReader(journalDirectory).replay(sequence, engine, rejects);
+    }
+
+    // newest snapshot, or null
+    public Path latest() throws IOException {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    // snapshot files in journal sequence order
+    private List<Path> snapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,173 @@
+package loadgen;
+
+/**
+ *  shape of a synthetic order flow. every setter returns the profile so a run reads as one
+ *  expression; the defaults are a moderately busy FX pair.
+ *
+ *  arrivals are a Poisson process of the given rate over all symbols together. each symbol's mid
+ *  follows a mean reverting (Ornstein-Uhlenbeck) walk around its start price. a limit order is
+ *  priced off the mid: with probability aggressiveFraction it crosses the mid by up to two ticks,
+ *  otherwise it joins the book at a depth drawn from a geometric profile with the given mean,
+ *  capped at depthLevels. the command mix is limit / market / cancel by weight.
+ */
+public class LoadProfile {
+
+    private double ordersPerSecond = 100_000;
+    private double limitWeight = 0.55;
+    private double marketWeight = 0.05;
+    private double cancelWeight = 0.40;
+    private int symbols = 1;
+    private int accounts = 1_000;
+
+    private double startPrice = 1.3500;
+    private double tick = 0.0001;
+    // pull back to the start price per second, and volatility in ticks per square root of a second
+    private double meanReversion = 0.5;
+    private double volatilityTicks = 20;
+
+    private double aggressiveFraction = 0.1;
+    private double meanDepth = 5;
+    private int depthLevels = 100;
+    private int minQuantity = 1;
+    private int maxQuantity = 100;
+
+    // limit orders that may rest per generator; above it new orders give way to cancels
+    private int maxLiveOrders = 1_000_000;
+
+    public LoadProfile ordersPerSecond(double ordersPerSecond) {
+        if (ordersPerSecond < 0) throw new IllegalArgumentException("rate must not be negative: " + ordersPerSecond);
+        this.ordersPerSecond = ordersPerSecond;
+        return this;
+    }
+
+    public LoadProfile mix(double limitWeight, double marketWeight, double cancelWeight) {
+        if (limitWeight < 0 || marketWeight < 0 || cancelWeight < 0 || limitWeight + marketWeight <= 0) {
+            throw new IllegalArgumentException("weights must not be negative and some orders must be new");
+        }
+        this.limitWeight = limitWeight;
+        this.marketWeight = marketWeight;
+        this.cancelWeight = cancelWeight;
+        return this;
+    }
+
+    public LoadProfile symbols(int symbols) {
+        if (symbols <= 0) throw new IllegalArgumentException("at least one symbol: " + symbols);
+        this.symbols = symbols;
+        return this;
+    }
+
+    public LoadProfile accounts(int accounts) {
+        if (accounts <= 0) throw new IllegalArgumentException("at least one account: " + accounts);
+        this.accounts = accounts;
+        return this;
+    }
+
+    public LoadProfile price(double startPrice, double tick) {
+        this.startPrice = startPrice;
+        this.tick = tick;
+        return this;
+    }
+
+    public LoadProfile midProcess(double meanReversion, double volatilityTicks) {
+        this.meanReversion = meanReversion;
+        this.volatilityTicks = volatilityTicks;
+        return this;
+    }
+
+    public LoadProfile depth(double aggressiveFraction, double meanDepth, int depthLevels) {
+        if (meanDepth < 1 || depthLevels < 1) throw new IllegalArgumentException("depth is at least one level");
+        this.aggressiveFraction = aggressiveFraction;
+        this.meanDepth = meanDepth;
+        this.depthLevels = depthLevels;
+        return this;
+    }
+
+    public LoadProfile quantity(int minQuantity, int maxQuantity) {
+        if (minQuantity <= 0 || maxQuantity < minQuantity) throw new IllegalArgumentException("bad quantity range");
+        this.minQuantity = minQuantity;
+        this.maxQuantity = maxQuantity;
+        return this;
+    }
+
+    public LoadProfile maxLiveOrders(int maxLiveOrders) {
+        this.maxLiveOrders = maxLiveOrders;
+        return this;
+    }
+
+    // name of the symbol with the given index, S000, S001, ...
+    public String symbol(int index) {
+        return String.format("S%03d", index);
+    }
+
+    public double getOrdersPerSecond() {
+        return ordersPerSecond;
+    }
+
+    public double getLimitWeight() {
+        return limitWeight;
+    }
+
+    public double getMarketWeight() {
+        return marketWeight;
+    }
+
+    public double getCancelWeight() {
+        return cancelWeight;
+    }
+
+    public int getSymbols() {
+        return symbols;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public double getStartPrice() {
+        return startPrice;
+    }
+
+    public double getTick() {
+        return tick;
+    }
+
+    public double getMeanReversion() {
+        return meanReversion;
+    }
+
+    public double getVolatilityTicks() {
+        return volatilityTicks;
+    }
+
+    public double getAggressiveFraction() {
+        return aggressiveFraction;
+    }
+
+    public double getMeanDepth() {
+        return meanDepth;
+    }
+
+    public int getDepthLevels() {
+        return depthLevels;
+    }
+
+    public int getMinQuantity() {
+        return minQuantity;
+    }
+
+    public int getMaxQuantity() {
+        return maxQuantity;
+    }
+
+    public int getMaxLiveOrders() {
+        return maxLiveOrders;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f orders/s over %d symbols and %d accounts, mix %.2f limit / %.2f market / %.2f cancel, "
+                        + "mid %.5f tick %s reversion %.2f/s vol %.1f ticks/sqrt(s), %.0f%% aggressive, depth mean %.1f of %d, qty %d-%d",
+                ordersPerSecond, symbols, accounts, limitWeight, marketWeight, cancelWeight, startPrice, tick, meanReversion,
+                volatilityTicks, aggressiveFraction * 100, meanDepth, depthLevels, minQuantity, maxQuantity);
+    }
+}
@@ -0,0 +1,136 @@
+package loadgen;
+
+import services.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  outcome of a soak: totals, the latency of the whole run, every interval sample, and a
+ *  quantity balance of everything that went into the engines.
+ *
+ *  every lot submitted either traded (once on each side), was cancelled, was dropped unfilled by a
+ *  market order, or still rests: submitted = 2 * traded + cancelled + dropped + resting. a
+ *  correct engine balances to 0; a lost update, double fill or order that rests twice under
+ *  concurrent callers shows up as an imbalance. bookQuantity, the sum of the depth the engines
+ *  publish, must equal the resting quantity for the same reason
+ */
+public class LoadReport {
+
+    long commands;
+    long newOrders;
+    long cancels;
+    // cancels of an order the flow already saw filled, never sent to the engine
+    long lateCancels;
+    // commands the engine threw on, and the first such failure
+    long rejected;
+    String firstFailure;
+    long fills;
+
+    long submittedQuantity;
+    long tradedQuantity;
+    long cancelledQuantity;
+    long droppedQuantity;
+    long restingQuantity;
+    long bookQuantity;
+    // symbols whose best bid is at or above their best ask after the run
+    int crossedBooks;
+
+    long elapsedNanos;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final List<LoadSample> samples = new ArrayList<>();
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public long getNewOrders() {
+        return newOrders;
+    }
+
+    public long getCancels() {
+        return cancels;
+    }
+
+    public long getLateCancels() {
+        return lateCancels;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public String getFirstFailure() {
+        return firstFailure;
+    }
+
+    public long getFills() {
+        return fills;
+    }
+
+    public long getSubmittedQuantity() {
+        return submittedQuantity;
+    }
+
+    public long getTradedQuantity() {
+        return tradedQuantity;
+    }
+
+    public long getCancelledQuantity() {
+        return cancelledQuantity;
+    }
+
+    public long getDroppedQuantity() {
+        return droppedQuantity;
+    }
+
+    public long getRestingQuantity() {
+        return restingQuantity;
+    }
+
+    public long getBookQuantity() {
+        return bookQuantity;
+    }
+
+    public int getCrossedBooks() {
+        return crossedBooks;
+    }
+
+    // 0 when every submitted lot is accounted for
+    public long getImbalance() {
+        return submittedQuantity - 2 * tradedQuantity - cancelledQuantity - droppedQuantity - restingQuantity;
+    }
+
+    public boolean isConsistent() {
+        return getImbalance() == 0 && bookQuantity == restingQuantity && crossedBooks == 0 && rejected == 0;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getCommandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : commands * 1e9 / elapsedNanos;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public List<LoadSample> getSamples() {
+        return samples;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d commands in %.1fs (%.0f/s): %d new, %d cancels (%d late), %d fills, %d rejected%n"
+                        + "quantity: %d submitted, %d traded, %d cancelled, %d dropped, %d resting, %d on the books, imbalance %d%n"
+                        + "%s%s%n"
+                        + "latency %s",
+                commands, elapsedNanos / 1e9, getCommandsPerSecond(), newOrders, cancels, lateCancels, fills, rejected,
+                submittedQuantity, tradedQuantity, cancelledQuantity, droppedQuantity, restingQuantity, bookQuantity, getImbalance(),
+                isConsistent() ? "consistent" : "INCONSISTENT" + (crossedBooks > 0 ? ", " + crossedBooks + " crossed books" : ""),
+                firstFailure == null ? "" : ", first failure: " + firstFailure,
+                latency.summary());
+    }
+}
@@ -0,0 +1,347 @@
+package loadgen;
+
+import model.DepthSink;
+import model.LongOrderMap;
+import model.Order;
+import model.Trade;
+import replay.FlowOrders;
+import replay.FlowRecord;
+import services.ExecutionBuffer;
+import services.LatencyHistogram;
+import services.TradingEngine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ *  drives a LoadProfile's flow into in-process engines, one per symbol, from a number of threads,
+ *  for as long as a soak needs, sampling latency, heap and GC at a fixed interval.
+ *
+ *  by default the symbols are split over the threads and every engine is only called by the one
+ *  thread that owns its symbol, as the single threaded engines require. with shared engines every
+ *  thread sends orders for every symbol, so a thread safe engine (HPBookOrder) sees concurrent
+ *  callers on one book; that is where the LoadReport's quantity balance exposes its races.
+ *
+ *  with a positive rate each thread follows its generator's Poisson arrival times and latency is
+ *  measured from the scheduled time, so a stall shows up in the commands queued behind it; at
+ *  rate 0 the threads send as fast as they can and latency is the service time
+ */
+public class LoadRunner {
+
+    // a worker hands its interval latency and counts over at least this often
+    private static final long PUBLISH_NANOS = 100_000_000;
+    // arrival spacing of the timestamps when the run is not paced
+    private static final double UNPACED_RATE = 1_000_000;
+
+    private final LoadProfile profile;
+    private final TradingEngine[] engines;
+    private final int threads;
+    private final boolean sharedEngines;
+    private boolean tradeLists;
+
+    // interval totals the workers publish into and the sampler takes out, under the runner's lock
+    private final LatencyHistogram interval = new LatencyHistogram();
+    private long intervalCommands;
+    private long intervalFills;
+
+    private volatile boolean stopped;
+
+    /**
+     *  engines gives the engine of a symbol name; with sharedEngines they must be thread safe
+     */
+    public LoadRunner(LoadProfile profile, Function<String, TradingEngine> engines, int threads, boolean sharedEngines) {
+        if (threads <= 0) throw new IllegalArgumentException("at least one thread: " + threads);
+        if (!sharedEngines && threads > profile.getSymbols()) {
+            throw new IllegalArgumentException(threads + " threads but only " + profile.getSymbols() + " symbols to split");
+        }
+        this.profile = profile;
+        this.threads = threads;
+        this.sharedEngines = sharedEngines;
+        this.engines = new TradingEngine[profile.getSymbols()];
+        for (int i = 0; i < this.engines.length; i++) {
+            this.engines[i] = engines.apply(profile.symbol(i));
+        }
+    }
+
+    // submit through addOrder(Order) and its Trade list instead of the allocation free addOrder,
+    // to see what the list API costs over a long run
+    public void setTradeLists(boolean tradeLists) {
+        this.tradeLists = tradeLists;
+    }
+
+    /**
+     *  runs for the given time, handing each sample to onSample (may be null) as it is taken
+     */
+    public LoadReport run(long durationNanos, long sampleNanos, Consumer<LoadSample> onSample) throws InterruptedException {
+        if (sampleNanos <= 0) throw new IllegalArgumentException("sample interval must be positive: " + sampleNanos);
+        boolean paced = profile.getOrdersPerSecond() > 0;
+        double rate = paced ? profile.getOrdersPerSecond() : UNPACED_RATE;
+        Worker[] workers = new Worker[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int[] symbols = symbolsOf(t);
+            double share = sharedEngines ? rate / threads : rate * symbols.length / profile.getSymbols();
+            workers[t] = new Worker(new OrderFlowGenerator(profile, t, symbols, share, 0x5EED + t), paced, start);
+        }
+        Thread[] running = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            running[t] = new Thread(workers[t], "loadgen-" + t);
+            running[t].start();
+        }
+
+        LoadReport report = new LoadReport();
+        long deadline = start + durationNanos;
+        long lastSample = start;
+        long[] gc = gcTotals();
+        while (true) {
+            long now = System.nanoTime();
+            long next = Math.min(lastSample + sampleNanos, deadline);
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            LoadSample sample = sample(now, now - lastSample, start, gc);
+            report.samples.add(sample);
+            if (onSample != null) {
+                onSample.accept(sample);
+            }
+            lastSample = now;
+            if (now >= deadline) {
+                break;
+            }
+        }
+        stopped = true;
+        for (Thread thread : running) {
+            thread.join();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        for (Worker worker : workers) {
+            worker.addTo(report);
+        }
+        checkBooks(report);
+        return report;
+    }
+
+    private int[] symbolsOf(int thread) {
+        if (sharedEngines) {
+            int[] all = new int[profile.getSymbols()];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return all;
+        }
+        int[] own = new int[(profile.getSymbols() - thread + threads - 1) / threads];
+        for (int i = 0; i < own.length; i++) own[i] = thread + i * threads;
+        return own;
+    }
+
+    private LoadSample sample(long now, long intervalNanos, long start, long[] gc) {
+        long commands, fills, p50, p99, p999, max;
+        synchronized (this) {
+            commands = intervalCommands;
+            fills = intervalFills;
+            p50 = interval.percentile(50);
+            p99 = interval.percentile(99);
+            p999 = interval.percentile(99.9);
+            max = interval.getMax();
+            interval.reset();
+            intervalCommands = 0;
+            intervalFills = 0;
+        }
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long liveHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+                liveHeap += pool.getCollectionUsage().getUsed();
+            }
+        }
+        long[] totals = gcTotals();
+        LoadSample sample = new LoadSample(now - start, intervalNanos, commands, fills, p50, p99, p999, max,
+                heapUsed, liveHeap, totals[0] - gc[0], totals[1] - gc[1]);
+        gc[0] = totals[0];
+        gc[1] = totals[1];
+        return sample;
+    }
+
+    // collections so far and their total time in ms, over all collectors
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    // what the engines publish as depth, and whether any book is left crossed
+    private void checkBooks(LoadReport report) {
+        DepthSink depth = new DepthSink(1 << 16);
+        for (TradingEngine engine : engines) {
+            depth.clear();
+            engine.getDepth(depth.capacity(), depth);
+            for (int i = 0; i < depth.getBidLevels(); i++) report.bookQuantity += depth.getBidQuantity(i);
+            for (int i = 0; i < depth.getAskLevels(); i++) report.bookQuantity += depth.getAskQuantity(i);
+            if (depth.getBidLevels() > 0 && depth.getAskLevels() > 0 && depth.getBidPrice(0) >= depth.getAskPrice(0)) {
+                report.crossedBooks++;
+            }
+        }
+    }
+
+    private synchronized void publish(LatencyHistogram latency, long commands, long fills) {
+        interval.add(latency);
+        intervalCommands += commands;
+        intervalFills += fills;
+    }
+
+    public TradingEngine getEngine(int symbol) {
+        return engines[symbol];
+    }
+
+    private final class Worker implements Runnable {
+
+        private final OrderFlowGenerator generator;
+        private final boolean paced;
+        private final long start;
+        private final FlowRecord record = new FlowRecord();
+        private final ExecutionBuffer fillBuffer = new ExecutionBuffer(1024);
+        // this thread's orders still resting, by id; one filled in full is forgotten, so its later
+        // cancel counts as a late one
+        private final LongOrderMap resting = new LongOrderMap();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        private long commands;
+        private long newOrders;
+        private long cancels;
+        private long lateCancels;
+        private long rejected;
+        private String firstFailure;
+        private long fills;
+        private long submitted;
+        private long traded;
+        private long cancelled;
+        private long dropped;
+        private long publishedCommands;
+        private long publishedFills;
+
+        Worker(OrderFlowGenerator generator, boolean paced, long start) {
+            this.generator = generator;
+            this.paced = paced;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            long nextPublish = start + PUBLISH_NANOS;
+            while (!stopped) {
+                int symbol = generator.next(record);
+                long begin;
+                if (paced) {
+                    begin = start + generator.getTime();
+                    FlowOrders.waitUntil(begin);
+                } else {
+                    begin = System.nanoTime();
+                }
+                apply(symbol);
+                long end = System.nanoTime();
+                latency.record(end - begin);
+                commands++;
+                if (end >= nextPublish) {
+                    publish();
+                    nextPublish = end + PUBLISH_NANOS;
+                }
+            }
+            publish();
+        }
+
+        private void publish() {
+            LoadRunner.this.publish(latency, commands - publishedCommands, fills - publishedFills);
+            total.add(latency);
+            latency.reset();
+            publishedCommands = commands;
+            publishedFills = fills;
+        }
+
+        // a command the engine throws on is counted and the run goes on
+        private void apply(int symbol) {
+            TradingEngine engine = engines[symbol];
+            try {
+                if (record.getAction() == FlowRecord.Action.CANCEL) {
+                    cancels++;
+                    Order order = resting.remove(record.getOrderId());
+                    if (order == null || !engine.cancelOrder(order)) {
+                        lateCancels++;
+                    } else {
+                        cancelled += order.getRemaningQuality();
+                    }
+                } else {
+                    add(engine, symbol);
+                }
+            } catch (RuntimeException e) {
+                rejected++;
+                if (firstFailure == null) {
+                    firstFailure = e.toString();
+                }
+            }
+        }
+
+        private void add(TradingEngine engine, int symbol) {
+            Order order = FlowOrders.toOrder(record, profile.symbol(symbol));
+            // HPBookOrder finds orders by their order id
+            order.setOrderId(Long.toString(record.getOrderId()));
+            newOrders++;
+            submitted += record.getQuantity();
+
+            boolean buy = record.getSide() == Order.OrderType.BUY;
+            if (tradeLists) {
+                List<Trade> trades = engine.addOrder(order);
+                fills += trades.size();
+                for (Trade trade : trades) {
+                    traded += trade.getTradeQuality();
+                    FlowOrders.filled(resting, buy ? trade.getSellId() : trade.getBuyId());
+                }
+            } else {
+                fillBuffer.clear();
+                int count = engine.addOrder(order, fillBuffer);
+                fills += count;
+                for (int i = 0; i < count; i++) {
+                    traded += fillBuffer.getQuantity(i);
+                    FlowOrders.filled(resting, buy ? fillBuffer.getSellOrderId(i) : fillBuffer.getBuyOrderId(i));
+                }
+            }
+            if (order.isResting()) {
+                resting.put(order.getId(), order);
+                generator.rested(order.getId());
+            } else {
+                dropped += order.getRemaningQuality();
+            }
+        }
+
+        // read after the thread has been joined
+        void addTo(LoadReport report) {
+            report.commands += commands;
+            report.newOrders += newOrders;
+            report.cancels += cancels;
+            report.lateCancels += lateCancels;
+            report.rejected += rejected;
+            if (report.firstFailure == null) {
+                report.firstFailure = firstFailure;
+            }
+            report.fills += fills;
+            report.submittedQuantity += submitted;
+            report.tradedQuantity += traded;
+            report.cancelledQuantity += cancelled;
+            report.droppedQuantity += dropped;
+            resting.forEach(order -> {
+                if (order.isResting()) {
+                    report.restingQuantity += order.getRemaningQuality();
+                }
+            });
+            report.latency.add(total);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package loadgen;
+
+/**
+ *  one sampling interval of a soak: throughput and latency of the commands in the interval, and
+ *  the JVM's heap and GC at its end. liveHeap is what the last collection of each heap pool left
+ *  behind; it only climbs when something keeps growing, unlike heapUsed which saws with every
+ *  young collection
+ */
+public class LoadSample {
+
+    final long elapsedNanos;
+    final long intervalNanos;
+    final long commands;
+    final long fills;
+    final long p50;
+    final long p99;
+    final long p999;
+    final long max;
+    final long heapUsed;
+    final long liveHeap;
+    final long gcCount;
+    final long gcMillis;
+
+    LoadSample(long elapsedNanos, long intervalNanos, long commands, long fills, long p50, long p99, long p999, long max,
+               long heapUsed, long liveHeap, long gcCount, long gcMillis) {
+        this.elapsedNanos = elapsedNanos;
+        this.intervalNanos = intervalNanos;
+        this.commands = commands;
+        this.fills = fills;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+        this.heapUsed = heapUsed;
+        this.liveHeap = liveHeap;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public double getCommandsPerSecond() {
+        return intervalNanos == 0 ? 0 : commands * 1e9 / intervalNanos;
+    }
+
+    public long getFills() {
+        return fills;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public long getLiveHeap() {
+        return liveHeap;
+    }
+
+    // collections and the time they took within the interval
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    static String header() {
+        return String.format("%8s %10s %8s %9s %9s %9s %9s %9s %9s %5s %7s",
+                "time s", "cmds/s", "fills", "p50 ns", "p99 ns", "p99.9 ns", "max ns", "heap MB", "live MB", "gcs", "gc ms");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%8.0f %10.0f %8d %9d %9d %9d %9d %9.1f %9.1f %5d %7d",
+                elapsedNanos / 1e9, getCommandsPerSecond(), fills, p50, p99, p999, max,
+                heapUsed / 1048576.0, liveHeap / 1048576.0, gcCount, gcMillis);
+    }
+}
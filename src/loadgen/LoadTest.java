@@ -0,0 +1,123 @@
+package loadgen;
+
+import model.Order;
+import model.TickSize;
+import replay.BinaryFlowWriter;
+import replay.FlowRecord;
+import services.HPBookOrder;
+import services.PriceLadderBook;
+import services.TradingEngine;
+import services.TradingEngineImpl;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.function.Function;
+
+/**
+ *  command line soak: runs a synthetic flow against fresh engines, printing a sample line per
+ *  interval and the LoadReport at the end; exits with 1 when the report is inconsistent.
+ *
+ *  usage: java -cp target/benchmarks.jar loadgen.LoadTest [options]
+ *    --engine E         TradingEngineImpl (default), PriceLadderBook or HPBookOrder
+ *    --threads N        driving threads, default 1
+ *    --shared           every thread drives every symbol (thread safe engines only)
+ *    --duration S       seconds to run, default 60
+ *    --sample S         seconds per sample line, default 10
+ *    --rate R           orders per second over all threads, 0 as fast as possible; default 100000
+ *    --symbols N        default 1
+ *    --accounts N       default 1000
+ *    --mix L,M,C        limit, market and cancel weights, default 0.55,0.05,0.40
+ *    --depth A,D,N      aggressive fraction, mean depth and max depth in ticks, default 0.1,5,100
+ *    --volatility V     mid volatility in ticks per square root of a second, default 20
+ *    --max-live N       cancel candidates per thread before new orders give way, default 1000000
+ *    --trade-lists      submit through the List<Trade> addOrder
+ *    --write OUT N      write N commands of one symbol's flow as a binary flow file instead
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadProfile profile = new LoadProfile()
+                .ordersPerSecond(Double.parseDouble(option(args, "--rate", "100000")))
+                .symbols(Integer.parseInt(option(args, "--symbols", "1")))
+                .accounts(Integer.parseInt(option(args, "--accounts", "1000")))
+                .midProcess(0.5, Double.parseDouble(option(args, "--volatility", "20")))
+                .maxLiveOrders(Integer.parseInt(option(args, "--max-live", "1000000")));
+        String[] mix = option(args, "--mix", "0.55,0.05,0.40").split(",");
+        profile.mix(Double.parseDouble(mix[0]), Double.parseDouble(mix[1]), Double.parseDouble(mix[2]));
+        String[] depth = option(args, "--depth", "0.1,5,100").split(",");
+        profile.depth(Double.parseDouble(depth[0]), Double.parseDouble(depth[1]), Integer.parseInt(depth[2]));
+
+        String write = option(args, "--write", null);
+        if (write != null) {
+            write(profile, write, Long.parseLong(option(args, "--write", 1, "1000000")));
+            return;
+        }
+
+        String name = option(args, "--engine", "TradingEngineImpl");
+        LoadRunner runner = new LoadRunner(profile, engines(name, profile),
+                Integer.parseInt(option(args, "--threads", "1")), flag(args, "--shared"));
+        runner.setTradeLists(flag(args, "--trade-lists"));
+        System.out.println(name + ": " + profile);
+        System.out.println(LoadSample.header());
+        LoadReport report = runner.run((long) (Double.parseDouble(option(args, "--duration", "60")) * 1e9),
+                (long) (Double.parseDouble(option(args, "--sample", "10")) * 1e9), System.out::println);
+        System.out.println(report);
+        if (!report.isConsistent()) {
+            System.exit(1);
+        }
+    }
+
+    // every limit order is taken to rest, so a replay sees a cancel of an order it filled as unknown
+    private static void write(LoadProfile profile, String file, long count) throws IOException {
+        OrderFlowGenerator generator = new OrderFlowGenerator(profile, 0, new int[] {0},
+                profile.getOrdersPerSecond() > 0 ? profile.getOrdersPerSecond() : 1_000_000, 0x5EED);
+        FlowRecord record = new FlowRecord();
+        try (BinaryFlowWriter writer = new BinaryFlowWriter(Paths.get(file), profile.symbol(0), new TickSize(profile.getTick()))) {
+            for (long i = 0; i < count; i++) {
+                generator.next(record);
+                if (record.getAction() == FlowRecord.Action.NEW && record.getTimeInForce() == Order.TimeInForce.GTC) {
+                    generator.rested(record.getOrderId());
+                }
+                writer.write(record);
+            }
+            System.out.printf("%d records of %s written to %s, replay with --reference %s%n",
+                    writer.getRecords(), profile.symbol(0), file, profile.getStartPrice());
+        }
+    }
+
+    private static Function<String, TradingEngine> engines(String name, LoadProfile profile) {
+        switch (name) {
+            case "TradingEngineImpl":
+                return TradingEngineImpl::new;
+            case "PriceLadderBook":
+                return symbol -> new PriceLadderBook(symbol, new TickSize(profile.getTick()), profile.getStartPrice(), 65536);
+            case "HPBookOrder":
+                return symbol -> new HPBookOrder();
+            default:
+                throw new IllegalArgumentException("unknown engine " + name);
+        }
+    }
+
+    private static boolean flag(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        return option(args, name, 0, defaultValue);
+    }
+
+    // the value `offset` places after the first one
+    private static String option(String[] args, String name, int offset, String defaultValue) {
+        for (int i = 0; i + 1 + offset < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1 + offset];
+            }
+        }
+        return defaultValue;
+    }
+}
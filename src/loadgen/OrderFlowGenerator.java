@@ -0,0 +1,156 @@
+package loadgen;
+
+import model.Order;
+import replay.FlowRecord;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ *  produces one stream of a LoadProfile's order flow, command by command, into a reused FlowRecord.
+ *
+ *  arrival gaps are exponential, so the stream is a Poisson process at the generator's share of
+ *  the profile rate; timestamps are nanoseconds from the start of the stream. a symbol's mid only
+ *  moves when one of its commands is drawn, by the exact Ornstein-Uhlenbeck transition over the
+ *  time since its last one, so any gap gives the right distribution without stepping through it.
+ *
+ *  cancels target orders the caller reported as resting (rested), picked at random; an order that
+ *  filled meanwhile stays a candidate, like a real client cancelling an order it has not yet seen
+ *  filled. once maxLiveOrders are pooled a new order gives way to a cancel, which bounds the book
+ *  a long soak builds up.
+ *
+ *  a generator is single threaded and deterministic for a seed; a run with several threads gives
+ *  each its own generator with its own id range (stream)
+ */
+public class OrderFlowGenerator {
+
+    // ids of stream n start above n << ID_BITS
+    private static final int ID_BITS = 40;
+
+    private final LoadProfile profile;
+    private final SplittableRandom random;
+    private final int[] symbols;
+    private final double gapNanos;
+    private final double depthContinue;
+    private final double newWeight;
+    private final double limitShare;
+
+    // per symbol of this stream: mid in ticks and when it last moved
+    private final double[] mids;
+    private final long[] midTimes;
+    private final double startTicks;
+
+    // rested order ids with their symbol, cancel candidates
+    private long[] live = new long[1024];
+    private int[] liveSymbols = new int[1024];
+    private int liveCount;
+
+    private long sequence;
+    private long time;
+    private int symbol;
+
+    public OrderFlowGenerator(LoadProfile profile, int stream, int[] symbols, double ordersPerSecond, long seed) {
+        if (symbols.length == 0) throw new IllegalArgumentException("a stream needs at least one symbol");
+        if (!(ordersPerSecond > 0)) throw new IllegalArgumentException("a stream needs a positive rate: " + ordersPerSecond);
+        this.profile = profile;
+        this.random = new SplittableRandom(seed);
+        this.symbols = symbols;
+        this.gapNanos = 1e9 / ordersPerSecond;
+        // a geometric depth of mean m continues to the next level with probability 1 - 1 / m
+        this.depthContinue = 1 - 1 / profile.getMeanDepth();
+        this.newWeight = profile.getLimitWeight() + profile.getMarketWeight();
+        this.limitShare = profile.getLimitWeight() / newWeight;
+        this.startTicks = Math.rint(profile.getStartPrice() / profile.getTick());
+        this.mids = new double[symbols.length];
+        this.midTimes = new long[symbols.length];
+        Arrays.fill(mids, startTicks);
+        this.sequence = (long) stream << ID_BITS;
+    }
+
+    /**
+     *  draws the next command; returns the index (into the profile's symbols) of its symbol.
+     *  a CANCEL carries the id of a pooled order, a NEW a fresh id
+     */
+    public int next(FlowRecord record) {
+        time += (long) (-Math.log(1 - random.nextDouble()) * gapNanos);
+        int slot = random.nextInt(symbols.length);
+        symbol = symbols[slot];
+
+        boolean cancel = liveCount > 0 && (liveCount >= profile.getMaxLiveOrders()
+                || random.nextDouble() * (newWeight + profile.getCancelWeight()) >= newWeight);
+        if (cancel) {
+            int pick = random.nextInt(liveCount);
+            long orderId = live[pick];
+            symbol = liveSymbols[pick];
+            liveCount--;
+            live[pick] = live[liveCount];
+            liveSymbols[pick] = liveSymbols[liveCount];
+            record.cancel(time, orderId);
+            return symbol;
+        }
+
+        double mid = moveMid(slot);
+        Order.OrderType side = random.nextBoolean() ? Order.OrderType.BUY : Order.OrderType.SELL;
+        int quantity = profile.getMinQuantity() + random.nextInt(profile.getMaxQuantity() - profile.getMinQuantity() + 1);
+        long accountId = 1 + random.nextInt(profile.getAccounts());
+        long orderId = ++sequence;
+        if (random.nextDouble() >= limitShare) {
+            record.newOrder(time, orderId, accountId, side, Order.OrderStrategy.MARKET, Order.TimeInForce.IOC, 0, quantity);
+            return symbol;
+        }
+        // depth from the mid, in ticks away from the other side; an aggressive order crosses it
+        long depth;
+        if (random.nextDouble() < profile.getAggressiveFraction()) {
+            depth = -random.nextInt(3);
+        } else {
+            depth = 1;
+            while (depth < profile.getDepthLevels() && random.nextDouble() < depthContinue) {
+                depth++;
+            }
+        }
+        long ticks = side == Order.OrderType.BUY ? (long) Math.floor(mid) - depth + 1 : (long) Math.ceil(mid) + depth - 1;
+        if (ticks < 1) ticks = 1;
+        record.newOrder(time, orderId, accountId, side, Order.OrderStrategy.LIMIT_ORDER, Order.TimeInForce.GTC,
+                ticks * profile.getTick(), quantity);
+        return symbol;
+    }
+
+    // exact Ornstein-Uhlenbeck step of the slot's mid to the current time, in ticks
+    private double moveMid(int slot) {
+        double dt = (time - midTimes[slot]) / 1e9;
+        midTimes[slot] = time;
+        double theta = profile.getMeanReversion();
+        double sigma = profile.getVolatilityTicks();
+        double decay = Math.exp(-theta * dt);
+        double deviation = theta > 0 ? sigma * Math.sqrt((1 - decay * decay) / (2 * theta)) : sigma * Math.sqrt(dt);
+        mids[slot] = startTicks + (mids[slot] - startTicks) * decay + deviation * gaussian();
+        return mids[slot];
+    }
+
+    // Box-Muller; one draw per call is plenty at a command's cost
+    private double gaussian() {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     *  the last NEW order now rests and may be cancelled later
+     */
+    public void rested(long orderId) {
+        if (liveCount == live.length) {
+            live = Arrays.copyOf(live, liveCount * 2);
+            liveSymbols = Arrays.copyOf(liveSymbols, liveCount * 2);
+        }
+        live[liveCount] = orderId;
+        liveSymbols[liveCount] = symbol;
+        liveCount++;
+    }
+
+    // nanoseconds from the start of the stream of the last command
+    public long getTime() {
+        return time;
+    }
+
+    public int getLiveCount() {
+        return liveCount;
+    }
+}
@@ -0,0 +1,98 @@
+package marketdata;
+
+import model.DepthSink;
+import model.Order;
+
+/**
+ *  L2 feed for a consumer on its own thread that may fall behind.
+ *
+ *  the matching thread adds updates to a pending batch conflated by level, the consumer swaps
+ *  the batch out in poll(), so however slow it is the backlog is bounded by the number of
+ *  levels that changed and it always sees the latest state of each. the lock only guards the
+ *  swap and a single put, never a listener call.
+ */
+public class ConflatedSubscription {
+
+    private final Object lock = new Object();
+
+    private LevelBatch pending = new LevelBatch();
+    private LevelBatch draining = new LevelBatch();
+
+    private DepthSink pendingRefresh;
+    private DepthSink drainingRefresh;
+    private boolean refreshPending;
+    private long refreshSequence;
+
+    // updates merged into a pending update of the same level
+    private long conflated;
+
+    ConflatedSubscription(int refreshLevels) {
+        this.pendingRefresh = new DepthSink(refreshLevels);
+        this.drainingRefresh = new DepthSink(refreshLevels);
+    }
+
+    // matching thread
+    void offer(long sequence, Order.OrderType side, double price, long quantity, int orderCount) {
+        synchronized (lock) {
+            if (!pending.put(sequence, side, price, quantity, orderCount)) {
+                conflated++;
+            }
+        }
+    }
+
+    // matching thread; a refresh covering the whole book supersedes the pending updates
+    void offerRefresh(long sequence, DepthSink depth) {
+        synchronized (lock) {
+            pendingRefresh.clear();
+            for (int i = 0; i < depth.getBidLevels(); i++) {
+                pendingRefresh.addBid(depth.getBidPrice(i), depth.getBidQuantity(i), depth.getBidOrderCount(i));
+            }
+            for (int i = 0; i < depth.getAskLevels(); i++) {
+                pendingRefresh.addAsk(depth.getAskPrice(i), depth.getAskQuantity(i), depth.getAskOrderCount(i));
+            }
+            boolean complete = depth.getBidLevels() < depth.capacity() && depth.getAskLevels() < depth.capacity();
+            if (complete) {
+                conflated += pending.size();
+                pending.clear();
+            }
+            refreshPending = true;
+            refreshSequence = sequence;
+        }
+    }
+
+    /**
+     *  delivers the pending refresh, if any, then the latest update of every level that changed
+     *  since the previous poll, in the order the levels first changed (so sequence numbers are
+     *  not ascending). call from one consumer thread; returns the number of messages
+     */
+    public int poll(MarketDataListener listener) {
+        boolean refresh;
+        long sequence;
+        synchronized (lock) {
+            LevelBatch batch = pending;
+            pending = draining;
+            draining = batch;
+            refresh = refreshPending;
+            sequence = refreshSequence;
+            if (refresh) {
+                DepthSink depth = pendingRefresh;
+                pendingRefresh = drainingRefresh;
+                drainingRefresh = depth;
+                refreshPending = false;
+            }
+        }
+        if (refresh) {
+            listener.onRefresh(sequence, drainingRefresh);
+        }
+        int updates = draining.size();
+        draining.drainTo(listener);
+        draining.clear();
+        return updates + (refresh ? 1 : 0);
+    }
+
+    public long getConflated() {
+        synchronized (lock) {
+            return conflated;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package marketdata;
+
+import model.Order;
+
+import java.util.Arrays;
+
+/**
+ *  pending level updates keyed by (side, price): a second update of a level overwrites the
+ *  first instead of queueing behind it. entries keep the order in which their level first
+ *  changed. open addressing over the entry indices, nothing is allocated once grown
+ */
+final class LevelBatch {
+
+    private static final Order.OrderType[] SIDES = Order.OrderType.values();
+
+    // entry index + 1 per hash slot, 0 when free
+    private int[] slots = new int[64];
+    private int mask = 63;
+
+    private byte[] sides = new byte[32];
+    private double[] prices = new double[32];
+    private long[] quantities = new long[32];
+    private int[] orderCounts = new int[32];
+    private long[] sequences = new long[32];
+    private int size;
+
+    /**
+     *  returns false if the update was conflated into a pending one of the same level
+     */
+    boolean put(long sequence, Order.OrderType side, double price, long quantity, int orderCount) {
+        byte s = (byte) side.ordinal();
+        int slot = slotOf(s, price);
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int i = entry - 1;
+            if (sides[i] == s && prices[i] == price) {
+                quantities[i] = quantity;
+                orderCounts[i] = orderCount;
+                sequences[i] = sequence;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == sides.length) {
+            grow();
+            slot = slotOf(s, price);
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+        }
+        sides[size] = s;
+        prices[size] = price;
+        quantities[size] = quantity;
+        orderCounts[size] = orderCount;
+        sequences[size] = sequence;
+        slots[slot] = ++size;
+        return true;
+    }
+
+    private int slotOf(byte side, double price) {
+        long h = (Double.doubleToLongBits(price) + side) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // doubles the entries and keeps the hash table at most half full
+    private void grow() {
+        int capacity = sides.length * 2;
+        sides = Arrays.copyOf(sides, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        orderCounts = Arrays.copyOf(orderCounts, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = slotOf(sides[i], prices[i]);
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = i + 1;
+        }
+    }
+
+    void drainTo(MarketDataListener listener) {
+        for (int i = 0; i < size; i++) {
+            listener.onLevelUpdate(sequences[i], SIDES[sides[i]], prices[i], quantities[i], orderCounts[i]);
+        }
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, 0);
+            size = 0;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+}
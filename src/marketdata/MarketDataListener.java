@@ -0,0 +1,17 @@
+package marketdata;
+
+import model.DepthSink;
+import model.Order;
+
+/**
+ *  consumer of the L2 feed. updates carry the absolute new aggregate of a level (quantity 0
+ *  removes it), so applying the latest update of every level is enough to stay in sync.
+ */
+public interface MarketDataListener {
+
+    void onLevelUpdate(long sequence, Order.OrderType side, double price, long quantity, int orderCount);
+
+    // the book's depth as of sequence, best levels first; replaces the consumer's image.
+    // only valid during the call
+    void onRefresh(long sequence, DepthSink depth);
+}
@@ -0,0 +1,100 @@
+package marketdata;
+
+import model.DepthSink;
+import model.Order;
+import sequencer.OrderSequencer;
+import services.LevelUpdateSink;
+import services.TradingEngine;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  incremental L2 market data for one engine.
+ *
+ *  the engine reports every level aggregate change as it adds, fills or cancels; the publisher
+ *  stamps it with a sequence number and hands it to the direct listeners (called in line on the
+ *  matching thread, they see every update) and to the conflated subscriptions (consumers on
+ *  other threads that get the latest update per level, see ConflatedSubscription).
+ *  full depth refreshes let consumers start up or recover: publishRefresh() sends one, call it
+ *  on the matching thread between commands, or schedule() it through the engine's sequencer.
+ */
+public class MarketDataPublisher implements LevelUpdateSink {
+
+    private final TradingEngine engine;
+    private final int refreshLevels;
+    private final DepthSink refresh;
+
+    private MarketDataListener[] listeners = new MarketDataListener[0];
+    private ConflatedSubscription[] subscriptions = new ConflatedSubscription[0];
+
+    private long sequence;
+
+    /**
+     *  refreshLevels is the depth per side of a refresh; make it at least the book's level count
+     *  for a full refresh
+     */
+    public MarketDataPublisher(TradingEngine engine, int refreshLevels) {
+        if (refreshLevels <= 0) {
+            throw new IllegalArgumentException("refresh needs at least one level: " + refreshLevels);
+        }
+        this.engine = engine;
+        this.refreshLevels = refreshLevels;
+        this.refresh = new DepthSink(refreshLevels);
+        engine.setLevelUpdateSink(this);
+    }
+
+    // subscribe before matching starts or from the matching thread
+
+    public void subscribe(MarketDataListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public ConflatedSubscription subscribeConflated() {
+        ConflatedSubscription subscription = new ConflatedSubscription(refreshLevels);
+        subscriptions = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        subscriptions[subscriptions.length - 1] = subscription;
+        return subscription;
+    }
+
+    @Override
+    public void onLevelUpdate(Order.OrderType side, double price, long quantity, int orderCount) {
+        long s = ++sequence;
+        for (MarketDataListener listener : listeners) {
+            listener.onLevelUpdate(s, side, price, quantity, orderCount);
+        }
+        for (ConflatedSubscription subscription : subscriptions) {
+            subscription.offer(s, side, price, quantity, orderCount);
+        }
+    }
+
+    /**
+     *  publishes the engine's depth to every subscriber; must run on the matching thread
+     *  between commands
+     */
+    public void publishRefresh() {
+        engine.getDepth(refreshLevels, refresh);
+        for (MarketDataListener listener : listeners) {
+            listener.onRefresh(sequence, refresh);
+        }
+        for (ConflatedSubscription subscription : subscriptions) {
+            subscription.offerRefresh(sequence, refresh);
+        }
+    }
+
+    /**
+     *  publishes a refresh every period, run in sequence with the order flow of the sequencer
+     *  that drives the engine, until the returned future is cancelled
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, long period, TimeUnit unit, OrderSequencer sequencer) {
+        return executor.scheduleAtFixedRate(() -> sequencer.execute(this::publishRefresh), period, period, unit);
+    }
+
+    // last sequence number issued
+    public long getSequence() {
+        return sequence;
+    }
+}
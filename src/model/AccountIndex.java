@@ -0,0 +1,120 @@
+package model;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ *  secondary index of resting orders by account.
+ *
+ *  each account's orders form a doubly linked list threaded through the orders themselves
+ *  (like OrderQueue), and only the list heads sit in a map: indexing and unlinking an order is
+ *  O(1) without allocating, and a mass cancel visits exactly the account's orders.
+ *  orders without an account (0) are not indexed. an indexed order must not change account.
+ */
+public class AccountIndex {
+
+    private final LongOrderMap heads = new LongOrderMap();
+
+    public void add(Order order) {
+        long account = order.accountId;
+        if (account == 0) {
+            return;
+        }
+        Order head = heads.get(account);
+        order.accountPrev = null;
+        if (head == null) {
+            order.accountNext = null;
+            heads.put(account, order);
+        } else {
+            // link in behind the head, the map is only written when an account gets its first order
+            Order next = head.accountNext;
+            order.accountPrev = head;
+            order.accountNext = next;
+            if (next != null) {
+                next.accountPrev = order;
+            }
+            head.accountNext = order;
+        }
+    }
+
+    public void remove(Order order) {
+        long account = order.accountId;
+        if (account == 0) {
+            return;
+        }
+        Order prev = order.accountPrev;
+        Order next = order.accountNext;
+        if (prev != null) {
+            prev.accountNext = next;
+        } else if (heads.get(account) == order) {
+            if (next != null) {
+                heads.put(account, next);
+            } else {
+                heads.remove(account);
+            }
+        } else {
+            // not indexed
+            return;
+        }
+        if (next != null) {
+            next.accountPrev = prev;
+        }
+        order.accountPrev = null;
+        order.accountNext = null;
+    }
+
+    /**
+     *  unlinks every order of the account that the filter accepts and hands it to the action,
+     *  in one walk that writes the head map at most once. returns the number of orders removed
+     */
+    public int removeIf(long accountId, Predicate<Order> filter, Consumer<Order> action) {
+        Order head = first(accountId);
+        if (head == null) {
+            return 0;
+        }
+        int removed = 0;
+        Order kept = null;
+        Order newHead = null;
+        for (Order order = head; order != null; ) {
+            Order next = order.accountNext;
+            if (filter.test(order)) {
+                order.accountPrev = null;
+                order.accountNext = null;
+                action.accept(order);
+                removed++;
+            } else {
+                // relink the survivors as they are met
+                order.accountPrev = kept;
+                if (kept == null) {
+                    newHead = order;
+                } else {
+                    kept.accountNext = order;
+                }
+                kept = order;
+            }
+            order = next;
+        }
+        if (kept != null) {
+            kept.accountNext = null;
+        }
+        if (newHead == null) {
+            heads.remove(accountId);
+        } else if (newHead != head) {
+            heads.put(accountId, newHead);
+        }
+        return removed;
+    }
+
+    // first order of the account, walk on with next(); null when it has none
+    public Order first(long accountId) {
+        return accountId == 0 ? null : heads.get(accountId);
+    }
+
+    public static Order next(Order order) {
+        return order.accountNext;
+    }
+
+    public int getAccountCount() {
+        return heads.size();
+    }
+}
@@ -0,0 +1,99 @@
+package model;
+
+/**
+ *  caller owned, reusable buffer for top-of-book depth snapshots.
+ *
+ *  the arrays are allocated once with the requested capacity; an engine fills them on
+ *  getDepth without allocating, best level first on each side.
+ */
+public class DepthSink {
+
+    private final double[] bidPrices;
+    private final long[] bidQuantities;
+    private final int[] bidOrderCounts;
+
+    private final double[] askPrices;
+    private final long[] askQuantities;
+    private final int[] askOrderCounts;
+
+    private int bidLevels;
+    private int askLevels;
+
+    public DepthSink(int capacity) {
+        bidPrices = new double[capacity];
+        bidQuantities = new long[capacity];
+        bidOrderCounts = new int[capacity];
+        askPrices = new double[capacity];
+        askQuantities = new long[capacity];
+        askOrderCounts = new int[capacity];
+    }
+
+    public void clear() {
+        bidLevels = 0;
+        askLevels = 0;
+    }
+
+    /**
+     *  appends the next bid level; returns false once the buffer is full
+     */
+    public boolean addBid(double price, long quantity, int orderCount) {
+        if (bidLevels == bidPrices.length) {
+            return false;
+        }
+        bidPrices[bidLevels] = price;
+        bidQuantities[bidLevels] = quantity;
+        bidOrderCounts[bidLevels] = orderCount;
+        bidLevels++;
+        return true;
+    }
+
+    /**
+     *  appends the next ask level; returns false once the buffer is full
+     */
+    public boolean addAsk(double price, long quantity, int orderCount) {
+        if (askLevels == askPrices.length) {
+            return false;
+        }
+        askPrices[askLevels] = price;
+        askQuantities[askLevels] = quantity;
+        askOrderCounts[askLevels] = orderCount;
+        askLevels++;
+        return true;
+    }
+
+    public int capacity() {
+        return bidPrices.length;
+    }
+
+    public int getBidLevels() {
+        return bidLevels;
+    }
+
+    public int getAskLevels() {
+        return askLevels;
+    }
+
+    public double getBidPrice(int level) {
+        return bidPrices[level];
+    }
+
+    public long getBidQuantity(int level) {
+        return bidQuantities[level];
+    }
+
+    public int getBidOrderCount(int level) {
+        return bidOrderCounts[level];
+    }
+
+    public double getAskPrice(int level) {
+        return askPrices[level];
+    }
+
+    public long getAskQuantity(int level) {
+        return askQuantities[level];
+    }
+
+    public int getAskOrderCount(int level) {
+        return askOrderCounts[level];
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+import java.util.UUID;
+
+/**
+ *  compact long ids for orders and trades.
+ *
+ *  an id is a monotonically increasing sequence in the low 48 bits with an optional node
+ *  prefix in the top 16 bits, so ids issued by different engines or shards never collide.
+ *  issuing an id is an increment, nothing is allocated; string forms are only produced
+ *  at the edge through toUuidString.
+ *
+ *  not thread safe: every single-threaded engine or shard owns its own generators.
+ */
+public class IdGenerator {
+
+    public static final int NODE_BITS = 16;
+    public static final int SEQUENCE_BITS = Long.SIZE - NODE_BITS;
+    public static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    private final int node;
+    private final long prefix;
+    private long sequence;
+
+    public IdGenerator() {
+        this(0);
+    }
+
+    public IdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("node must be in [0, " + MAX_NODE + "]: " + node);
+        }
+        this.node = node;
+        this.prefix = (long) node << SEQUENCE_BITS;
+    }
+
+    public long nextId() {
+        return prefix | (++sequence & SEQUENCE_MASK);
+    }
+
+    // last sequence handed out, 0 before the first id
+    public long getSequence() {
+        return sequence;
+    }
+
+    // continues numbering after the given sequence, e.g. when a book is rebuilt from a journal or snapshot
+    public void resetTo(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS);
+    }
+
+    public static long sequenceOf(long id) {
+        return id & SEQUENCE_MASK;
+    }
+
+    /**
+     *  UUID-style rendering for clients that need a string id, e.g. 00000000-0000-0003-0000-00000000002a
+     */
+    public static String toUuidString(long id) {
+        return new UUID(nodeOf(id), sequenceOf(id)).toString();
+    }
+}
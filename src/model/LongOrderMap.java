@@ -0,0 +1,176 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ *  long id -> Order index for a single-threaded engine.
+ *
+ *  open addressing with linear probing over two parallel arrays, so there is no boxed Long key
+ *  and no per-entry node: an entry costs one long and one reference slot.
+ *  removal shifts the following entries of the probe chain back instead of leaving tombstones,
+ *  so lookups never degrade under heavy add/cancel churn.
+ *
+ *  id 0 is reserved as the empty marker (engine ids start at 1). not thread safe.
+ */
+public class LongOrderMap {
+
+    private static final long EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Order[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongOrderMap() {
+        this(1024);
+    }
+
+    public LongOrderMap(int expectedSize) {
+        long wanted = (long) Math.ceil(expectedSize / LOAD_FACTOR);
+        int capacity = 16;
+        while (capacity < wanted && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Order[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // sequential ids would cluster in neighbouring slots, the multiply-shift spreads them over the table
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public Order get(long key) {
+        int i = slot(key);
+        long k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     *  returns the previous order for the key, or null
+     */
+    public Order put(long key, Order order) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("id 0 is reserved");
+        }
+        int i = slot(key);
+        long k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == key) {
+                Order previous = values[i];
+                values[i] = order;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = order;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     *  returns the removed order, or null if the key was not present
+     */
+    public Order remove(long key) {
+        int i = slot(key);
+        long k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == key) {
+                Order removed = values[i];
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // backward shift deletion: pull later entries of the chain into the hole when their home slot allows it
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            long k = keys[i];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(k);
+            // move k into the hole unless its home lies cyclically in (hole, i]
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!stays) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Order[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k != EMPTY) {
+                int i = slot(k);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    public void forEach(Consumer<Order> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+}
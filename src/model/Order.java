@@ -4,16 +4,43 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class Order {
 
+    // engine assigned id, 0 until the order first reaches an engine
+    long id;
     String orderId;
     String ticker;
+
+    // owner of the order for risk and mass cancel, 0 when none was given
+    long accountId;
+
+    // null keeps the original behaviour: addOrder never rests, addOrdertoBook rests until cancelled
+    TimeInForce timeInForce;
+    // engine clock time a DAY or GTD order expires at, 0 for none
+    long expireTime;
     OrderStatus orderStatus;
     OrderStrategy orderStrategy;
     long orginalQuality;
     long remaningQuality;
     double price;
+    // trade price that triggers a STOP / STOP_LIMIT order; price is the limit of a STOP_LIMIT
+    double stopPrice;
     OrderType orderType;
     long timestamp;
 
+    // intrusive links into the OrderQueue of the price level the order rests on, or of the stop
+    // price a pending stop waits on (StopBook); null when neither
+    Order prev;
+    Order next;
+    OrderQueue queue;
+
+    // intrusive links into the AccountIndex list of the order's account
+    Order accountPrev;
+    Order accountNext;
+
+    // intrusive links into a TimerWheel slot, timerSlot is -1 when not scheduled
+    Order timerPrev;
+    Order timerNext;
+    int timerSlot = -1;
+
     public synchronized  boolean reduceQuantity(long executedQuanitty){
          if(remaningQuality >= executedQuanitty){
              this.remaningQuality -= executedQuanitty;
@@ -26,6 +53,11 @@ public class Order {
         return remaningQuality <=0;
     }
 
+    // on the book, or pending in a StopBook: a working order either way
+    public boolean isResting() {
+        return queue != null;
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -37,6 +69,14 @@ public class Order {
     public Order() {
     }
 
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getOrderId() {
         return orderId;
     }
@@ -45,6 +85,30 @@ public class Order {
         this.orderId = orderId;
     }
 
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public void setTimeInForce(TimeInForce timeInForce) {
+        this.timeInForce = timeInForce;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public void setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+    }
+
     public String getTicker() {
         return ticker;
     }
@@ -93,6 +157,18 @@ public class Order {
         this.price = price;
     }
 
+    public double getStopPrice() {
+        return stopPrice;
+    }
+
+    public void setStopPrice(double stopPrice) {
+        this.stopPrice = stopPrice;
+    }
+
+    public boolean isStop() {
+        return orderStrategy == OrderStrategy.STOP || orderStrategy == OrderStrategy.STOP_LIMIT;
+    }
+
     public OrderType getOrderType() {
         return orderType;
     }
@@ -124,6 +200,23 @@ public class Order {
 
     public enum OrderStrategy {
         MARKET,
-        LIMIT_ORDER
+        LIMIT_ORDER,
+        // pending until a trade prints at its stop price, then a market order
+        STOP,
+        // pending until a trade prints at its stop price, then a limit order at its price
+        STOP_LIMIT
+    }
+
+    public enum TimeInForce {
+        // rests until cancelled
+        GTC,
+        // matches what it can now, the rest is dropped
+        IOC,
+        // matches in full now or not at all
+        FOK,
+        // rests until the engine's session end
+        DAY,
+        // rests until its expire time
+        GTD
     }
 }
@@ -0,0 +1,224 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ *  on-heap order records as a struct of arrays: one primitive array per field, all indexed by
+ *  slot. a resting order costs one element of each column (52 bytes) instead of an Order object
+ *  with its strings and references, and the heap holds a dozen arrays however many orders rest,
+ *  so a collection has almost nothing to trace. a sweep reading the remaining quantities of a
+ *  level touches one dense int column rather than one object header per order.
+ *
+ *  quantities are ints like Order's setters. the columns double when the pool is full; a released
+ *  slot goes on a free list threaded through the next column and is reused before the pool grows.
+ */
+public class OrderPool implements OrderStore {
+
+    private static final int NONE = -1;
+
+    private static final Order.OrderStrategy[] STRATEGIES = Order.OrderStrategy.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    private long[] ids;
+    private long[] accounts;
+    private long[] prices;
+    private long[] timestamps;
+    private int[] original;
+    private int[] remaining;
+    private int[] prev;
+    private int[] next;
+    // side 0 buy / 1 sell; strategy ordinal; time in force and status ordinal + 1, 0 for none
+    private byte[] sides;
+    private byte[] strategies;
+    private byte[] timesInForce;
+    private byte[] statuses;
+
+    private int highWater;
+    private int free = NONE;
+    private int size;
+
+    public OrderPool() {
+        this(1024);
+    }
+
+    public OrderPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        resize(capacity);
+    }
+
+    private void resize(int capacity) {
+        ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+        accounts = accounts == null ? new long[capacity] : Arrays.copyOf(accounts, capacity);
+        prices = prices == null ? new long[capacity] : Arrays.copyOf(prices, capacity);
+        timestamps = timestamps == null ? new long[capacity] : Arrays.copyOf(timestamps, capacity);
+        original = original == null ? new int[capacity] : Arrays.copyOf(original, capacity);
+        remaining = remaining == null ? new int[capacity] : Arrays.copyOf(remaining, capacity);
+        prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        sides = sides == null ? new byte[capacity] : Arrays.copyOf(sides, capacity);
+        strategies = strategies == null ? new byte[capacity] : Arrays.copyOf(strategies, capacity);
+        timesInForce = timesInForce == null ? new byte[capacity] : Arrays.copyOf(timesInForce, capacity);
+        statuses = statuses == null ? new byte[capacity] : Arrays.copyOf(statuses, capacity);
+    }
+
+    // taken from the free list if there is one
+    @Override
+    public long allocate() {
+        int slot;
+        if (free != NONE) {
+            slot = free;
+            free = next[slot];
+        } else {
+            if (highWater == ids.length) {
+                if (highWater == Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("order pool is full at " + highWater + " orders");
+                }
+                resize((int) Math.min((long) highWater * 2, Integer.MAX_VALUE - 8));
+            }
+            slot = highWater++;
+        }
+        // the id is 0 already, fresh or released; the other columns are left to write, so taking a
+        // slot touches two cache lines rather than one per column
+        prev[slot] = NONE;
+        next[slot] = NONE;
+        size++;
+        return slot;
+    }
+
+    @Override
+    public void release(long slot) {
+        int i = (int) slot;
+        ids[i] = 0;
+        next[i] = free;
+        free = i;
+        size--;
+    }
+
+    @Override
+    public void write(long slot, Order order) {
+        int i = (int) slot;
+        ids[i] = order.getId();
+        accounts[i] = order.getAccountId();
+        original[i] = Math.toIntExact(order.getOrginalQuality());
+        remaining[i] = Math.toIntExact(order.getRemaningQuality());
+        sides[i] = (byte) (order.getOrderType() == Order.OrderType.BUY ? 0 : 1);
+        strategies[i] = (byte) order.getOrderStrategy().ordinal();
+        timesInForce[i] = (byte) (order.getTimeInForce() == null ? 0 : order.getTimeInForce().ordinal() + 1);
+        statuses[i] = (byte) (order.getOrderStatus() == null ? 0 : order.getOrderStatus().ordinal() + 1);
+        timestamps[i] = order.getTimestamp();
+    }
+
+    @Override
+    public Order read(long slot, Order order, TickSize tickSize) {
+        int i = (int) slot;
+        order.setId(ids[i]);
+        order.setAccountId(accounts[i]);
+        order.setPrice(tickSize.toPrice(prices[i]));
+        order.setOrginalQuality(original[i]);
+        order.setRemaningQuality(remaining[i]);
+        order.setOrderType(sides[i] == 0 ? Order.OrderType.BUY : Order.OrderType.SELL);
+        order.setOrderStrategy(STRATEGIES[strategies[i]]);
+        order.setTimeInForce(timesInForce[i] == 0 ? null : TIMES_IN_FORCE[timesInForce[i] - 1]);
+        order.setOrderStatus(statuses[i] == 0 ? null : STATUSES[statuses[i] - 1]);
+        order.setTimestamp(timestamps[i]);
+        return order;
+    }
+
+    @Override
+    public long getId(long slot) {
+        return ids[(int) slot];
+    }
+
+    @Override
+    public long getAccountId(long slot) {
+        return accounts[(int) slot];
+    }
+
+    @Override
+    public long getPriceTicks(long slot) {
+        return prices[(int) slot];
+    }
+
+    @Override
+    public void setPriceTicks(long slot, long ticks) {
+        prices[(int) slot] = ticks;
+    }
+
+    @Override
+    public int getOriginalQuantity(long slot) {
+        return original[(int) slot];
+    }
+
+    @Override
+    public void setOriginalQuantity(long slot, int quantity) {
+        original[(int) slot] = quantity;
+    }
+
+    @Override
+    public int getRemainingQuantity(long slot) {
+        return remaining[(int) slot];
+    }
+
+    @Override
+    public void setRemainingQuantity(long slot, int quantity) {
+        remaining[(int) slot] = quantity;
+    }
+
+    @Override
+    public boolean isBuy(long slot) {
+        return sides[(int) slot] == 0;
+    }
+
+    @Override
+    public long getTimestamp(long slot) {
+        return timestamps[(int) slot];
+    }
+
+    // the int columns keep NONE, which widens to NIL
+    @Override
+    public long getPrev(long slot) {
+        return prev[(int) slot];
+    }
+
+    @Override
+    public void setPrev(long slot, long prev) {
+        this.prev[(int) slot] = (int) prev;
+    }
+
+    @Override
+    public long getNext(long slot) {
+        return next[(int) slot];
+    }
+
+    @Override
+    public void setNext(long slot, long next) {
+        this.next[(int) slot] = (int) next;
+    }
+
+    @Override
+    public long getHighWater() {
+        return highWater;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return 0;
+    }
+}
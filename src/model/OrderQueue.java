@@ -0,0 +1,107 @@
+package model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *  time priority queue of the orders resting at one price level.
+ *
+ *  intrusive doubly linked list: the links live in the Order itself (prev/next/queue), so an
+ *  order found through the order index can be unlinked in O(1) without scanning the level,
+ *  and offering an order allocates nothing.
+ *  an order can rest in at most one queue at a time.
+ */
+public class OrderQueue implements Iterable<Order> {
+
+    private Order head;
+    private Order tail;
+    private int size;
+
+    public void offer(Order order) {
+        if (order.queue != null) {
+            throw new IllegalStateException("order " + order.getOrderId() + " is already queued");
+        }
+        order.queue = this;
+        order.prev = tail;
+        order.next = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        size++;
+    }
+
+    public Order peek() {
+        return head;
+    }
+
+    public Order poll() {
+        Order order = head;
+        if (order != null) {
+            unlink(order);
+        }
+        return order;
+    }
+
+    /**
+     *  unlinks the order in O(1); returns false if it is not resting in this queue
+     */
+    public boolean remove(Order order) {
+        if (order.queue != this) {
+            return false;
+        }
+        unlink(order);
+        return true;
+    }
+
+    private void unlink(Order order) {
+        Order prev = order.prev;
+        Order next = order.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        order.prev = null;
+        order.next = null;
+        order.queue = null;
+        size--;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            Order cursor = head;
+
+            @Override
+            public boolean hasNext() {
+                return cursor != null;
+            }
+
+            @Override
+            public Order next() {
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                Order order = cursor;
+                cursor = order.next;
+                return order;
+            }
+        };
+    }
+}
@@ -0,0 +1,244 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ *  off-heap store of fixed size order records, addressed by a long slot.
+ *
+ *  records live in direct ByteBuffer slabs of SLAB_RECORDS each, allocated as the store grows
+ *  and never given back, so the heap only holds the slab array however many orders rest and a
+ *  collection has nothing per order to trace or copy. a released slot goes on a free list threaded
+ *  through the records' next field and is handed out again before the store grows.
+ *
+ *  a record is one 64 byte cache line:
+ *
+ *    0  id           long     engine id, 0 while the slot is free
+ *    8  account      long
+ *   16  price ticks  long
+ *   24  original     int
+ *   28  remaining    int
+ *   32  side         byte     0 buy, 1 sell
+ *   33  strategy     byte     Order.OrderStrategy ordinal
+ *   34  tif          byte     Order.TimeInForce ordinal + 1, 0 for none
+ *   35  status       byte     Order.OrderStatus ordinal + 1, 0 for none
+ *   40  timestamp    long
+ *   48  prev         long     links of the list the slot is on, NIL at either end
+ *   56  next         long
+ *
+ *  prev and next belong to whoever owns the slot (a price level queue); the store only uses next
+ *  for its free list. not thread safe.
+ */
+public class OrderSlab implements OrderStore {
+
+    public static final int RECORD_SIZE = 64;
+    static final int SLAB_BITS = 15;
+    static final int SLAB_RECORDS = 1 << SLAB_BITS;
+    private static final int SLAB_MASK = SLAB_RECORDS - 1;
+
+    private static final int ID = 0;
+    private static final int ACCOUNT = 8;
+    private static final int PRICE = 16;
+    private static final int ORIGINAL = 24;
+    private static final int REMAINING = 28;
+    private static final int SIDE = 32;
+    private static final int STRATEGY = 33;
+    private static final int TIME_IN_FORCE = 34;
+    private static final int STATUS = 35;
+    private static final int TIMESTAMP = 40;
+    private static final int PREV = 48;
+    private static final int NEXT = 56;
+
+    private static final Order.OrderStrategy[] STRATEGIES = Order.OrderStrategy.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    private ByteBuffer[] slabs = new ByteBuffer[16];
+    private int slabCount;
+    // slots below the high water mark have been handed out at least once
+    private long highWater;
+    private long free = NIL;
+    private long size;
+
+    // taken from the free list if there is one
+    @Override
+    public long allocate() {
+        long slot;
+        if (free != NIL) {
+            slot = free;
+            free = getLong(slot, NEXT);
+        } else {
+            slot = highWater;
+            if ((slot >>> SLAB_BITS) == slabCount) {
+                addSlab();
+            }
+            highWater++;
+        }
+        ByteBuffer slab = slab(slot);
+        int base = offset(slot);
+        for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+            slab.putLong(base + i, 0);
+        }
+        slab.putLong(base + PREV, NIL);
+        slab.putLong(base + NEXT, NIL);
+        size++;
+        return slot;
+    }
+
+    @Override
+    public void release(long slot) {
+        ByteBuffer slab = slab(slot);
+        int base = offset(slot);
+        slab.putLong(base + ID, 0);
+        slab.putLong(base + NEXT, free);
+        free = slot;
+        size--;
+    }
+
+    private void addSlab() {
+        if (slabCount == slabs.length) {
+            slabs = Arrays.copyOf(slabs, slabCount * 2);
+        }
+        slabs[slabCount++] = ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer slab(long slot) {
+        return slabs[(int) (slot >>> SLAB_BITS)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & SLAB_MASK) * RECORD_SIZE;
+    }
+
+    private long getLong(long slot, int field) {
+        return slab(slot).getLong(offset(slot) + field);
+    }
+
+    private void putLong(long slot, int field, long value) {
+        slab(slot).putLong(offset(slot) + field, value);
+    }
+
+    @Override
+    public void write(long slot, Order order) {
+        ByteBuffer slab = slab(slot);
+        int base = offset(slot);
+        slab.putLong(base + ID, order.getId());
+        slab.putLong(base + ACCOUNT, order.getAccountId());
+        slab.putInt(base + ORIGINAL, Math.toIntExact(order.getOrginalQuality()));
+        slab.putInt(base + REMAINING, Math.toIntExact(order.getRemaningQuality()));
+        slab.put(base + SIDE, (byte) (order.getOrderType() == Order.OrderType.BUY ? 0 : 1));
+        slab.put(base + STRATEGY, (byte) order.getOrderStrategy().ordinal());
+        slab.put(base + TIME_IN_FORCE, (byte) (order.getTimeInForce() == null ? 0 : order.getTimeInForce().ordinal() + 1));
+        slab.put(base + STATUS, (byte) (order.getOrderStatus() == null ? 0 : order.getOrderStatus().ordinal() + 1));
+        slab.putLong(base + TIMESTAMP, order.getTimestamp());
+    }
+
+    @Override
+    public Order read(long slot, Order order, TickSize tickSize) {
+        order.setId(getId(slot));
+        order.setAccountId(getAccountId(slot));
+        order.setPrice(tickSize.toPrice(getPriceTicks(slot)));
+        order.setOrginalQuality(getOriginalQuantity(slot));
+        order.setRemaningQuality(getRemainingQuantity(slot));
+        order.setOrderType(isBuy(slot) ? Order.OrderType.BUY : Order.OrderType.SELL);
+        order.setOrderStrategy(STRATEGIES[slab(slot).get(offset(slot) + STRATEGY)]);
+        int timeInForce = slab(slot).get(offset(slot) + TIME_IN_FORCE);
+        order.setTimeInForce(timeInForce == 0 ? null : TIMES_IN_FORCE[timeInForce - 1]);
+        int status = slab(slot).get(offset(slot) + STATUS);
+        order.setOrderStatus(status == 0 ? null : STATUSES[status - 1]);
+        order.setTimestamp(getTimestamp(slot));
+        return order;
+    }
+
+    @Override
+    public long getId(long slot) {
+        return getLong(slot, ID);
+    }
+
+    @Override
+    public long getAccountId(long slot) {
+        return getLong(slot, ACCOUNT);
+    }
+
+    @Override
+    public long getPriceTicks(long slot) {
+        return getLong(slot, PRICE);
+    }
+
+    @Override
+    public void setPriceTicks(long slot, long ticks) {
+        putLong(slot, PRICE, ticks);
+    }
+
+    @Override
+    public int getOriginalQuantity(long slot) {
+        return slab(slot).getInt(offset(slot) + ORIGINAL);
+    }
+
+    @Override
+    public void setOriginalQuantity(long slot, int quantity) {
+        slab(slot).putInt(offset(slot) + ORIGINAL, quantity);
+    }
+
+    @Override
+    public int getRemainingQuantity(long slot) {
+        return slab(slot).getInt(offset(slot) + REMAINING);
+    }
+
+    @Override
+    public void setRemainingQuantity(long slot, int quantity) {
+        slab(slot).putInt(offset(slot) + REMAINING, quantity);
+    }
+
+    @Override
+    public boolean isBuy(long slot) {
+        return slab(slot).get(offset(slot) + SIDE) == 0;
+    }
+
+    @Override
+    public long getTimestamp(long slot) {
+        return getLong(slot, TIMESTAMP);
+    }
+
+    @Override
+    public long getPrev(long slot) {
+        return getLong(slot, PREV);
+    }
+
+    @Override
+    public void setPrev(long slot, long prev) {
+        putLong(slot, PREV, prev);
+    }
+
+    @Override
+    public long getNext(long slot) {
+        return getLong(slot, NEXT);
+    }
+
+    @Override
+    public void setNext(long slot, long next) {
+        putLong(slot, NEXT, next);
+    }
+
+    @Override
+    public long getHighWater() {
+        return highWater;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    // direct memory held by the slabs
+    @Override
+    public long getOffHeapBytes() {
+        return (long) slabCount * SLAB_RECORDS * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,71 @@
+package model;
+
+/**
+ *  order records addressed by a long slot instead of by object reference: what a book keeps of a
+ *  resting order, with prev / next links for the price level queue the slot is on.
+ *
+ *  OrderSlab keeps the records off the heap, OrderPool in parallel on-heap arrays; either way there
+ *  is no object per order. a free slot reads as id 0 and slots are reused once released.
+ *  not thread safe.
+ */
+public interface OrderStore {
+
+    long NIL = -1;
+
+    // a slot with id 0 and NIL links; its other fields are only defined once written
+    long allocate();
+
+    // gives the slot back; it must no longer be linked anywhere
+    void release(long slot);
+
+    // copies the order's fields into the slot, all but the price, which goes in as ticks
+    // (setPriceTicks); the links are left alone
+    void write(long slot, Order order);
+
+    // fills an Order with the slot's fields, e.g. to hand a resting order out to a caller
+    Order read(long slot, Order order, TickSize tickSize);
+
+    long getId(long slot);
+
+    long getAccountId(long slot);
+
+    long getPriceTicks(long slot);
+
+    void setPriceTicks(long slot, long ticks);
+
+    int getOriginalQuantity(long slot);
+
+    void setOriginalQuantity(long slot, int quantity);
+
+    int getRemainingQuantity(long slot);
+
+    void setRemainingQuantity(long slot, int quantity);
+
+    boolean isBuy(long slot);
+
+    long getTimestamp(long slot);
+
+    long getPrev(long slot);
+
+    void setPrev(long slot, long prev);
+
+    long getNext(long slot);
+
+    void setNext(long slot, long next);
+
+    // whether the slot holds an order, for a scan up to getHighWater
+    default boolean isUsed(long slot) {
+        return getId(slot) != 0;
+    }
+
+    // every slot below it has been handed out at least once
+    long getHighWater();
+
+    long size();
+
+    // whether the records live outside the heap; the slot index of a book follows the store
+    boolean isOffHeap();
+
+    // direct memory held by the store, 0 for an on-heap one
+    long getOffHeapBytes();
+}
@@ -1,51 +1,90 @@
 package model;
 
-import java.util.List;
-
+/**
+ *  all orders resting at one price on one side of the book, in time priority.
+ *
+ *  the level keeps its aggregates (total remaining quantity and order count) up to date on
+ *  every add, fill and cancel, so depth reads never walk the queue.
+ *  the remaining quantity of a resting order must only change through this level.
+ */
 public class PriceLevel {
 
     String ticker;
     double priceLevel;
-    int quantity;
-    List<Order> orders;
+    long quantity;
+    OrderQueue orders = new OrderQueue();
 
 
-    public PriceLevel(String ticker, double priceLevel, int quantity, List<Order> orders) {
+    public PriceLevel(String ticker, double priceLevel) {
         this.ticker = ticker;
         this.priceLevel = priceLevel;
-        this.quantity = quantity;
-        this.orders = orders;
     }
 
-    public String getTicker() {
-        return ticker;
+    public void add(Order order) {
+        orders.offer(order);
+        quantity += order.getRemaningQuality();
     }
 
-    public void setTicker(String ticker) {
-        this.ticker = ticker;
+    /**
+     *  executes quantity against a resting order of this level and unlinks it once it is filled.
+     *  returns true if the order was filled and removed
+     */
+    public boolean fill(Order order, long executedQuantity) {
+        if (order.reduceQuantity(executedQuantity)) {
+            quantity -= executedQuantity;
+        }
+        if (order.isOrderFilled()) {
+            orders.remove(order);
+            return true;
+        }
+        return false;
     }
 
-    public double getPriceLevel() {
-        return priceLevel;
+    /**
+     *  takes quantity off a resting order without moving it, so it keeps its time priority.
+     *  the quantity must be below the order's remaining quantity
+     */
+    public void reduce(Order order, long reducedQuantity) {
+        if (reducedQuantity <= 0 || reducedQuantity >= order.getRemaningQuality()) {
+            throw new IllegalArgumentException("cannot reduce " + order.getRemaningQuality() + " by " + reducedQuantity);
+        }
+        order.reduceQuantity(reducedQuantity);
+        quantity -= reducedQuantity;
     }
 
-    public void setPriceLevel(double priceLevel) {
-        this.priceLevel = priceLevel;
+    public boolean remove(Order order) {
+        if (!orders.remove(order)) {
+            return false;
+        }
+        quantity -= order.getRemaningQuality();
+        return true;
     }
 
-    public int getQuantity() {
-        return quantity;
+    public Order peek() {
+        return orders.peek();
     }
 
-    public void setQuantity(int quantity) {
-        this.quantity = quantity;
+    public boolean isEmpty() {
+        return orders.isEmpty();
     }
 
-    public List<Order> getOrders() {
-        return orders;
+    public String getTicker() {
+        return ticker;
     }
 
-    public void setOrders(List<Order> orders) {
-        this.orders = orders;
+    public double getPriceLevel() {
+        return priceLevel;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    public OrderQueue getOrders() {
+        return orders;
     }
 }
@@ -0,0 +1,188 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *  long id -> long slot index, the companion of an OrderStore.
+ *
+ *  the same open addressing with linear probing and backward shift deletion as LongOrderMap, but
+ *  the key / value pairs sit side by side in ByteBuffer segments: direct ones by default, so the
+ *  table takes no heap beyond the segment array, or heap ones next to an on-heap OrderPool.
+ *  growing builds a table of twice the size and rehashes into it; the old segments go once their
+ *  buffers are collected.
+ *
+ *  id 0 is reserved as the empty marker. not thread safe.
+ */
+public class SlotIndex {
+
+    private static final long EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int ENTRY_SIZE = 16;
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_ENTRIES = 1 << SEGMENT_BITS;
+
+    private final boolean offHeap;
+    private ByteBuffer[] segments;
+    private long mask;
+    private long size;
+    private long resizeAt;
+
+    public SlotIndex() {
+        this(1024);
+    }
+
+    public SlotIndex(long expectedSize) {
+        this(expectedSize, true);
+    }
+
+    public SlotIndex(long expectedSize, boolean offHeap) {
+        this.offHeap = offHeap;
+        long wanted = (long) Math.ceil(expectedSize / LOAD_FACTOR);
+        long capacity = 16;
+        while (capacity < wanted) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    // new buffers come zeroed, which is every entry EMPTY
+    private void allocate(long capacity) {
+        int count = (int) Math.max(1, capacity >>> SEGMENT_BITS);
+        int entries = (int) Math.min(capacity, SEGMENT_ENTRIES);
+        segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            ByteBuffer segment = offHeap ? ByteBuffer.allocateDirect(entries * ENTRY_SIZE) : ByteBuffer.allocate(entries * ENTRY_SIZE);
+            segments[i] = segment.order(ByteOrder.nativeOrder());
+        }
+        mask = capacity - 1;
+        resizeAt = (long) (capacity * LOAD_FACTOR);
+    }
+
+    private long home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 32)) & mask;
+    }
+
+    private long keyAt(long i) {
+        return segments[(int) (i >>> SEGMENT_BITS)].getLong((int) (i & (SEGMENT_ENTRIES - 1)) * ENTRY_SIZE);
+    }
+
+    private long valueAt(long i) {
+        return segments[(int) (i >>> SEGMENT_BITS)].getLong((int) (i & (SEGMENT_ENTRIES - 1)) * ENTRY_SIZE + Long.BYTES);
+    }
+
+    private void set(long i, long key, long value) {
+        ByteBuffer segment = segments[(int) (i >>> SEGMENT_BITS)];
+        int offset = (int) (i & (SEGMENT_ENTRIES - 1)) * ENTRY_SIZE;
+        segment.putLong(offset, key);
+        segment.putLong(offset + Long.BYTES, value);
+    }
+
+    /**
+     *  the slot of the id, OrderStore.NIL if it is not present
+     */
+    public long get(long key) {
+        long i = home(key);
+        long k;
+        while ((k = keyAt(i)) != EMPTY) {
+            if (k == key) {
+                return valueAt(i);
+            }
+            i = (i + 1) & mask;
+        }
+        return OrderStore.NIL;
+    }
+
+    /**
+     *  returns the previous slot of the id, or OrderStore.NIL
+     */
+    public long put(long key, long slot) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("id 0 is reserved");
+        }
+        long i = home(key);
+        long k;
+        while ((k = keyAt(i)) != EMPTY) {
+            if (k == key) {
+                long previous = valueAt(i);
+                set(i, key, slot);
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        set(i, key, slot);
+        if (++size > resizeAt) {
+            rehash((mask + 1) << 1);
+        }
+        return OrderStore.NIL;
+    }
+
+    /**
+     *  returns the removed slot, or OrderStore.NIL if the id was not present
+     */
+    public long remove(long key) {
+        long i = home(key);
+        long k;
+        while ((k = keyAt(i)) != EMPTY) {
+            if (k == key) {
+                long removed = valueAt(i);
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+            i = (i + 1) & mask;
+        }
+        return OrderStore.NIL;
+    }
+
+    // see LongOrderMap.shiftBack
+    private void shiftBack(long hole) {
+        long i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            long k = keyAt(i);
+            if (k == EMPTY) {
+                break;
+            }
+            long home = home(k);
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!stays) {
+                set(hole, k, valueAt(i));
+                hole = i;
+            }
+        }
+        set(hole, EMPTY, 0);
+    }
+
+    private void rehash(long capacity) {
+        ByteBuffer[] old = segments;
+        long oldCapacity = mask + 1;
+        allocate(capacity);
+        for (long j = 0; j < oldCapacity; j++) {
+            ByteBuffer segment = old[(int) (j >>> SEGMENT_BITS)];
+            int offset = (int) (j & (SEGMENT_ENTRIES - 1)) * ENTRY_SIZE;
+            long k = segment.getLong(offset);
+            if (k != EMPTY) {
+                long i = home(k);
+                while (keyAt(i) != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                set(i, k, segment.getLong(offset + Long.BYTES));
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long capacity() {
+        return mask + 1;
+    }
+
+    // direct memory held by the table, 0 for a heap one
+    public long getOffHeapBytes() {
+        return offHeap ? (mask + 1) * ENTRY_SIZE : 0;
+    }
+}
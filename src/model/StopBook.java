@@ -0,0 +1,109 @@
+package model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ *  pending stop and stop limit orders of one symbol, by trigger price.
+ *
+ *  a buy stop triggers once a trade prints at or above its stop price, a sell stop at or below,
+ *  so each side is a sorted map from stop price to the orders waiting there in time priority:
+ *  buy stops ascending, sell stops descending. the stops crossed by a range of trade prices are
+ *  always the head of each map, and trigger() pops just that range, one map entry per stop price
+ *  however many orders wait on it. pending stops are never looked at otherwise.
+ *
+ *  a pending stop is queued through the same intrusive links as a resting order (OrderQueue), so
+ *  it cannot rest on the book at the same time. not thread safe.
+ */
+public class StopBook {
+
+    private final TreeMap<Double, OrderQueue> buyStops = new TreeMap<>();
+    private final TreeMap<Double, OrderQueue> sellStops = new TreeMap<>(Collections.reverseOrder());
+
+    // pending stops by engine id, for cancels
+    private final LongOrderMap byId = new LongOrderMap(64);
+
+    public void add(Order order) {
+        TreeMap<Double, OrderQueue> stops = order.getOrderType() == Order.OrderType.BUY ? buyStops : sellStops;
+        stops.computeIfAbsent(order.getStopPrice(), k -> new OrderQueue()).offer(order);
+        byId.put(order.getId(), order);
+    }
+
+    public Order get(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     *  takes the pending stop with the engine id off its trigger price, returns null when there
+     *  is none
+     */
+    public Order remove(long id) {
+        Order order = byId.remove(id);
+        if (order == null) {
+            return null;
+        }
+        TreeMap<Double, OrderQueue> stops = order.getOrderType() == Order.OrderType.BUY ? buyStops : sellStops;
+        Double stopPrice = order.getStopPrice();
+        OrderQueue queue = stops.get(stopPrice);
+        queue.remove(order);
+        if (queue.isEmpty()) {
+            stops.remove(stopPrice);
+        }
+        return order;
+    }
+
+    /**
+     *  moves every stop crossed by trades printed between low and high to the back of triggered:
+     *  buy stops at or below high, then sell stops at or above low, each side in stop price and
+     *  then time order. returns how many were moved
+     */
+    public int trigger(double low, double high, OrderQueue triggered) {
+        int count = 0;
+        while (!buyStops.isEmpty() && buyStops.firstKey() <= high) {
+            count += drain(buyStops.pollFirstEntry().getValue(), triggered);
+        }
+        while (!sellStops.isEmpty() && sellStops.firstKey() >= low) {
+            count += drain(sellStops.pollFirstEntry().getValue(), triggered);
+        }
+        return count;
+    }
+
+    private int drain(OrderQueue queue, OrderQueue triggered) {
+        int count = 0;
+        Order order;
+        while ((order = queue.poll()) != null) {
+            byId.remove(order.getId());
+            triggered.offer(order);
+            count++;
+        }
+        return count;
+    }
+
+    // every pending stop, buy stops first, each side in trigger order
+    public void forEach(Consumer<Order> action) {
+        for (OrderQueue queue : buyStops.values()) queue.forEach(action);
+        for (OrderQueue queue : sellStops.values()) queue.forEach(action);
+    }
+
+    // lowest buy stop price, NaN when there is none
+    public double getNextBuyStop() {
+        Map.Entry<Double, OrderQueue> first = buyStops.firstEntry();
+        return first == null ? Double.NaN : first.getKey();
+    }
+
+    // highest sell stop price, NaN when there is none
+    public double getNextSellStop() {
+        Map.Entry<Double, OrderQueue> first = sellStops.firstEntry();
+        return first == null ? Double.NaN : first.getKey();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+}
@@ -0,0 +1,42 @@
+package model;
+
+/**
+ *  per instrument price increment, converts between double prices and integer ticks.
+ *  e.g. USDSGD with tick 0.0001: 1.3512 <-> 13512
+ */
+public class TickSize {
+
+    // tolerance when checking that a double price sits on the tick grid (1.3 vs 1.2999999)
+    private static final double EPSILON = 1e-6;
+
+    private final double tick;
+
+    // ticks per unit of price; dividing by it gives the nearest double to the tick price (1.3512, not 1.3512000000000002)
+    private final double ticksPerUnit;
+
+    public TickSize(double tick) {
+        if (!(tick > 0)) {
+            throw new IllegalArgumentException("tick size must be positive: " + tick);
+        }
+        this.tick = tick;
+        double perUnit = 1 / tick;
+        this.ticksPerUnit = Math.abs(perUnit - Math.rint(perUnit)) < EPSILON ? Math.rint(perUnit) : perUnit;
+    }
+
+    public long toTicks(double price) {
+        double ticks = price * ticksPerUnit;
+        long rounded = Math.round(ticks);
+        if (Math.abs(ticks - rounded) > EPSILON) {
+            throw new IllegalArgumentException("price " + price + " is not a multiple of tick " + tick);
+        }
+        return rounded;
+    }
+
+    public double toPrice(long ticks) {
+        return ticks / ticksPerUnit;
+    }
+
+    public double getTick() {
+        return tick;
+    }
+}
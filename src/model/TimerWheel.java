@@ -0,0 +1,216 @@
+package model;
+
+import java.util.function.Consumer;
+
+/**
+ *  hierarchical timing wheel of order expiries on the engine clock.
+ *
+ *  8 levels of 256 slots, one byte of the 64 bit tick each, so any tick fits without an
+ *  overflow list. an order goes to the level of the highest byte in which its expiry differs
+ *  from the current tick and to the slot of that byte; when the clock reaches the start of a
+ *  slot's range the slot is cascaded down a level, and level 0 slots expire. each order is
+ *  scheduled, cascaded at most once per level and expired in O(1); nothing ever scans the book.
+ *
+ *  slots are intrusive doubly linked lists through the orders (like OrderQueue), so scheduling
+ *  and cancelling allocate nothing. advance() jumps straight to the next occupied slot through
+ *  a per level occupancy bitmap, so idle time costs nothing either. not thread safe.
+ */
+public class TimerWheel {
+
+    static final int LEVELS = 8;
+    static final int SLOTS = 256;
+
+    // slot heads per level, allocated on first use
+    private final Order[][] slots = new Order[LEVELS][];
+    // occupied slots per level, 4 x 64 bits
+    private final long[][] occupied = new long[LEVELS][SLOTS / 64];
+    private final int[] levelCounts = new int[LEVELS];
+
+    private long now;
+    private int size;
+
+    public TimerWheel() {
+        this(0);
+    }
+
+    public TimerWheel(long now) {
+        this.now = now;
+    }
+
+    /**
+     *  schedules the order to expire at the tick; returns false, leaving it unscheduled, when
+     *  that tick is not after the current one
+     */
+    public boolean schedule(Order order, long expireAt) {
+        if (order.timerSlot >= 0) {
+            throw new IllegalStateException("order " + order.getOrderId() + " is already scheduled");
+        }
+        if (expireAt <= now) {
+            return false;
+        }
+        order.expireTime = expireAt;
+        insert(order, expireAt);
+        size++;
+        return true;
+    }
+
+    private void insert(Order order, long expireAt) {
+        long diff = expireAt ^ now;
+        // an order cascaded in the tick it expires in goes to the level 0 slot about to expire
+        int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) >>> 3;
+        int slot = (int) (expireAt >>> (level << 3)) & (SLOTS - 1);
+        Order[] heads = slots[level];
+        if (heads == null) {
+            heads = new Order[SLOTS];
+            slots[level] = heads;
+        }
+        Order head = heads[slot];
+        order.timerPrev = null;
+        order.timerNext = head;
+        if (head != null) {
+            head.timerPrev = order;
+        } else {
+            occupied[level][slot >>> 6] |= 1L << slot;
+        }
+        heads[slot] = order;
+        order.timerSlot = level * SLOTS + slot;
+        levelCounts[level]++;
+    }
+
+    // unschedules the order if it is scheduled
+    public void cancel(Order order) {
+        if (order.timerSlot < 0) {
+            return;
+        }
+        unlink(order);
+        size--;
+    }
+
+    private void unlink(Order order) {
+        int level = order.timerSlot / SLOTS;
+        int slot = order.timerSlot % SLOTS;
+        Order prev = order.timerPrev;
+        Order next = order.timerNext;
+        if (prev != null) {
+            prev.timerNext = next;
+        } else {
+            slots[level][slot] = next;
+            if (next == null) {
+                occupied[level][slot >>> 6] &= ~(1L << slot);
+            }
+        }
+        if (next != null) {
+            next.timerPrev = prev;
+        }
+        order.timerPrev = null;
+        order.timerNext = null;
+        order.timerSlot = -1;
+        levelCounts[level]--;
+    }
+
+    /**
+     *  moves the clock forward to the tick and hands every order expiring at or before it to
+     *  the action, in expiry order; returns how many expired. the clock never moves back
+     */
+    public int advance(long to, Consumer<Order> expired) {
+        int count = 0;
+        while (size > 0) {
+            long next = nextEvent();
+            if (next > to) {
+                break;
+            }
+            now = next;
+            // cascade from the top so an order can fall through several levels in one tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((now & ((1L << (level << 3)) - 1)) == 0) {
+                    cascade(level, (int) (now >>> (level << 3)) & (SLOTS - 1));
+                }
+            }
+            count += expire((int) now & (SLOTS - 1), expired);
+        }
+        if (to > now) {
+            now = to;
+        }
+        return count;
+    }
+
+    private void cascade(int level, int slot) {
+        Order[] heads = slots[level];
+        if (heads == null || heads[slot] == null) {
+            return;
+        }
+        Order order = heads[slot];
+        heads[slot] = null;
+        occupied[level][slot >>> 6] &= ~(1L << slot);
+        while (order != null) {
+            Order next = order.timerNext;
+            levelCounts[level]--;
+            insert(order, order.expireTime);
+            order = next;
+        }
+    }
+
+    private int expire(int slot, Consumer<Order> expired) {
+        Order[] heads = slots[0];
+        if (heads == null) {
+            return 0;
+        }
+        int count = 0;
+        Order order;
+        while ((order = heads[slot]) != null) {
+            unlink(order);
+            size--;
+            count++;
+            expired.accept(order);
+        }
+        return count;
+    }
+
+    // the earliest tick at which an occupied slot is due: level 0 slots expire, higher ones cascade
+    private long nextEvent() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelCounts[level] == 0) {
+                continue;
+            }
+            int shift = level << 3;
+            int current = (int) (now >>> shift) & (SLOTS - 1);
+            int slot = nextOccupied(occupied[level], current + 1);
+            if (slot < 0) {
+                continue;
+            }
+            long upper = level == LEVELS - 1 ? 0 : (now >>> (shift + 8)) << (shift + 8);
+            long at = upper | ((long) slot << shift);
+            if (at < next) {
+                next = at;
+            }
+        }
+        return next;
+    }
+
+    // first set bit at or after from, -1 if none
+    private static int nextOccupied(long[] bits, int from) {
+        if (from >= SLOTS) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long w = bits[word] & (-1L << from);
+        while (true) {
+            if (w != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(w);
+            }
+            if (++word == bits.length) {
+                return -1;
+            }
+            w = bits[word];
+        }
+    }
+
+    public long getTime() {
+        return now;
+    }
+
+    public int size() {
+        return size;
+    }
+}
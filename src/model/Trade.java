@@ -1,6 +1,11 @@
 package model;
 
 public class Trade {
+    long id;
+    long sellId;
+    long buyId;
+
+    // string ids are either the client's order ids or rendered from the long ids on first request
     String tradeId;
     String sellOderId;
     String buyOrderId;
@@ -18,9 +23,33 @@ public class Trade {
         this.timestamp = timestamp;
     }
 
+    public Trade(long id, long sellId, long buyId, String sellOderId, String buyOrderId, long tradeQuality, double price, long timestamp) {
+        this.id = id;
+        this.sellId = sellId;
+        this.buyId = buyId;
+        this.sellOderId = sellOderId;
+        this.buyOrderId = buyOrderId;
+        this.tradeQuality = tradeQuality;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
     public Trade() {
     }
 
+    // overwrites every field, used to recycle preallocated trades
+    public void set(long id, long sellId, long buyId, long tradeQuality, double price, long timestamp) {
+        this.id = id;
+        this.sellId = sellId;
+        this.buyId = buyId;
+        this.tradeId = null;
+        this.sellOderId = null;
+        this.buyOrderId = null;
+        this.tradeQuality = tradeQuality;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
     public Trade(String sellOderId, String buyOrderId, long tradeQuality, long timestamp, double price) {
         this.sellOderId = sellOderId;
         this.buyOrderId = buyOrderId;
@@ -29,7 +58,22 @@ public class Trade {
         this.price = price;
     }
 
+    public long getId() {
+        return id;
+    }
+
+    public long getSellId() {
+        return sellId;
+    }
+
+    public long getBuyId() {
+        return buyId;
+    }
+
     public String getTradeId() {
+        if (tradeId == null && id != 0) {
+            tradeId = IdGenerator.toUuidString(id);
+        }
         return tradeId;
     }
 
@@ -38,6 +82,9 @@ public class Trade {
     }
 
     public String getSellOderId() {
+        if (sellOderId == null && sellId != 0) {
+            sellOderId = IdGenerator.toUuidString(sellId);
+        }
         return sellOderId;
     }
 
@@ -46,6 +93,9 @@ public class Trade {
     }
 
     public String getBuyOrderId() {
+        if (buyOrderId == null && buyId != 0) {
+            buyOrderId = IdGenerator.toUuidString(buyId);
+        }
         return buyOrderId;
     }
 
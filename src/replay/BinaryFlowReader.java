@@ -0,0 +1,95 @@
+package replay;
+
+import model.TickSize;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  reads a flow written by BinaryFlowWriter through read only memory mapped windows. a window is
+ *  a whole number of records, so files far larger than the heap (or 2GB) stream through one
+ *  mapping at a time and nothing but the reused FlowRecord is created per record
+ */
+public class BinaryFlowReader implements FlowReader {
+
+    // records per mapped window, 40MB
+    static final int WINDOW_RECORDS = 1 << 20;
+
+    private final FileChannel channel;
+    private final String symbol;
+    private final TickSize tickSize;
+    private final long records;
+
+    private MappedByteBuffer window;
+    // index of the first record of the window, and of the next record to read
+    private long windowFirst;
+    private long next;
+
+    public BinaryFlowReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FlowFile.HEADER_SIZE) {
+                throw new IllegalArgumentException(file + " is not a flow file");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FlowFile.HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != FlowFile.MAGIC || header.getInt() != FlowFile.VERSION) {
+                throw new IllegalArgumentException(file + " is not a version " + FlowFile.VERSION + " flow file");
+            }
+            tickSize = new TickSize(header.getDouble());
+            byte[] name = new byte[FlowFile.SYMBOL_LENGTH];
+            header.get(name);
+            int length = 0;
+            while (length < name.length && name[length] != 0) length++;
+            symbol = new String(name, 0, length, StandardCharsets.US_ASCII);
+            // a torn last record is left out
+            records = (size - FlowFile.HEADER_SIZE) / FlowFile.RECORD_SIZE;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next(FlowRecord record) throws IOException {
+        if (next == records) {
+            return false;
+        }
+        if (window == null || next - windowFirst == WINDOW_RECORDS) {
+            windowFirst = next;
+            long count = Math.min(WINDOW_RECORDS, records - next);
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    FlowFile.HEADER_SIZE + next * FlowFile.RECORD_SIZE, count * FlowFile.RECORD_SIZE);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        long priceTicks = FlowFile.read(window, (int) (next - windowFirst) * FlowFile.RECORD_SIZE, record);
+        record.price = tickSize.toPrice(priceTicks);
+        next++;
+        return true;
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public TickSize getTickSize() {
+        return tickSize;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
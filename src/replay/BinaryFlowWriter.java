@@ -0,0 +1,70 @@
+package replay;
+
+import model.Order;
+import model.TickSize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  writes a recorded flow in the binary layout of FlowFile, e.g. to convert a CSV recording once
+ *  and replay the compact form from then on. records are buffered and written sequentially
+ */
+public class BinaryFlowWriter implements Closeable {
+
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final TickSize tickSize;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(FlowFile.RECORD_SIZE * BUFFER_RECORDS)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private long records;
+
+    public BinaryFlowWriter(Path file, String symbol, TickSize tickSize) throws IOException {
+        byte[] name = symbol.getBytes(StandardCharsets.US_ASCII);
+        if (name.length > FlowFile.SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("symbol " + symbol + " is longer than " + FlowFile.SYMBOL_LENGTH + " bytes");
+        }
+        this.tickSize = tickSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(FlowFile.MAGIC);
+        buffer.putInt(FlowFile.VERSION);
+        buffer.putDouble(tickSize.getTick());
+        buffer.put(name);
+        buffer.position(FlowFile.HEADER_SIZE);
+    }
+
+    public void write(FlowRecord record) throws IOException {
+        if (buffer.remaining() < FlowFile.RECORD_SIZE) {
+            flush();
+        }
+        boolean priced = record.action != FlowRecord.Action.CANCEL && record.strategy != Order.OrderStrategy.MARKET;
+        FlowFile.write(buffer, record, priced ? tickSize.toTicks(record.price) : 0);
+        records++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
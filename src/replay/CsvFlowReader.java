@@ -0,0 +1,226 @@
+package replay;
+
+import model.Order;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  reads a CSV recording through read only memory mapped windows, parsing the bytes in place:
+ *  no String, no line object, only the reused FlowRecord.
+ *
+ *    timestamp,action,orderId,side,type,price,quantity,timeInForce,accountId
+ *    1697443200000000000,NEW,1001,BUY,LIMIT,1.3501,100,GTC,7
+ *    1697443200000150000,AMEND,1001,,,1.3502,80
+ *    1697443200000300000,CANCEL,1001
+ *
+ *  timestamps are nanoseconds. action NEW, CANCEL or AMEND (new price and total quantity); side
+ *  BUY or SELL; type LIMIT or MARKET; time in force GTC, IOC, FOK or DAY, GTC when empty or left
+ *  out, and so is a missing account id (0). lines that do not start with a digit, such as a
+ *  header or # comments, are skipped. a window ends at a line start, a line must fit one window
+ */
+public class CsvFlowReader implements FlowReader {
+
+    static final int WINDOW_SIZE = 64 << 20;
+
+    private static final double[] POWERS_OF_TEN = new double[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final FileChannel channel;
+    private final String symbol;
+    private final long size;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private int limit;
+    private long line;
+
+    // end of the line being parsed, and the parse position within it
+    private int end;
+    private int cursor;
+
+    public CsvFlowReader(Path file, String symbol) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.symbol = symbol;
+        this.size = channel.size();
+    }
+
+    @Override
+    public boolean next(FlowRecord record) throws IOException {
+        while (true) {
+            if (window == null || position == limit) {
+                if (windowStart + limit == size && window != null || size == 0) {
+                    return false;
+                }
+                map(windowStart + position);
+            }
+            end = lineEnd();
+            if (end < 0) {
+                // the line runs past the window: map again from its start
+                if (windowStart + limit == size) {
+                    end = limit;
+                } else if (position == 0) {
+                    throw new IllegalArgumentException("line " + (line + 1) + " is longer than " + WINDOW_SIZE + " bytes");
+                } else {
+                    map(windowStart + position);
+                    continue;
+                }
+            }
+            line++;
+            cursor = position;
+            position = end == limit ? limit : end + 1;
+            if (end > cursor && window.get(end - 1) == '\r') {
+                end--;
+            }
+            if (cursor < end && isDigit(window.get(cursor))) {
+                parse(record);
+                return true;
+            }
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+        position = 0;
+        limit = window.limit();
+    }
+
+    // index of the next '\n' in the window, -1 if there is none
+    private int lineEnd() {
+        for (int i = position; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void parse(FlowRecord record) {
+        record.clear();
+        record.timestamp = parseLong();
+        record.action = parseAction();
+        record.orderId = parseLong();
+        if (record.action == FlowRecord.Action.CANCEL) {
+            return;
+        }
+        record.side = parseSide();
+        record.strategy = parseStrategy();
+        record.price = parseDecimal();
+        record.quantity = Math.toIntExact(parseLong());
+        record.timeInForce = parseTimeInForce();
+        record.accountId = parseLong();
+    }
+
+    // each parser reads one field and moves the cursor past its comma
+
+    private long parseLong() {
+        long value = 0;
+        boolean negative = cursor < end && window.get(cursor) == '-';
+        if (negative) cursor++;
+        while (cursor < end) {
+            byte b = window.get(cursor++);
+            if (b == ',') break;
+            if (!isDigit(b)) throw malformed("not a number");
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // exact for up to 15 significant digits: the digits and the power of ten are both exact doubles
+    private double parseDecimal() {
+        long mantissa = 0;
+        int scale = -1;
+        boolean negative = cursor < end && window.get(cursor) == '-';
+        if (negative) cursor++;
+        while (cursor < end) {
+            byte b = window.get(cursor++);
+            if (b == ',') break;
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (isDigit(b)) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (scale >= 0) scale++;
+            } else {
+                throw malformed("not a price");
+            }
+        }
+        if (scale >= POWERS_OF_TEN.length) throw malformed("too many decimals");
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    // first letter of the field, 0 when it is empty; the cursor moves past the field
+    private byte token() {
+        byte first = cursor < end ? window.get(cursor) : 0;
+        while (cursor < end && window.get(cursor++) != ',') {
+        }
+        return first == ',' ? 0 : first;
+    }
+
+    private FlowRecord.Action parseAction() {
+        switch (token()) {
+            case 'N': return FlowRecord.Action.NEW;
+            case 'C': return FlowRecord.Action.CANCEL;
+            case 'A': return FlowRecord.Action.AMEND;
+            default: throw malformed("unknown action");
+        }
+    }
+
+    private Order.OrderType parseSide() {
+        switch (token()) {
+            case 'B': return Order.OrderType.BUY;
+            case 'S': return Order.OrderType.SELL;
+            case 0: return null;
+            default: throw malformed("unknown side");
+        }
+    }
+
+    private Order.OrderStrategy parseStrategy() {
+        switch (token()) {
+            case 'L': return Order.OrderStrategy.LIMIT_ORDER;
+            case 'M': return Order.OrderStrategy.MARKET;
+            case 0: return null;
+            default: throw malformed("unknown order type");
+        }
+    }
+
+    private Order.TimeInForce parseTimeInForce() {
+        switch (token()) {
+            case 'G': case 0: return Order.TimeInForce.GTC;
+            case 'I': return Order.TimeInForce.IOC;
+            case 'F': return Order.TimeInForce.FOK;
+            case 'D': return Order.TimeInForce.DAY;
+            default: throw malformed("unknown time in force");
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("line " + line + ": " + reason);
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
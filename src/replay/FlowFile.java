@@ -0,0 +1,67 @@
+package replay;
+
+import model.Order;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  binary layout of a recorded flow, shared by BinaryFlowWriter and BinaryFlowReader.
+ *
+ *  little endian. a 32 byte header: int magic, int version, double tick size, char[8] symbol
+ *  (ascii, 0 padded), 8 bytes reserved. then fixed size records, so a record never straddles a
+ *  mapped window and a torn tail is simply ignored:
+ *
+ *    0  long  timestamp (ns)     32 int   quantity
+ *    8  long  order id           36 byte  action, side, strategy, time in force (ordinal, -1 for null)
+ *   16  long  account id
+ *   24  long  price ticks
+ */
+final class FlowFile {
+
+    static final int MAGIC = 0x464C4F57;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int SYMBOL_LENGTH = 8;
+    static final int RECORD_SIZE = 40;
+
+    private static final FlowRecord.Action[] ACTIONS = FlowRecord.Action.values();
+    private static final Order.OrderType[] SIDES = Order.OrderType.values();
+    private static final Order.OrderStrategy[] STRATEGIES = Order.OrderStrategy.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+
+    private FlowFile() {
+    }
+
+    static void write(ByteBuffer buffer, FlowRecord record, long priceTicks) {
+        buffer.putLong(record.timestamp);
+        buffer.putLong(record.orderId);
+        buffer.putLong(record.accountId);
+        buffer.putLong(priceTicks);
+        buffer.putInt(record.quantity);
+        buffer.put(ordinal(record.action));
+        buffer.put(ordinal(record.side));
+        buffer.put(ordinal(record.strategy));
+        buffer.put(ordinal(record.timeInForce));
+    }
+
+    // reads the record at the absolute position, leaves the price in ticks for the caller to convert
+    static long read(ByteBuffer buffer, int position, FlowRecord record) {
+        record.timestamp = buffer.getLong(position);
+        record.orderId = buffer.getLong(position + 8);
+        record.accountId = buffer.getLong(position + 16);
+        record.quantity = buffer.getInt(position + 32);
+        record.action = valueOf(ACTIONS, buffer.get(position + 36));
+        record.side = valueOf(SIDES, buffer.get(position + 37));
+        record.strategy = valueOf(STRATEGIES, buffer.get(position + 38));
+        record.timeInForce = valueOf(TIMES_IN_FORCE, buffer.get(position + 39));
+        return buffer.getLong(position + 24);
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    private static <E> E valueOf(E[] values, byte ordinal) {
+        return ordinal < 0 ? null : values[ordinal];
+    }
+}
@@ -0,0 +1,56 @@
+package replay;
+
+import model.LongOrderMap;
+import model.Order;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  what every driver of a flow into an engine needs, shared by ReplayDriver and
+ *  loadgen.LoadRunner: the Order of a NEW record, the resting order bookkeeping on fills, and
+ *  waiting for a record's scheduled time.
+ */
+public final class FlowOrders {
+
+    // waits longer than this park the thread, shorter ones spin
+    private static final long SPIN_NANOS = 50_000;
+
+    private FlowOrders() {
+    }
+
+    // a new Order for the NEW record, the recorded order id as its engine id
+    public static Order toOrder(FlowRecord record, String symbol) {
+        Order order = new Order();
+        order.setId(record.orderId);
+        order.setTicker(symbol);
+        order.setAccountId(record.accountId);
+        order.setOrderType(record.side);
+        order.setOrderStrategy(record.strategy);
+        order.setOrderStatus(Order.OrderStatus.NEW);
+        order.setTimeInForce(record.timeInForce);
+        order.setPrice(record.price);
+        order.setOrginalQuality(record.quantity);
+        order.setRemaningQuality(record.quantity);
+        order.setTimestamp(record.timestamp);
+        return order;
+    }
+
+    // the resting side of a fill: an order of the map that was filled in full is forgotten
+    public static void filled(LongOrderMap resting, long orderId) {
+        Order order = resting.get(orderId);
+        if (order != null && !order.isResting()) {
+            resting.remove(orderId);
+        }
+    }
+
+    public static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ *  streams the records of a recorded order flow in file order
+ */
+public interface FlowReader extends Closeable {
+
+    /**
+     *  fills the record with the next command, returns false at the end of the file
+     */
+    boolean next(FlowRecord record) throws IOException;
+
+    // the instrument of the flow
+    String getSymbol();
+}
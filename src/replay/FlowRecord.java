@@ -0,0 +1,119 @@
+package replay;
+
+import model.Order;
+
+/**
+ *  one recorded order command, filled in place by a FlowReader and reused for the next one.
+ *
+ *  the order id is the engine id the order gets during the replay, so cancels and amends of the
+ *  recorded flow find it again; it must be positive and unique within the file. an AMEND carries
+ *  the new price and the new total quantity, a CANCEL only the order id.
+ */
+public class FlowRecord {
+
+    public enum Action {
+        NEW,
+        CANCEL,
+        AMEND
+    }
+
+    Action action;
+    // recorded time in nanoseconds, e.g. since the epoch
+    long timestamp;
+    long orderId;
+    long accountId;
+    Order.OrderType side;
+    Order.OrderStrategy strategy;
+    Order.TimeInForce timeInForce;
+    double price;
+    int quantity;
+
+    // a NEW order, e.g. from a generator writing a flow file
+    public FlowRecord newOrder(long timestamp, long orderId, long accountId, Order.OrderType side,
+                               Order.OrderStrategy strategy, Order.TimeInForce timeInForce, double price, int quantity) {
+        clear();
+        this.action = Action.NEW;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.accountId = accountId;
+        this.side = side;
+        this.strategy = strategy;
+        this.timeInForce = timeInForce;
+        this.price = price;
+        this.quantity = quantity;
+        return this;
+    }
+
+    public FlowRecord cancel(long timestamp, long orderId) {
+        clear();
+        this.action = Action.CANCEL;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        return this;
+    }
+
+    // new price and new total quantity
+    public FlowRecord amend(long timestamp, long orderId, double price, int quantity) {
+        clear();
+        this.action = Action.AMEND;
+        this.timestamp = timestamp;
+        this.orderId = orderId;
+        this.price = price;
+        this.quantity = quantity;
+        return this;
+    }
+
+    void clear() {
+        action = null;
+        timestamp = 0;
+        orderId = 0;
+        accountId = 0;
+        side = null;
+        strategy = null;
+        timeInForce = null;
+        price = 0;
+        quantity = 0;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public Order.OrderType getSide() {
+        return side;
+    }
+
+    public Order.OrderStrategy getStrategy() {
+        return strategy;
+    }
+
+    public Order.TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return action + " " + orderId + " " + side + " " + strategy + " " + quantity + "@" + price + " " + timeInForce
+                + " account " + accountId + " at " + timestamp;
+    }
+}
@@ -0,0 +1,98 @@
+package replay;
+
+import model.TickSize;
+import services.PriceLadderBook;
+import services.SessionClock;
+import services.TradingEngine;
+import services.TradingEngineImpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ *  command line replay of a recorded flow against a fresh engine, printing the ReplayReport.
+ *
+ *  usage: java -cp target/benchmarks.jar replay.Replay <flow.csv | flow.bin> [options]
+ *    --symbol S         instrument of a CSV flow (binary flows carry it), default USDSGD
+ *    --tick T           tick size of a CSV flow, default 0.0001
+ *    --speed X          0 as fast as possible (default), 1 at the recorded pace, 10 ten times faster
+ *    --session-end NS   session end for DAY orders, in the recording's nanoseconds
+ *    --engine E         TradingEngineImpl (default) or PriceLadderBook
+ *    --reference P      ladder reference price, required for PriceLadderBook
+ *    --levels N         ladder levels, default 65536
+ *    --convert OUT      write a CSV flow out as a binary flow instead of replaying it
+ *
+ *  a file ending in .csv is read as CSV, anything else as a binary flow
+ */
+public class Replay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: replay.Replay <flow.csv | flow.bin> [--symbol S] [--tick T] [--speed X]"
+                    + " [--session-end NS] [--engine TradingEngineImpl|PriceLadderBook] [--reference P] [--levels N] [--convert OUT]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        String symbol = option(args, "--symbol", "USDSGD");
+        TickSize tickSize = new TickSize(Double.parseDouble(option(args, "--tick", "0.0001")));
+        boolean csv = file.getFileName().toString().endsWith(".csv");
+
+        String convert = option(args, "--convert", null);
+        if (convert != null) {
+            if (!csv) {
+                throw new IllegalArgumentException("--convert reads a CSV flow");
+            }
+            long start = System.nanoTime();
+            FlowRecord record = new FlowRecord();
+            try (CsvFlowReader reader = new CsvFlowReader(file, symbol);
+                 BinaryFlowWriter writer = new BinaryFlowWriter(Paths.get(convert), symbol, tickSize)) {
+                while (reader.next(record)) {
+                    writer.write(record);
+                }
+                System.out.printf("%d records written to %s in %d ms%n", writer.getRecords(), convert,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+            return;
+        }
+
+        try (FlowReader reader = csv ? new CsvFlowReader(file, symbol) : new BinaryFlowReader(file)) {
+            if (!csv) {
+                tickSize = ((BinaryFlowReader) reader).getTickSize();
+            }
+            TradingEngine engine = engine(option(args, "--engine", "TradingEngineImpl"), reader.getSymbol(), tickSize, args);
+            String sessionEnd = option(args, "--session-end", null);
+            if (sessionEnd != null) {
+                // both engines it builds have a clock
+                ((SessionClock) engine).setSessionEnd(Long.parseLong(sessionEnd));
+            }
+            ReplayReport report = new ReplayDriver(engine).run(reader, Double.parseDouble(option(args, "--speed", "0")));
+            System.out.println(report);
+        }
+    }
+
+    private static TradingEngine engine(String name, String symbol, TickSize tickSize, String[] args) {
+        switch (name) {
+            case "TradingEngineImpl":
+                return new TradingEngineImpl(symbol);
+            case "PriceLadderBook":
+                String reference = option(args, "--reference", null);
+                if (reference == null) {
+                    throw new IllegalArgumentException("PriceLadderBook needs --reference");
+                }
+                return new PriceLadderBook(symbol, tickSize, Double.parseDouble(reference),
+                        Integer.parseInt(option(args, "--levels", "65536")));
+            default:
+                throw new IllegalArgumentException("unknown engine " + name);
+        }
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 1; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,154 @@
+package replay;
+
+import model.LongOrderMap;
+import model.Order;
+import model.Trade;
+import services.ExecutionBuffer;
+import services.SessionClock;
+import services.TradingEngine;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ *  feeds a recorded order flow into an engine on the calling thread, either as fast as it
+ *  goes or at the recorded timestamps (scaled by a speed factor), and reports throughput and
+ *  per command latency.
+ *
+ *  every recorded order id becomes the order's engine id, so cancels and amends reach it without
+ *  any translation. the driver only keeps the orders that still rest, by id, and drops them as
+ *  they fill, cancel or expire; the recording itself is never loaded, the reader streams it.
+ *  the clock of an engine that has one (SessionClock) follows the recorded timestamps, so DAY
+ *  orders expire at the session end set on the engine. fills go to a buffer that is cleared after every command.
+ *
+ *  the driver does not synchronize; give it an engine nobody else calls meanwhile
+ */
+public class ReplayDriver {
+
+    private final TradingEngine engine;
+    // null for an engine without one, nothing can expire there
+    private final SessionClock sessionClock;
+    private final LongOrderMap resting = new LongOrderMap();
+    private final ExecutionBuffer fills = new ExecutionBuffer(1024);
+    private final Order amend = new Order();
+    private final Consumer<Order> expired = order -> resting.remove(order.getId());
+    private final FlowRecord record = new FlowRecord();
+
+    private long clock = Long.MIN_VALUE;
+
+    public ReplayDriver(TradingEngine engine) {
+        this.engine = engine;
+        this.sessionClock = engine instanceof SessionClock ? (SessionClock) engine : null;
+    }
+
+    /**
+     *  replays every record of the reader. speed 0 replays as fast as possible, 1 at the recorded
+     *  pace, 10 ten times faster than recorded
+     */
+    public ReplayReport run(FlowReader reader, double speed) throws IOException {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative: " + speed);
+        }
+        ReplayReport report = new ReplayReport();
+        String symbol = reader.getSymbol();
+        long firstTimestamp = 0;
+        long start = System.nanoTime();
+        while (reader.next(record)) {
+            long begin;
+            if (speed > 0) {
+                if (report.commands == 0) {
+                    firstTimestamp = record.timestamp;
+                }
+                begin = start + (long) ((record.timestamp - firstTimestamp) / speed);
+                FlowOrders.waitUntil(begin);
+            } else {
+                begin = System.nanoTime();
+            }
+            apply(record, symbol, report);
+            report.latency.record(System.nanoTime() - begin);
+            report.commands++;
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.restingAtEnd = resting.size();
+        return report;
+    }
+
+    // a command the engine refuses is counted and skipped, like the sequencer does
+    private void apply(FlowRecord record, String symbol, ReplayReport report) {
+        try {
+            if (record.timestamp > clock) {
+                clock = record.timestamp;
+                if (sessionClock != null) {
+                    sessionClock.advanceClock(clock, expired);
+                }
+            }
+            switch (record.action) {
+                case NEW:
+                    report.newOrders++;
+                    add(record, symbol, report);
+                    break;
+                case CANCEL:
+                    report.cancels++;
+                    Order order = resting.remove(record.orderId);
+                    if (order == null) {
+                        report.unknown++;
+                    } else {
+                        engine.cancelOrder(order);
+                    }
+                    break;
+                case AMEND:
+                    report.amends++;
+                    amend(record, report);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            report.rejected++;
+        }
+    }
+
+    private void add(FlowRecord record, String symbol, ReplayReport report) {
+        Order order = FlowOrders.toOrder(record, symbol);
+        fills.clear();
+        int count = engine.addOrder(order, fills);
+        report.fills += count;
+        boolean buy = record.side == Order.OrderType.BUY;
+        for (int i = 0; i < count; i++) {
+            FlowOrders.filled(resting, buy ? fills.getSellOrderId(i) : fills.getBuyOrderId(i));
+        }
+        if (order.isResting()) {
+            resting.put(order.getId(), order);
+        }
+    }
+
+    private void amend(FlowRecord record, ReplayReport report) {
+        Order order = resting.get(record.orderId);
+        if (order == null) {
+            report.unknown++;
+            return;
+        }
+        amend.setId(record.orderId);
+        amend.setPrice(record.price);
+        amend.setOrginalQuality(record.quantity);
+        List<Trade> trades = engine.amendOrder(amend);
+        if (trades != null) {
+            report.fills += trades.size();
+            boolean buy = order.getOrderType() == Order.OrderType.BUY;
+            for (Trade trade : trades) {
+                FlowOrders.filled(resting, buy ? trade.getSellId() : trade.getBuyId());
+            }
+        }
+        if (!order.isResting()) {
+            resting.remove(order.getId());
+        }
+    }
+
+    public TradingEngine getEngine() {
+        return engine;
+    }
+
+    // orders of the replayed flow still resting on the engine
+    public int getRestingCount() {
+        return resting.size();
+    }
+}
@@ -0,0 +1,90 @@
+package replay;
+
+import services.LatencyHistogram;
+
+/**
+ *  outcome of one replay: what was applied, how fast, and the latency of every command.
+ *  in an as-fast-as-possible replay the latency is the engine's service time; in a paced replay
+ *  it is measured from the command's scheduled time, so falling behind the recording shows up as
+ *  latency instead of being hidden
+ */
+public class ReplayReport {
+
+    long commands;
+    long newOrders;
+    long cancels;
+    long amends;
+    // commands the engine refused (threw), and cancels / amends of orders no longer resting
+    long rejected;
+    long unknown;
+    long fills;
+    long elapsedNanos;
+    int restingAtEnd;
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public long getNewOrders() {
+        return newOrders;
+    }
+
+    public long getCancels() {
+        return cancels;
+    }
+
+    public long getAmends() {
+        return amends;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getUnknown() {
+        return unknown;
+    }
+
+    public long getFills() {
+        return fills;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getRestingAtEnd() {
+        return restingAtEnd;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public double getCommandsPerSecond() {
+        return perSecond(commands);
+    }
+
+    public double getOrdersPerSecond() {
+        return perSecond(newOrders);
+    }
+
+    public double getFillsPerSecond() {
+        return perSecond(fills);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d commands in %.3fs: %d new, %d cancels, %d amends, %d rejected, %d unknown, %d resting at the end%n"
+                        + "%.0f commands/s, %.0f orders/s, %d fills, %.0f fills/s%n"
+                        + "latency %s",
+                commands, elapsedNanos / 1e9, newOrders, cancels, amends, rejected, unknown, restingAtEnd,
+                getCommandsPerSecond(), getOrdersPerSecond(), fills, getFillsPerSecond(),
+                latency.summary());
+    }
+}
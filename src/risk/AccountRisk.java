@@ -0,0 +1,46 @@
+package risk;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  limits and live counters of one account.
+ *
+ *  an account may trade on several engines (symbols, router shards) at once, so its counters
+ *  are striped adders: every matching thread adds to its own cell without a lock and a read
+ *  sums the cells.
+ */
+public class AccountRisk {
+
+    private final long accountId;
+    private volatile RiskLimits limits;
+
+    // notional of the account's resting orders
+    final DoubleAdder openExposure = new DoubleAdder();
+    final LongAdder rejected = new LongAdder();
+
+    AccountRisk(long accountId, RiskLimits limits) {
+        this.accountId = accountId;
+        this.limits = limits;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public RiskLimits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(RiskLimits limits) {
+        this.limits = limits;
+    }
+
+    public double getOpenExposure() {
+        return openExposure.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
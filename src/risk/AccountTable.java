@@ -0,0 +1,65 @@
+package risk;
+
+/**
+ *  immutable open addressing map of account id to AccountRisk. lookups are a probe over two
+ *  arrays without boxing the id; adding an account copies the table (accounts are added rarely)
+ */
+final class AccountTable {
+
+    static final AccountTable EMPTY = new AccountTable(new long[16], new AccountRisk[16], 0);
+
+    private final long[] ids;
+    private final AccountRisk[] accounts;
+    private final int mask;
+    private final int size;
+
+    private AccountTable(long[] ids, AccountRisk[] accounts, int size) {
+        this.ids = ids;
+        this.accounts = accounts;
+        this.mask = ids.length - 1;
+        this.size = size;
+    }
+
+    AccountRisk get(long accountId) {
+        int slot = slotOf(accountId, mask);
+        AccountRisk account;
+        while ((account = accounts[slot]) != null) {
+            if (ids[slot] == accountId) {
+                return account;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // a copy holding the account as well, kept at most half full
+    AccountTable with(AccountRisk account) {
+        int capacity = (size + 1) * 2 > ids.length ? ids.length * 2 : ids.length;
+        long[] newIds = new long[capacity];
+        AccountRisk[] newAccounts = new AccountRisk[capacity];
+        for (AccountRisk existing : accounts) {
+            if (existing != null) {
+                insert(newIds, newAccounts, existing);
+            }
+        }
+        insert(newIds, newAccounts, account);
+        return new AccountTable(newIds, newAccounts, size + 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static void insert(long[] ids, AccountRisk[] accounts, AccountRisk account) {
+        int mask = ids.length - 1;
+        int slot = slotOf(account.getAccountId(), mask);
+        while (accounts[slot] != null) slot = (slot + 1) & mask;
+        ids[slot] = account.getAccountId();
+        accounts[slot] = account;
+    }
+
+    private static int slotOf(long accountId, int mask) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,95 @@
+package risk;
+
+import model.Order;
+
+/**
+ *  pre-trade limits and exposure of every account.
+ *
+ *  check() is a table lookup and three comparisons, lock free; it can run in a gateway before
+ *  an order is sequenced or in RiskCheckedEngine on the matching thread. accounts that were
+ *  never configured get the default limits on their first order.
+ *
+ *  the exposure check and the exposure update are separate steps: orders of one account
+ *  checked at the same time on different engines can together overshoot maxOpenExposure by at
+ *  most one order per engine.
+ */
+public class PreTradeRisk {
+
+    public enum Reject {
+        ORDER_QUANTITY,
+        // a MARKET order with nothing to value it at
+        NO_REFERENCE_PRICE,
+        ORDER_NOTIONAL,
+        OPEN_EXPOSURE
+    }
+
+    private final RiskLimits defaultLimits;
+    private volatile AccountTable accounts = AccountTable.EMPTY;
+
+    public PreTradeRisk(RiskLimits defaultLimits) {
+        this.defaultLimits = defaultLimits;
+    }
+
+    public AccountRisk account(long accountId) {
+        AccountRisk account = accounts.get(accountId);
+        return account != null ? account : register(accountId, defaultLimits);
+    }
+
+    public void setLimits(long accountId, RiskLimits limits) {
+        AccountRisk account = accounts.get(accountId);
+        if (account == null) {
+            register(accountId, limits);
+        } else {
+            account.setLimits(limits);
+        }
+    }
+
+    private synchronized AccountRisk register(long accountId, RiskLimits limits) {
+        AccountRisk account = accounts.get(accountId);
+        if (account == null) {
+            account = new AccountRisk(accountId, limits);
+            accounts = accounts.with(account);
+        }
+        return account;
+    }
+
+    /**
+     *  checks the order as if it were going to rest with its remaining quantity, returns null
+     *  when it passes. a MARKET order carries no price and is refused, see check(Order, double)
+     */
+    public Reject check(Order order) {
+        return check(order, Double.NaN);
+    }
+
+    /**
+     *  the same, with a MARKET order valued at marketPrice, e.g. the opposite touch or a collar
+     *  around the last trade; NaN when there is none, which refuses it
+     */
+    public Reject check(Order order, double marketPrice) {
+        double price = order.getOrderStrategy() == Order.OrderStrategy.MARKET ? marketPrice : order.getPrice();
+        double notional = price * order.getRemaningQuality();
+        return check(account(order.getAccountId()), order.getRemaningQuality(), notional, notional);
+    }
+
+    Reject check(AccountRisk account, long quantity, double notional, double addedExposure) {
+        RiskLimits limits = account.getLimits();
+        Reject reject = null;
+        if (quantity > limits.getMaxOrderQuantity()) {
+            reject = Reject.ORDER_QUANTITY;
+        } else if (Double.isNaN(notional)) {
+            reject = Reject.NO_REFERENCE_PRICE;
+        } else if (notional > limits.getMaxOrderNotional()) {
+            reject = Reject.ORDER_NOTIONAL;
+        } else if (addedExposure > 0 && account.openExposure.sum() + addedExposure > limits.getMaxOpenExposure()) {
+            reject = Reject.OPEN_EXPOSURE;
+        }
+        if (reject != null) {
+            account.rejected.increment();
+        }
+        return reject;
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+}
@@ -0,0 +1,335 @@
+package risk;
+
+import model.DepthSink;
+import model.LongOrderMap;
+import model.Order;
+import model.Trade;
+import services.AuctionBook;
+import services.ExecutionBuffer;
+import services.ExecutionSink;
+import services.LevelUpdateSink;
+import services.OrderBatch;
+import services.SessionClock;
+import services.TradingEngine;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ *  engine decorator that runs the pre-trade check before an order reaches the book and keeps
+ *  the accounts' open exposure in step with it: a resting order adds its notional, fills and
+ *  cancels take it off again. a market order is checked at the opposite touch times its quantity
+ *  and refused when that side is empty. a pending stop holds exposure like a resting order; one that
+ *  triggers and finds nothing at all to fill keeps it until it is cancelled. an order that
+ *  fails the check throws RiskRejectedException and never reaches the engine.
+ *
+ *  orders are tracked by engine id, so cancels and amends must carry it. like the engine it
+ *  wraps it is only called from one matching thread; decorators of several engines can share
+ *  one PreTradeRisk. put it in front of a JournaledEngine so rejected orders are not journaled.
+ */
+public class RiskCheckedEngine implements TradingEngine {
+
+    private final TradingEngine engine;
+    private final PreTradeRisk risk;
+
+    // resting orders that hold exposure, by engine id
+    private final LongOrderMap open = new LongOrderMap();
+
+    // resting orders filled during the current command; the filled ones are dropped from open
+    // once the command returns, when the engine has updated them
+    private Order[] touched = new Order[16];
+    private int touchedCount;
+
+    // notional held for each accepted order of the batch being submitted
+    private double[] provisional = new double[16];
+
+    // batch result of an accepted order until the engine records its fills
+    private static final int PENDING = Integer.MIN_VALUE;
+
+    private ExecutionSink executionSink = ExecutionSink.NONE;
+
+    // best level of each side, to value market orders at
+    private final DepthSink touch = new DepthSink(1);
+
+    private final Consumer<Order> release = this::expired;
+
+    public RiskCheckedEngine(TradingEngine engine, PreTradeRisk risk) {
+        this.engine = engine;
+        this.risk = risk;
+        engine.setExecutionSink(this::onTrade);
+    }
+
+    // an order that does not rest still has to fit the exposure limit while it matches;
+    // one with a resting time in force holds exposure for whatever is left on the book
+    @Override
+    public List<Trade> addOrder(Order order) {
+        AccountRisk account = check(order);
+        List<Trade> trades = engine.addOrder(order);
+        releaseFilled();
+        hold(account, order);
+        return trades;
+    }
+
+    @Override
+    public int addOrder(Order order, ExecutionBuffer out) {
+        AccountRisk account = check(order);
+        int fills = engine.addOrder(order, out);
+        releaseFilled();
+        hold(account, order);
+        return fills;
+    }
+
+    /**
+     *  checks the whole batch before it reaches the engine, each order against the exposure of
+     *  the ones accepted ahead of it, which is held provisionally while the batch matches. a
+     *  failed check marks the order REJECTED in the batch instead of throwing, so the rest of
+     *  the batch still goes through
+     */
+    @Override
+    public int addOrders(OrderBatch batch, ExecutionSink sink) {
+        int size = batch.size();
+        if (provisional.length < size) {
+            provisional = new double[Math.max(size, provisional.length * 2)];
+        }
+        for (int i = 0; i < size; i++) {
+            if (batch.isRejected(i)) {
+                continue;
+            }
+            Order order = batch.get(i);
+            AccountRisk account = risk.account(order.getAccountId());
+            double notional = notional(order);
+            if (risk.check(account, order.getRemaningQuality(), notional, notional) != null) {
+                batch.reject(i);
+                continue;
+            }
+            account.openExposure.add(notional);
+            provisional[i] = notional;
+            batch.setResult(i, PENDING);
+        }
+        try {
+            return engine.addOrders(batch, sink);
+        } finally {
+            // also when the engine throws part way: the orders it never got hold nothing
+            releaseFilled();
+            for (int i = 0; i < size; i++) {
+                if (batch.isRejected(i)) {
+                    continue;
+                }
+                Order order = batch.get(i);
+                AccountRisk account = risk.account(order.getAccountId());
+                account.openExposure.add(-provisional[i]);
+                if (batch.getResult(i) == PENDING) {
+                    batch.setResult(i, 0);
+                } else {
+                    hold(account, order);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void addOrdertoBook(Order order) {
+        AccountRisk account = check(order);
+        engine.addOrdertoBook(order);
+        hold(account, order);
+    }
+
+    @Override
+    public boolean cancelOrder(Order order) {
+        Order resting = open.get(order.getId());
+        boolean cancelled = engine.cancelOrder(order);
+        if (resting != null && !resting.isResting()) {
+            open.remove(resting.getId());
+            risk.account(resting.getAccountId()).openExposure.add(-resting.getPrice() * resting.getRemaningQuality());
+        }
+        return cancelled;
+    }
+
+    @Override
+    public List<Trade> amendOrder(Order order) {
+        Order resting = open.get(order.getId());
+        if (resting == null) {
+            return engine.amendOrder(order);
+        }
+        AccountRisk account = risk.account(resting.getAccountId());
+        double held = resting.getPrice() * resting.getRemaningQuality();
+        long remaining = order.getOrginalQuality() - (resting.getOrginalQuality() - resting.getRemaningQuality());
+        if (remaining > 0) {
+            reject(account, risk.check(account, order.getOrginalQuality(), order.getPrice() * order.getOrginalQuality(),
+                    order.getPrice() * remaining - held));
+        }
+
+        // the order leaves open while it is amended, so fills of its own re-entry are not counted;
+        // an amend the engine refuses leaves it resting as it was, and it is held again
+        open.remove(resting.getId());
+        account.openExposure.add(-held);
+        try {
+            return engine.amendOrder(order);
+        } finally {
+            releaseFilled();
+            hold(account, resting);
+        }
+    }
+
+    @Override
+    public int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        List<Order> held = new ArrayList<>();
+        engine.forEachOrder(accountId, order -> {
+            if (open.get(order.getId()) == order) {
+                held.add(order);
+            }
+        });
+        int cancelled = engine.cancelAll(accountId, side, minPrice, maxPrice);
+        AccountRisk account = risk.account(accountId);
+        for (Order order : held) {
+            if (!order.isResting()) {
+                open.remove(order.getId());
+                account.openExposure.add(-order.getPrice() * order.getRemaningQuality());
+            }
+        }
+        return cancelled;
+    }
+
+    @Override
+    public void forEachOrder(long accountId, Consumer<Order> action) {
+        engine.forEachOrder(accountId, action);
+    }
+
+    // takes an expired order's exposure off its account
+    private void expired(Order order) {
+        if (open.remove(order.getId()) != null) {
+            risk.account(order.getAccountId()).openExposure.add(-order.getPrice() * order.getRemaningQuality());
+        }
+    }
+
+    private AccountRisk check(Order order) {
+        AccountRisk account = risk.account(order.getAccountId());
+        double notional = notional(order);
+        reject(account, risk.check(account, order.getRemaningQuality(), notional, notional));
+        return account;
+    }
+
+    // a MARKET order is valued at the opposite touch, NaN (refused) when that side is empty;
+    // in a batch the touch is read before any order of it matches
+    private double notional(Order order) {
+        if (order.getOrderStrategy() != Order.OrderStrategy.MARKET) {
+            return order.getPrice() * order.getRemaningQuality();
+        }
+        engine.getDepth(1, touch);
+        double price;
+        if (order.getOrderType() == Order.OrderType.BUY) {
+            price = touch.getAskLevels() == 0 ? Double.NaN : touch.getAskPrice(0);
+        } else {
+            price = touch.getBidLevels() == 0 ? Double.NaN : touch.getBidPrice(0);
+        }
+        return price * order.getRemaningQuality();
+    }
+
+    private static void reject(AccountRisk account, PreTradeRisk.Reject reject) {
+        if (reject != null) {
+            throw new RiskRejectedException(reject, account.getAccountId());
+        }
+    }
+
+    private void hold(AccountRisk account, Order order) {
+        if (order.isResting()) {
+            open.put(order.getId(), order);
+            account.openExposure.add(order.getPrice() * order.getRemaningQuality());
+        }
+    }
+
+    private void onTrade(long tradeId, long buyOrderId, long sellOrderId, double price, long quantity, long timestamp) {
+        filled(buyOrderId, quantity);
+        filled(sellOrderId, quantity);
+        executionSink.onTrade(tradeId, buyOrderId, sellOrderId, price, quantity, timestamp);
+    }
+
+    private void filled(long orderId, long quantity) {
+        Order resting = open.get(orderId);
+        if (resting == null) {
+            return;
+        }
+        risk.account(resting.getAccountId()).openExposure.add(-resting.getPrice() * quantity);
+        if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, touchedCount * 2);
+        }
+        touched[touchedCount++] = resting;
+    }
+
+    // a triggered stop market order may leave with quantity it could not fill, its exposure goes too
+    private void releaseFilled() {
+        for (int i = 0; i < touchedCount; i++) {
+            Order order = touched[i];
+            if (!order.isResting() && open.remove(order.getId()) != null) {
+                risk.account(order.getAccountId()).openExposure.add(-order.getPrice() * order.getRemaningQuality());
+            }
+            touched[i] = null;
+        }
+        touchedCount = 0;
+    }
+
+    @Override
+    public void getDepth(int levels, DepthSink sink) {
+        engine.getDepth(levels, sink);
+    }
+
+    @Override
+    public void setExecutionSink(ExecutionSink sink) {
+        this.executionSink = sink;
+    }
+
+    @Override
+    public void setLevelUpdateSink(LevelUpdateSink sink) {
+        engine.setLevelUpdateSink(sink);
+    }
+
+    public TradingEngine getEngine() {
+        return engine;
+    }
+
+    public PreTradeRisk getRisk() {
+        return risk;
+    }
+
+    /**
+     *  the risk checked engine of a book with a call auction and a clock (TradingEngineImpl,
+     *  PriceLadderBook, or a JournaledEngine.Session of one); a plain RiskCheckedEngine has neither
+     */
+    public static class Session extends RiskCheckedEngine implements AuctionBook, SessionClock {
+
+        private final AuctionBook auction;
+        private final SessionClock clock;
+
+        public <E extends TradingEngine & AuctionBook & SessionClock> Session(E engine, PreTradeRisk risk) {
+            super(engine, risk);
+            this.auction = engine;
+            this.clock = engine;
+        }
+
+        // orders entered during the auction rest and hold exposure until the uncross fills them
+        @Override
+        public void beginAuction() {
+            auction.beginAuction();
+        }
+
+        @Override
+        public int uncross(ExecutionSink out) {
+            int fills = auction.uncross(out);
+            super.releaseFilled();
+            return fills;
+        }
+
+        @Override
+        public int advanceClock(long now, Consumer<Order> expired) {
+            Consumer<Order> release = super.release;
+            return clock.advanceClock(now, expired == null ? release : release.andThen(expired));
+        }
+
+        @Override
+        public void setSessionEnd(long time) {
+            clock.setSessionEnd(time);
+        }
+    }
+}
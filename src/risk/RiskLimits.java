@@ -0,0 +1,38 @@
+package risk;
+
+/**
+ *  pre-trade limits of one account. quantities are in lots, notionals in price * quantity
+ */
+public class RiskLimits {
+
+    public static final RiskLimits NONE = new RiskLimits(Long.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+
+    private final long maxOrderQuantity;
+    private final double maxOrderNotional;
+    private final double maxOpenExposure;
+
+    /**
+     *  maxOpenExposure bounds the notional of all the account's resting orders together
+     */
+    public RiskLimits(long maxOrderQuantity, double maxOrderNotional, double maxOpenExposure) {
+        if (maxOrderQuantity <= 0 || !(maxOrderNotional > 0) || !(maxOpenExposure > 0)) {
+            throw new IllegalArgumentException("limits must be positive: " + maxOrderQuantity + ", "
+                    + maxOrderNotional + ", " + maxOpenExposure);
+        }
+        this.maxOrderQuantity = maxOrderQuantity;
+        this.maxOrderNotional = maxOrderNotional;
+        this.maxOpenExposure = maxOpenExposure;
+    }
+
+    public long getMaxOrderQuantity() {
+        return maxOrderQuantity;
+    }
+
+    public double getMaxOrderNotional() {
+        return maxOrderNotional;
+    }
+
+    public double getMaxOpenExposure() {
+        return maxOpenExposure;
+    }
+}
@@ -0,0 +1,32 @@
+package risk;
+
+/**
+ *  thrown by RiskCheckedEngine for an order that breaches its account's limits. rejects are
+ *  expected under load, so the exception carries no stack trace and builds its message lazily
+ */
+public class RiskRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PreTradeRisk.Reject reason;
+    private final long accountId;
+
+    public RiskRejectedException(PreTradeRisk.Reject reason, long accountId) {
+        super(null, null, false, false);
+        this.reason = reason;
+        this.accountId = accountId;
+    }
+
+    public PreTradeRisk.Reject getReason() {
+        return reason;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    @Override
+    public String getMessage() {
+        return "account " + accountId + " rejected: " + reason;
+    }
+}
@@ -0,0 +1,417 @@
+package router;
+
+import model.DepthSink;
+import model.IdGenerator;
+import model.Order;
+import sequencer.OrderCommand;
+import sequencer.OrderSequencer;
+import sequencer.RejectHandler;
+import sequencer.WaitStrategy;
+import services.ExecutionSink;
+import services.LatencyHistogram;
+import services.TradingEngineImpl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ *  multi-symbol front end: one TradingEngineImpl per ticker, sharded over a fixed set of
+ *  single-threaded workers.
+ *
+ *  every shard is an OrderSequencer with its own matching thread, and a symbol is owned by
+ *  exactly one shard at a time, so a book is only ever touched by one thread and no book is locked.
+ *  symbols are placed on shards by consistent hashing (VIRTUAL_NODES points per shard on a hash
+ *  ring) and can be moved afterwards, either explicitly with moveSymbol or by rebalance(), which
+ *  moves a hot symbol from the busiest to the idlest shard.
+ *
+ *  each book gets its own IdGenerator node, so order and trade ids are unique across the router.
+ */
+public class MatchingEngineRouter {
+
+    static final int VIRTUAL_NODES = 64;
+
+    // per symbol routing state, shared by the producers, the shard threads and the rebalancer
+    static final class SymbolRoute {
+        final String symbol;
+        final TradingEngineImpl book;
+
+        // owning shard; only changes while moving is set and the old shard is drained
+        volatile int shard;
+        volatile boolean moving;
+
+        // producers currently publishing a command for the symbol
+        final AtomicInteger inflight = new AtomicInteger();
+        // commands routed so far
+        final AtomicLong commands = new AtomicLong();
+
+        // owned by the rebalancing thread: commands at the previous rebalance and since then
+        long sampledCommands;
+        long recentCommands;
+
+        SymbolRoute(String symbol, TradingEngineImpl book, int shard) {
+            this.symbol = symbol;
+            this.book = book;
+            this.shard = shard;
+        }
+    }
+
+    private final OrderSequencer[] shards;
+
+    // hash ring point -> shard
+    private final TreeMap<Integer, Integer> ring = new TreeMap<>();
+
+    private final Map<String, SymbolRoute> routes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextNode = new AtomicInteger();
+
+    // every book publishes to the router's sink, so the sink can be swapped while the shards run
+    private volatile ExecutionSink executionSink = ExecutionSink.NONE;
+    private final ExecutionSink forwardingSink = (tradeId, buyOrderId, sellOrderId, price, quantity, timestamp) ->
+            executionSink.onTrade(tradeId, buyOrderId, sellOrderId, price, quantity, timestamp);
+
+    private volatile boolean started;
+    private volatile boolean halted;
+
+    public MatchingEngineRouter(int shardCount, int capacity, Supplier<WaitStrategy> waitStrategy) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("router needs at least one shard: " + shardCount);
+        }
+        ShardEngine engine = new ShardEngine(routes);
+        this.shards = new OrderSequencer[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new OrderSequencer(engine, capacity, waitStrategy.get());
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                ring.put(mix(("shard-" + i + "#" + v).hashCode()), i);
+            }
+        }
+    }
+
+    // ---- producer side, safe for any number of threads
+
+    public long addOrder(Order order) {
+        return route(OrderCommand.Type.ADD_ORDER, order);
+    }
+
+    public long addOrdertoBook(Order order) {
+        return route(OrderCommand.Type.ADD_TO_BOOK, order);
+    }
+
+    public long cancelOrder(Order order) {
+        return route(OrderCommand.Type.CANCEL, order);
+    }
+
+    public long amendOrder(Order order) {
+        return route(OrderCommand.Type.AMEND, order);
+    }
+
+    // publishes into the owning shard; waits while the symbol is being moved between shards
+    private long route(OrderCommand.Type type, Order order) {
+        SymbolRoute route = routeOf(order.getTicker());
+        while (true) {
+            // announce the publish before checking moving, moveSymbol does the mirror image
+            route.inflight.incrementAndGet();
+            if (!route.moving) {
+                try {
+                    return shards[route.shard].publish(type, order);
+                } finally {
+                    route.commands.incrementAndGet();
+                    route.inflight.decrementAndGet();
+                }
+            }
+            route.inflight.decrementAndGet();
+            while (route.moving) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private SymbolRoute routeOf(String symbol) {
+        SymbolRoute route = routes.get(symbol);
+        return route != null ? route : routes.computeIfAbsent(symbol, this::newRoute);
+    }
+
+    private SymbolRoute newRoute(String symbol) {
+        int node = nextNode.getAndIncrement();
+        if (node > IdGenerator.MAX_NODE) {
+            throw new IllegalStateException("no id node left for symbol " + symbol);
+        }
+        TradingEngineImpl book = new TradingEngineImpl(symbol, node);
+        book.setExecutionSink(forwardingSink);
+        return new SymbolRoute(symbol, book, hashShard(symbol));
+    }
+
+    // first ring point at or after the symbol's hash, wrapping around
+    private int hashShard(String symbol) {
+        Map.Entry<Integer, Integer> point = ring.ceilingEntry(mix(symbol.hashCode()));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    // murmur3 finalizer, String.hashCode alone clusters similar tickers
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // ---- shard threads
+
+    public void start() {
+        AtomicInteger index = new AtomicInteger();
+        start(task -> new Thread(task, "matching-shard-" + index.getAndIncrement()));
+    }
+
+    // one thread per shard from the factory, in shard order, e.g. to pin each shard to a core
+    public synchronized void start(ThreadFactory threadFactory) {
+        if (started) {
+            throw new IllegalStateException("router already started");
+        }
+        for (OrderSequencer shard : shards) {
+            shard.start(threadFactory);
+        }
+        started = true;
+    }
+
+    /**
+     *  stops every shard once it has applied the commands published before the call
+     */
+    public synchronized void halt() throws InterruptedException {
+        halted = true;
+        for (OrderSequencer shard : shards) {
+            shard.halt();
+        }
+    }
+
+    // ---- rebalancing
+
+    /**
+     *  moves the symbol's book to the target shard. producers of that symbol wait while it moves,
+     *  the other symbols keep flowing. returns false if the symbol already lives there
+     */
+    public synchronized boolean moveSymbol(String symbol, int target) throws InterruptedException {
+        if (target < 0 || target >= shards.length) {
+            throw new IllegalArgumentException("no shard " + target);
+        }
+        requireRunning();
+        SymbolRoute route = routeOf(symbol);
+        int source = route.shard;
+        if (source == target) {
+            return false;
+        }
+
+        route.moving = true;
+        try {
+            // every publish that missed the flag is now in the source ring ...
+            while (route.inflight.get() != 0) {
+                Thread.onSpinWait();
+            }
+            // ... and has been applied once the source shard reaches this barrier
+            CountDownLatch drained = new CountDownLatch(1);
+            shards[source].execute(drained::countDown);
+            drained.await();
+            route.shard = target;
+        } finally {
+            route.moving = false;
+        }
+        return true;
+    }
+
+    /**
+     *  looks at the commands routed since the previous call and, if the load is uneven, moves the
+     *  symbol of the busiest shard that best evens it out to the idlest shard.
+     *  returns the moved symbol, or null if no move narrows the gap
+     */
+    public synchronized String rebalance() throws InterruptedException {
+        long[] load = new long[shards.length];
+        for (SymbolRoute route : routes.values()) {
+            long commands = route.commands.get();
+            route.recentCommands = commands - route.sampledCommands;
+            route.sampledCommands = commands;
+            load[route.shard] += route.recentCommands;
+        }
+
+        int busiest = 0;
+        int idlest = 0;
+        for (int i = 1; i < load.length; i++) {
+            if (load[i] > load[busiest]) busiest = i;
+            if (load[i] < load[idlest]) idlest = i;
+        }
+        long gap = load[busiest] - load[idlest];
+
+        // moving a symbol with load x leaves a gap of |gap - 2x|; a symbol hotter than the gap only swaps the roles
+        SymbolRoute best = null;
+        long bestGap = gap;
+        for (SymbolRoute route : routes.values()) {
+            if (route.shard != busiest || route.recentCommands <= 0) continue;
+            long remaining = Math.abs(gap - 2 * route.recentCommands);
+            if (remaining < bestGap) {
+                best = route;
+                bestGap = remaining;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        moveSymbol(best.symbol, idlest);
+        return best.symbol;
+    }
+
+    // barrier tasks only complete while the shard threads run
+    private void requireRunning() {
+        if (!started || halted) {
+            throw new IllegalStateException("router is not running");
+        }
+    }
+
+    // ---- books
+
+    public void setExecutionSink(ExecutionSink sink) {
+        this.executionSink = sink;
+    }
+
+    // set before start(); each shard reports the commands its books threw on, on its own thread
+    public synchronized void setRejectHandler(RejectHandler rejectHandler) {
+        if (started) {
+            throw new IllegalStateException("set the reject handler before starting the router");
+        }
+        for (OrderSequencer shard : shards) {
+            shard.setRejectHandler(rejectHandler);
+        }
+    }
+
+    /**
+     *  copies the symbol's depth on its shard thread, in sequence with the order flow
+     */
+    public synchronized void getDepth(String symbol, int levels, DepthSink sink) throws InterruptedException {
+        requireRunning();
+        SymbolRoute route = routeOf(symbol);
+        CountDownLatch done = new CountDownLatch(1);
+        shards[route.shard].execute(() -> {
+            route.book.getDepth(levels, sink);
+            done.countDown();
+        });
+        done.await();
+    }
+
+    /**
+     *  cancels the account's orders on every symbol, e.g. when its session drops, and returns
+     *  how many were cancelled. each shard handles all of its symbols in one task, in sequence
+     *  with the orders published before
+     */
+    public int cancelAll(long accountId) throws InterruptedException {
+        return cancelAll(accountId, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    public synchronized int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) throws InterruptedException {
+        return onEveryBook(book -> book.cancelAll(accountId, side, minPrice, maxPrice));
+    }
+
+    /**
+     *  moves the clock of every book forward and expires their DAY / GTD orders, returns how
+     *  many expired. the clock is driven from outside, e.g. a timer calling this every second
+     */
+    public synchronized int advanceClock(long now) throws InterruptedException {
+        return onEveryBook(book -> book.advanceClock(now));
+    }
+
+    public synchronized void setSessionEnd(long time) throws InterruptedException {
+        onEveryBook(book -> {
+            book.setSessionEnd(time);
+            return 0;
+        });
+    }
+
+    // opening / closing auction of every symbol, see AuctionBook.beginAuction
+    public synchronized void beginAuction() throws InterruptedException {
+        onEveryBook(book -> {
+            book.beginAuction();
+            return 0;
+        });
+    }
+
+    // uncrosses every symbol, the fills go to the execution sink; returns how many there were
+    public synchronized int uncross() throws InterruptedException {
+        return onEveryBook(book -> book.uncross(ExecutionSink.NONE));
+    }
+
+    // runs the action on every book, one task per shard, and sums what it returns.
+    // callers are synchronized so no symbol moves meanwhile (moveSymbol is as well)
+    private int onEveryBook(ToIntFunction<TradingEngineImpl> action) throws InterruptedException {
+        requireRunning();
+        AtomicInteger total = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            int s = shard;
+            shards[shard].execute(() -> {
+                try {
+                    for (SymbolRoute route : routes.values()) {
+                        if (route.shard == s) {
+                            total.addAndGet(action.applyAsInt(route.book));
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return total.get();
+    }
+
+    // the symbol's book; only safe to read on its shard thread or once the router is halted
+    public TradingEngineImpl getBook(String symbol) {
+        SymbolRoute route = routes.get(symbol);
+        return route == null ? null : route.book;
+    }
+
+    public int shardOf(String symbol) {
+        SymbolRoute route = routes.get(symbol);
+        return route == null ? hashShard(symbol) : route.shard;
+    }
+
+    // ---- statistics
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getSymbolCount() {
+        return routes.size();
+    }
+
+    public int getShardSymbolCount(int shard) {
+        int count = 0;
+        for (SymbolRoute route : routes.values()) {
+            if (route.shard == shard) count++;
+        }
+        return count;
+    }
+
+    // commands applied by the shard, live
+    public long getShardCommands(int shard) {
+        return shards[shard].getProcessedCommands();
+    }
+
+    // fills produced by the shard, live
+    public long getShardFills(int shard) {
+        return shards[shard].getFills();
+    }
+
+    // publish -> processed latency of the shard, read once halted
+    public LatencyHistogram getShardLatency(int shard) {
+        return shards[shard].getLatency();
+    }
+
+    public long getSymbolCommands(String symbol) {
+        SymbolRoute route = routes.get(symbol);
+        return route == null ? 0 : route.commands.get();
+    }
+}
@@ -0,0 +1,52 @@
+package router;
+
+import model.Order;
+import model.Trade;
+import services.CommandTarget;
+import services.ExecutionBuffer;
+import services.TradingEngineImpl;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  what a shard's sequencer applies its commands to: resolves the book of the order's ticker
+ *  and delegates to it. only ever called on the shard's matching thread; commands spanning
+ *  symbols go through MatchingEngineRouter
+ */
+class ShardEngine implements CommandTarget {
+
+    private final Map<String, MatchingEngineRouter.SymbolRoute> routes;
+
+    ShardEngine(Map<String, MatchingEngineRouter.SymbolRoute> routes) {
+        this.routes = routes;
+    }
+
+    private TradingEngineImpl bookOf(Order order) {
+        MatchingEngineRouter.SymbolRoute route = routes.get(order.getTicker());
+        if (route == null) {
+            throw new IllegalStateException("no book for " + order.getTicker());
+        }
+        return route.book;
+    }
+
+    @Override
+    public int addOrder(Order order, ExecutionBuffer out) {
+        return bookOf(order).addOrder(order, out);
+    }
+
+    @Override
+    public void addOrdertoBook(Order order) {
+        bookOf(order).addOrdertoBook(order);
+    }
+
+    @Override
+    public boolean cancelOrder(Order order) {
+        return bookOf(order).cancelOrder(order);
+    }
+
+    @Override
+    public List<Trade> amendOrder(Order order) {
+        return bookOf(order).amendOrder(order);
+    }
+}
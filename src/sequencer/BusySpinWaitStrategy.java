@@ -0,0 +1,13 @@
+package sequencer;
+
+/**
+ *  lowest latency: spins on the ring and keeps a core fully busy.
+ *  only use it with the matching thread pinned to an isolated core
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void idle(int idleCount) {
+        Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,46 @@
+package sequencer;
+
+import model.Order;
+
+/**
+ *  one preallocated slot of the sequencer ring. producers overwrite the fields in place when
+ *  they publish, the matching thread reads them and clears the order reference afterwards
+ */
+public class OrderCommand {
+
+    public enum Type {
+        ADD_ORDER,
+        ADD_TO_BOOK,
+        CANCEL,
+        AMEND,
+        // runs an arbitrary task on the matching thread, in sequence with the order commands;
+        // engine wide changes (mass cancel, clock, auction) go through it
+        TASK
+    }
+
+    Type type;
+    Order order;
+    Runnable task;
+    long sequence;
+    long publishNanos;
+
+    public Type getType() {
+        return type;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+}
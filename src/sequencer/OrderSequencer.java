@@ -0,0 +1,270 @@
+package sequencer;
+
+import model.Order;
+import services.ExecutionBuffer;
+import services.CommandTarget;
+import services.LatencyHistogram;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  multi-producer, single-consumer ring buffer in front of a single-threaded engine (any
+ *  CommandTarget), in the style of the LMAX Disruptor.
+ *
+ *  any number of threads publish order commands into preallocated slots: a producer claims a
+ *  sequence with one atomic increment, fills the slot and marks it available. one matching
+ *  thread drains the slots in sequence order and applies them to the engine, so the book is
+ *  only ever touched by that thread and the match path takes no lock.
+ *  a full ring applies back pressure: producers wait until the matching thread frees a slot.
+ *
+ *  every command is timestamped when published; the publish-to-processed latency is recorded
+ *  in a histogram owned by the matching thread (read it after halt()).
+ */
+public class OrderSequencer implements Runnable {
+
+    private final CommandTarget engine;
+    private final WaitStrategy waitStrategy;
+
+    private final OrderCommand[] ring;
+    private final int mask;
+    private final int shift;
+
+    // round (sequence / capacity) in which each slot was last published, -1 before the first round
+    private final AtomicIntegerArray available;
+
+    // last sequence claimed by a producer
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    // last sequence processed by the matching thread, gates producers on wrap
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    // owned by the matching thread
+    private final ExecutionBuffer executions = new ExecutionBuffer();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long processed;
+    private long fills;
+    private long rejected;
+    private RejectHandler rejectHandler = RejectHandler.NONE;
+
+    // published once per drained batch so monitoring threads can read live counters cheaply
+    private final AtomicLong processedView = new AtomicLong();
+    private final AtomicLong fillsView = new AtomicLong();
+
+    // cleared by halt(); a sequencer is started once, either by start() or by running it on a caller supplied (e.g. pinned) thread
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public OrderSequencer(CommandTarget engine, int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.engine = engine;
+        this.waitStrategy = waitStrategy;
+        this.ring = new OrderCommand[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new OrderCommand();
+        }
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.available = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            available.set(i, -1);
+        }
+    }
+
+    // ---- producer side, safe for any number of threads
+
+    public long addOrder(Order order) {
+        return publish(OrderCommand.Type.ADD_ORDER, order);
+    }
+
+    public long addOrdertoBook(Order order) {
+        return publish(OrderCommand.Type.ADD_TO_BOOK, order);
+    }
+
+    public long cancelOrder(Order order) {
+        return publish(OrderCommand.Type.CANCEL, order);
+    }
+
+    public long amendOrder(Order order) {
+        return publish(OrderCommand.Type.AMEND, order);
+    }
+
+    /**
+     *  claims the next slot, waiting while the ring is full, and publishes the command.
+     *  the order must not be modified by the producer once published
+     */
+    public long publish(OrderCommand.Type type, Order order) {
+        return publish(type, order, null);
+    }
+
+    /**
+     *  runs the task on the matching thread after every command published before it, e.g. to
+     *  move a book between shards, take a consistent snapshot at a barrier, or run a mass cancel
+     *  or clock change of the engine in sequence with the order flow
+     */
+    public long execute(Runnable task) {
+        return publish(OrderCommand.Type.TASK, null, task);
+    }
+
+    private long publish(OrderCommand.Type type, Order order, Runnable task) {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - ring.length;
+        int spins = 0;
+        while (wrapPoint > consumed.get()) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+        int index = (int) sequence & mask;
+        OrderCommand command = ring[index];
+        command.type = type;
+        command.order = order;
+        command.task = task;
+        command.sequence = sequence;
+        command.publishNanos = System.nanoTime();
+        available.lazySet(index, (int) (sequence >>> shift));
+        return sequence;
+    }
+
+    // ---- matching thread
+
+    public void start() {
+        start(task -> new Thread(task, "order-sequencer"));
+    }
+
+    // the factory can name the matching thread or pin it to a core
+    public synchronized void start(ThreadFactory threadFactory) {
+        if (thread != null) {
+            throw new IllegalStateException("sequencer already started");
+        }
+        thread = threadFactory.newThread(this);
+        thread.start();
+    }
+
+    /**
+     *  stops the matching thread once it has applied every command published before the call
+     */
+    public synchronized void halt() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long next = consumed.get() + 1;
+        int idleCount = 0;
+
+        while (running) {
+            if (!isAvailable(next)) {
+                waitStrategy.idle(idleCount++);
+                continue;
+            }
+            idleCount = 0;
+            next = drain(next);
+        }
+
+        // apply what was published before halt
+        long last = claimed.get();
+        while (next <= last) {
+            if (isAvailable(next)) {
+                next = drain(next);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // applies the run of available commands starting at next, then releases their slots in one go
+    private long drain(long next) {
+        long sequence = next;
+        do {
+            apply(ring[(int) sequence & mask]);
+            sequence++;
+        } while (isAvailable(sequence));
+        consumed.lazySet(sequence - 1);
+        processedView.lazySet(processed);
+        fillsView.lazySet(fills);
+        return sequence;
+    }
+
+    private boolean isAvailable(long sequence) {
+        return available.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    private void apply(OrderCommand command) {
+        Order order = command.order;
+        Runnable task = command.task;
+        command.order = null;
+        command.task = null;
+        try {
+            switch (command.type) {
+                case ADD_ORDER:
+                    executions.clear();
+                    fills += engine.addOrder(order, executions);
+                    break;
+                case ADD_TO_BOOK:
+                    engine.addOrdertoBook(order);
+                    break;
+                case CANCEL:
+                    engine.cancelOrder(order);
+                    break;
+                case AMEND:
+                    engine.amendOrder(order);
+                    break;
+                case TASK:
+                    task.run();
+                    break;
+            }
+        } catch (RuntimeException e) {
+            // a bad command must not take the matching thread down
+            rejected++;
+            rejectHandler.onReject(command.sequence, command.type, order, e);
+        }
+        processed++;
+        latency.record(System.nanoTime() - command.publishNanos);
+    }
+
+    // set before start(); called on the matching thread for every command the engine threw on
+    public void setRejectHandler(RejectHandler rejectHandler) {
+        this.rejectHandler = rejectHandler;
+    }
+
+    // ---- statistics; processed commands and fills can be read live, the rest is exact once halted
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getProcessedCommands() {
+        return processedView.get();
+    }
+
+    public long getFills() {
+        return fillsView.get();
+    }
+
+    public long getRejectedCommands() {
+        return rejected;
+    }
+
+    public long getPublishedSequence() {
+        return claimed.get();
+    }
+
+    public long getConsumedSequence() {
+        return consumed.get();
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+}
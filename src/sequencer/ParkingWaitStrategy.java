@@ -0,0 +1,35 @@
+package sequencer;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  spins, yields, then parks for a fixed time between polls. frees the core when the market
+ *  is quiet at the cost of up to parkNanos (plus timer slack) of wake up latency
+ */
+public class ParkingWaitStrategy implements WaitStrategy {
+
+    private final int spinTries;
+    private final int yieldTries;
+    private final long parkNanos;
+
+    public ParkingWaitStrategy() {
+        this(100, 100, 50_000);
+    }
+
+    public ParkingWaitStrategy(int spinTries, int yieldTries, long parkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount < spinTries) {
+            Thread.onSpinWait();
+        } else if (idleCount < spinTries + yieldTries) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package sequencer;
+
+import model.Order;
+
+/**
+ *  told about every command the engine threw on, on the matching thread, with the exception,
+ *  so a refused order can be reported back and an engine bug told apart from a plain reject.
+ *  the sequencer carries on with the next command; implementations must not throw
+ */
+@FunctionalInterface
+public interface RejectHandler {
+
+    RejectHandler NONE = (sequence, type, order, error) -> { };
+
+    // order is null for a TASK
+    void onReject(long sequence, OrderCommand.Type type, Order order, RuntimeException error);
+}
@@ -0,0 +1,10 @@
+package sequencer;
+
+/**
+ *  what the matching thread does while the ring is empty.
+ *  idleCount is the number of consecutive empty polls, reset once a command arrives
+ */
+public interface WaitStrategy {
+
+    void idle(int idleCount);
+}
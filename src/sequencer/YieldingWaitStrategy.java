@@ -0,0 +1,26 @@
+package sequencer;
+
+/**
+ *  spins for a while, then yields the core to other runnable threads between polls
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private final int spinTries;
+
+    public YieldingWaitStrategy() {
+        this(100);
+    }
+
+    public YieldingWaitStrategy(int spinTries) {
+        this.spinTries = spinTries;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount < spinTries) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package services;
+
+/**
+ *  a book that can run a call auction: TradingEngineImpl and PriceLadderBook. the other engines
+ *  only trade continuously and do not implement it
+ */
+public interface AuctionBook {
+
+    // call auction: from here until uncross, addOrder (and addOrders) only put orders on the book,
+    // which may cross, instead of matching them. MARKET, IOC and FOK orders are refused, stops wait
+    void beginAuction();
+
+    // ends the auction: everything that crosses executes at the one price that maximizes the executed
+    // volume, with every fill going to the sink. returns the fills, those of the stops it triggers
+    // included; 0 when the book does not cross
+    int uncross(ExecutionSink out);
+}
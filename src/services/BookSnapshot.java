@@ -0,0 +1,486 @@
+package services;
+
+import model.LongOrderMap;
+import model.Order;
+import model.PriceLevel;
+import model.TimerWheel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ *  binary image of a TradingEngineImpl for fast restart.
+ *
+ *  capture runs on the matching thread (at a sequencer barrier, so no command is half applied)
+ *  and only copies each resting order's fields and order id reference into flat arrays; encoding
+ *  and writing the file through writeTo can then happen on any thread while matching goes on.
+ *  the image holds both sides' levels best first with their orders in time priority, and the id
+ *  counters. the allOrders index is not stored: every indexed order rests on a level, so restore
+ *  rebuilds it, presized, while loading the levels. pending stops follow in trigger order.
+ *
+ *  file layout, little endian, as chunks of (int length, bytes) that no item straddles:
+ *    header: int magic, int version, long journal sequence, long order id sequence,
+ *            long trade id sequence, int id node, long clock, long session end, double last trade price,
+ *            byte auction (1 while a call auction runs), symbol, int resting orders
+ *    per side (bids, then asks): int levels, then per level: double price, int orders,
+ *            then per order: long id, long account id, byte strategy, byte status, byte time in force,
+ *            long original quantity, long remaining quantity, long timestamp, long expire time, order id
+ *    stops: int stops, then per stop: byte side, double stop price, double price, then the order as above
+ *    strings are a short length (-1 for null) and ascii / utf-8 bytes
+ */
+public class BookSnapshot {
+
+    static final int MAGIC = 0x534E4150;
+    static final int VERSION = 5;
+    static final int CHUNK_SIZE = 4 << 20;
+
+    // level queues walked side by side during capture
+    static final int WALK_WIDTH = 16;
+
+    private static final Order.OrderStrategy[] STRATEGIES = Order.OrderStrategy.values();
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+
+    private final long journalSequence;
+    private final long orderSequence;
+    private final long tradeSequence;
+    private final int node;
+    private final long clock;
+    private final long sessionEnd;
+    private final double lastTradePrice;
+    private final boolean auction;
+    private final String symbol;
+
+    // levels of both sides, bids first
+    private final int bidLevels;
+    private final double[] levelPrices;
+    private final int[] levelOrders;
+
+    // resting orders in level order, time priority within a level
+    private final int orderCount;
+    private final long[] ids;
+    private final long[] accountIds;
+    private final byte[] strategies;
+    private final byte[] statuses;
+    private final byte[] timesInForce;
+    private final long[] originalQuantities;
+    private final long[] remainingQuantities;
+    private final long[] timestamps;
+    private final long[] expireTimes;
+    private final String[] orderIds;
+
+    // pending stops, their orders follow the resting ones in the arrays above
+    private final int stopCount;
+    private final byte[] stopSides;
+    private final double[] stopPrices;
+    private final double[] stopLimitPrices;
+    private int stopsCopied;
+
+    private BookSnapshot(TradingEngineImpl engine, long journalSequence) {
+        this.journalSequence = journalSequence;
+        this.orderSequence = engine.orderIds.getSequence();
+        this.tradeSequence = engine.tradeIds.getSequence();
+        this.node = engine.orderIds.getNode();
+        this.clock = engine.getClock();
+        this.sessionEnd = engine.sessionEnd;
+        this.lastTradePrice = engine.lastTradePrice;
+        this.auction = engine.auction;
+        this.symbol = engine.getSymbol();
+        this.bidLevels = engine.buyOrders.size();
+        int levels = bidLevels + engine.sellOrders.size();
+        this.levelPrices = new double[levels];
+        this.levelOrders = new int[levels];
+        this.orderCount = engine.allOrders.size();
+        this.stopCount = engine.stops.size();
+        int orders = orderCount + stopCount;
+        this.ids = new long[orders];
+        this.accountIds = new long[orders];
+        this.strategies = new byte[orders];
+        this.statuses = new byte[orders];
+        this.timesInForce = new byte[orders];
+        this.originalQuantities = new long[orders];
+        this.remainingQuantities = new long[orders];
+        this.timestamps = new long[orders];
+        this.expireTimes = new long[orders];
+        this.orderIds = new String[orders];
+        this.stopSides = new byte[stopCount];
+        this.stopPrices = new double[stopCount];
+        this.stopLimitPrices = new double[stopCount];
+    }
+
+    /**
+     *  copies the engine's state; call it on the thread that owns the engine.
+     *  journalSequence is the last journaled command reflected in the book (0 without a journal)
+     */
+    public static BookSnapshot capture(TradingEngineImpl engine, long journalSequence) {
+        BookSnapshot snapshot = new BookSnapshot(engine, journalSequence);
+        PriceLevel[] levels = new PriceLevel[snapshot.levelPrices.length];
+        int l = 0;
+        for (PriceLevel level : engine.buyOrders.values()) levels[l++] = level;
+        for (PriceLevel level : engine.sellOrders.values()) levels[l++] = level;
+
+        int position = 0;
+        for (int first = 0; first < levels.length; first += WALK_WIDTH) {
+            position = snapshot.copyLevels(levels, first, Math.min(first + WALK_WIDTH, levels.length), position);
+        }
+        if (position != snapshot.orderCount) {
+            throw new IllegalStateException("book holds " + position + " orders but the index " + snapshot.orderCount);
+        }
+        engine.stops.forEach(snapshot::copyStop);
+        return snapshot;
+    }
+
+    // the level queues are linked lists spread over the heap: advancing several of them in turn
+    // overlaps their cache misses instead of waiting on one order at a time
+    private int copyLevels(PriceLevel[] levels, int from, int to, int position) {
+        List<Iterator<Order>> cursors = new ArrayList<>(to - from);
+        int[] next = new int[to - from];
+        int pending = 0;
+        for (int i = from; i < to; i++) {
+            PriceLevel level = levels[i];
+            levelPrices[i] = level.getPriceLevel();
+            levelOrders[i] = level.getOrderCount();
+            cursors.add(level.getOrders().iterator());
+            next[i - from] = position;
+            position += levelOrders[i];
+            pending += levelOrders[i];
+        }
+        if (position > orderCount) {
+            throw new IllegalStateException("book holds more orders than the index " + orderCount);
+        }
+        while (pending > 0) {
+            for (int k = 0; k < cursors.size(); k++) {
+                Iterator<Order> cursor = cursors.get(k);
+                if (cursor.hasNext()) {
+                    copyOrder(cursor.next(), next[k]++);
+                    pending--;
+                }
+            }
+        }
+        return position;
+    }
+
+    private void copyOrder(Order order, int i) {
+        ids[i] = order.getId();
+        accountIds[i] = order.getAccountId();
+        strategies[i] = ordinalOf(order.getOrderStrategy());
+        statuses[i] = ordinalOf(order.getOrderStatus());
+        timesInForce[i] = ordinalOf(order.getTimeInForce());
+        originalQuantities[i] = order.getOrginalQuality();
+        remainingQuantities[i] = order.getRemaningQuality();
+        timestamps[i] = order.getTimestamp();
+        expireTimes[i] = order.getExpireTime();
+        orderIds[i] = order.getOrderId();
+    }
+
+    private void copyStop(Order order) {
+        int s = stopsCopied++;
+        stopSides[s] = ordinalOf(order.getOrderType());
+        stopPrices[s] = order.getStopPrice();
+        stopLimitPrices[s] = order.getPrice();
+        copyOrder(order, orderCount + s);
+    }
+
+    /**
+     *  encodes the image into a temporary file, forces it and renames it into place, so a crash
+     *  never leaves a partial snapshot under the final name
+     */
+    public void writeTo(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer out = new Writer(channel);
+            ByteBuffer header = out.ensure(73 + Short.MAX_VALUE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(journalSequence);
+            header.putLong(orderSequence);
+            header.putLong(tradeSequence);
+            header.putInt(node);
+            header.putLong(clock);
+            header.putLong(sessionEnd);
+            header.putDouble(lastTradePrice);
+            header.put((byte) (auction ? 1 : 0));
+            putString(header, symbol);
+            header.putInt(orderCount);
+
+            int order = writeSide(out, 0, bidLevels, 0);
+            writeSide(out, bidLevels, levelPrices.length, order);
+            writeStops(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // writes the levels [from, to) of one side, returns the index of the next order
+    private int writeSide(Writer out, int from, int to, int order) throws IOException {
+        out.ensure(Integer.BYTES).putInt(to - from);
+        for (int l = from; l < to; l++) {
+            out.ensure(Double.BYTES + Integer.BYTES).putDouble(levelPrices[l]).putInt(levelOrders[l]);
+            for (int end = order + levelOrders[l]; order < end; order++) {
+                putOrder(out.ensure(orderSize(order)), order);
+            }
+        }
+        return order;
+    }
+
+    private void writeStops(Writer out) throws IOException {
+        out.ensure(Integer.BYTES).putInt(stopCount);
+        for (int s = 0; s < stopCount; s++) {
+            int order = orderCount + s;
+            ByteBuffer item = out.ensure(1 + Double.BYTES * 2 + orderSize(order));
+            item.put(stopSides[s]).putDouble(stopPrices[s]).putDouble(stopLimitPrices[s]);
+            putOrder(item, order);
+        }
+    }
+
+    private int orderSize(int order) {
+        return Long.BYTES * 6 + 3 + Short.BYTES + stringSize(orderIds[order]);
+    }
+
+    private void putOrder(ByteBuffer item, int order) {
+        item.putLong(ids[order]);
+        item.putLong(accountIds[order]);
+        item.put(strategies[order]);
+        item.put(statuses[order]);
+        item.put(timesInForce[order]);
+        item.putLong(originalQuantities[order]);
+        item.putLong(remainingQuantities[order]);
+        item.putLong(timestamps[order]);
+        item.putLong(expireTimes[order]);
+        putString(item, orderIds[order]);
+    }
+
+    // fills one direct chunk at a time and writes it out behind its length once the next item does not fit
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer ensure(int size) throws IOException {
+            if (chunk.remaining() < size) {
+                flush();
+            }
+            return chunk;
+        }
+
+        void flush() throws IOException {
+            chunk.flip();
+            length.clear();
+            length.putInt(chunk.remaining()).flip();
+            while (length.hasRemaining()) channel.write(length);
+            while (chunk.hasRemaining()) channel.write(chunk);
+            chunk.clear();
+        }
+    }
+
+    /**
+     *  loads the image into an empty engine created for the same symbol and id node,
+     *  returns the journal sequence to replay from
+     */
+    public static long restore(Path file, TradingEngineImpl engine) throws IOException {
+        if (!engine.allOrders.isEmpty() || !engine.buyOrders.isEmpty() || !engine.sellOrders.isEmpty() || !engine.stops.isEmpty()) {
+            throw new IllegalStateException("snapshot can only be restored into an empty engine");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            ByteBuffer header = in.next();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalArgumentException(file + " is not a version " + VERSION + " book snapshot");
+            }
+            long journalSequence = header.getLong();
+            long orderSequence = header.getLong();
+            long tradeSequence = header.getLong();
+            int node = header.getInt();
+            long clock = header.getLong();
+            long sessionEnd = header.getLong();
+            double lastTradePrice = header.getDouble();
+            boolean auction = header.get() != 0;
+            String symbol = getString(header, new byte[Short.MAX_VALUE]);
+            if (!engine.getSymbol().equals(symbol) || engine.orderIds.getNode() != node) {
+                throw new IllegalArgumentException("snapshot of " + symbol + "/node " + node + " does not match engine "
+                        + engine.getSymbol() + "/node " + engine.orderIds.getNode());
+            }
+            int orders = header.getInt();
+
+            engine.allOrders = new LongOrderMap(orders);
+            // the clock comes first so the resting DAY / GTD orders are scheduled relative to it
+            engine.expiries = new TimerWheel(clock);
+            engine.sessionEnd = sessionEnd;
+            restoreSide(in, engine, engine.buyOrders, Order.OrderType.BUY);
+            restoreSide(in, engine, engine.sellOrders, Order.OrderType.SELL);
+            restoreStops(in, engine);
+            engine.lastTradePrice = lastTradePrice;
+            engine.auction = auction;
+            engine.orderIds.resetTo(orderSequence);
+            engine.tradeIds.resetTo(tradeSequence);
+            return journalSequence;
+        }
+    }
+
+    private static void restoreSide(Reader in, TradingEngineImpl engine, TreeMap<Double, PriceLevel> book, Order.OrderType side) throws IOException {
+        String symbol = engine.getSymbol();
+        byte[] scratch = new byte[Short.MAX_VALUE];
+        int levels = in.next().getInt();
+        for (int l = 0; l < levels; l++) {
+            ByteBuffer levelHeader = in.next();
+            double price = levelHeader.getDouble();
+            int orders = levelHeader.getInt();
+            PriceLevel level = new PriceLevel(symbol, price);
+            for (int o = 0; o < orders; o++) {
+                Order order = readOrder(in.next(), scratch, symbol);
+                order.setOrderType(side);
+                order.setPrice(price);
+                level.add(order);
+                engine.allOrders.put(order.getId(), order);
+                index(engine, order);
+            }
+            book.put(price, level);
+        }
+    }
+
+    private static void restoreStops(Reader in, TradingEngineImpl engine) throws IOException {
+        byte[] scratch = new byte[Short.MAX_VALUE];
+        int stops = in.next().getInt();
+        for (int s = 0; s < stops; s++) {
+            ByteBuffer item = in.next();
+            Order.OrderType side = item.get() == Order.OrderType.BUY.ordinal() ? Order.OrderType.BUY : Order.OrderType.SELL;
+            double stopPrice = item.getDouble();
+            double price = item.getDouble();
+            Order order = readOrder(item, scratch, engine.getSymbol());
+            order.setOrderType(side);
+            order.setStopPrice(stopPrice);
+            order.setPrice(price);
+            engine.stops.add(order);
+            index(engine, order);
+        }
+    }
+
+    private static Order readOrder(ByteBuffer item, byte[] scratch, String symbol) {
+        Order order = new Order();
+        order.setId(item.getLong());
+        order.setAccountId(item.getLong());
+        byte strategy = item.get();
+        byte status = item.get();
+        byte timeInForce = item.get();
+        order.setOrderStrategy(strategy < 0 ? null : STRATEGIES[strategy]);
+        order.setOrderStatus(status < 0 ? null : STATUSES[status]);
+        order.setTimeInForce(timeInForce < 0 ? null : TIMES_IN_FORCE[timeInForce]);
+        order.setOrginalQuality(Math.toIntExact(item.getLong()));
+        order.setRemaningQuality(Math.toIntExact(item.getLong()));
+        order.setTimestamp(item.getLong());
+        order.setExpireTime(item.getLong());
+        order.setOrderId(getString(item, scratch));
+        order.setTicker(symbol);
+        return order;
+    }
+
+    // the account index and the expiry wheel are rebuilt as the orders load
+    private static void index(TradingEngineImpl engine, Order order) {
+        engine.accountIndex.add(order);
+        if (order.getTimeInForce() == Order.TimeInForce.DAY || order.getTimeInForce() == Order.TimeInForce.GTD) {
+            engine.expiries.schedule(order, order.getExpireTime());
+        }
+    }
+
+    // maps one chunk at a time; next() moves on to the following chunk once the current one is consumed
+    private static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+        private MappedByteBuffer chunk;
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer next() throws IOException {
+            if (chunk == null || !chunk.hasRemaining()) {
+                length.clear();
+                while (length.hasRemaining()) {
+                    if (channel.read(length, position + length.position()) < 0) {
+                        throw new IOException("snapshot is truncated at " + position);
+                    }
+                }
+                int size = length.getInt(0);
+                chunk = channel.map(FileChannel.MapMode.READ_ONLY, position + Integer.BYTES, size);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                position += Integer.BYTES + size;
+            }
+            return chunk;
+        }
+    }
+
+    private static byte ordinalOf(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int size = isAscii(value) ? value.length() : value.getBytes(StandardCharsets.UTF_8).length;
+        if (size > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("string too long for a snapshot: " + size + " bytes");
+        }
+        return size;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else if (isAscii(value)) {
+            buffer.putShort((short) value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+}
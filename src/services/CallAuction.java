@@ -0,0 +1,99 @@
+package services;
+
+import model.Order;
+
+import java.util.Arrays;
+
+/**
+ *  equilibrium price of a call auction, shared by the engines that support one.
+ *
+ *  the engine adds the crossed part of its book, every price between the best ask and the best
+ *  bid with the bid and ask quantity resting there, in ascending price order. solve() then
+ *  walks it once: the bids at or above a price shrink and the asks at or below it grow as the
+ *  price rises, and the executable volume at each price is the smaller of the two. the price
+ *  kept is the one with the most volume, then the smallest imbalance between the two sides,
+ *  then the closest to the reference price, the lower of two equally close ones. the arrays are
+ *  kept for the next auction.
+ */
+final class CallAuction {
+
+    // two distances to the reference closer than this are a tie: the mid of the crossed touch lies
+    // exactly between two prices whenever the touch spans an odd number of ticks, and which of them
+    // the rounding of the doubles favours must not decide the auction price
+    private static final double TIE = 1e-9;
+
+    private double[] prices = new double[64];
+    private long[] bidQuantities = new long[64];
+    private long[] askQuantities = new long[64];
+    private int count;
+
+    // outcome of the last solve
+    private double price = Double.NaN;
+    private long volume;
+    private long imbalance;
+
+    void clear() {
+        count = 0;
+        price = Double.NaN;
+        volume = 0;
+        imbalance = 0;
+    }
+
+    // the next candidate price, above the previous one
+    void add(double price, long bidQuantity, long askQuantity) {
+        if (count == prices.length) {
+            prices = Arrays.copyOf(prices, count * 2);
+            bidQuantities = Arrays.copyOf(bidQuantities, count * 2);
+            askQuantities = Arrays.copyOf(askQuantities, count * 2);
+        }
+        prices[count] = price;
+        bidQuantities[count] = bidQuantity;
+        askQuantities[count] = askQuantity;
+        count++;
+    }
+
+    /**
+     *  finds the equilibrium among the prices added, returns false when nothing can execute
+     */
+    boolean solve(double reference) {
+        long bidsAtOrAbove = 0;
+        for (int i = 0; i < count; i++) {
+            bidsAtOrAbove += bidQuantities[i];
+        }
+        long asksAtOrBelow = 0;
+        for (int i = 0; i < count; i++) {
+            asksAtOrBelow += askQuantities[i];
+            long executable = Math.min(bidsAtOrAbove, asksAtOrBelow);
+            long surplus = bidsAtOrAbove - asksAtOrBelow;
+            if (executable > volume
+                    || executable == volume && executable > 0 && (Math.abs(surplus) < Math.abs(imbalance)
+                    || Math.abs(surplus) == Math.abs(imbalance) && Math.abs(prices[i] - reference) < Math.abs(price - reference) - TIE)) {
+                price = prices[i];
+                volume = executable;
+                imbalance = surplus;
+            }
+            bidsAtOrAbove -= bidQuantities[i];
+        }
+        return volume > 0;
+    }
+
+    double getPrice() {
+        return price;
+    }
+
+    long getVolume() {
+        return volume;
+    }
+
+    // bids minus asks left over at the price, positive when buyers are left over
+    long getImbalance() {
+        return imbalance;
+    }
+
+    // an order entered during the auction rests until the uncross, so it needs a limit price
+    static void checkEntry(Order order) {
+        if (order.getOrderStrategy() == Order.OrderStrategy.MARKET) {
+            throw new IllegalArgumentException("MARKET order " + order.getOrderId() + " cannot rest during the auction");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package services;
+
+import model.Order;
+import model.Trade;
+
+import java.util.List;
+
+/**
+ *  the order commands an OrderSequencer applies on its matching thread. every TradingEngine is
+ *  one; a dispatcher such as the router's ShardEngine implements only these and resolves the
+ *  book per order. engine wide commands (mass cancel, clock, auction) go through
+ *  OrderSequencer.execute instead
+ */
+public interface CommandTarget {
+
+    // allocation free matching: fills are appended to a reusable buffer, returns the number of fills
+    int addOrder(Order order, ExecutionBuffer out);
+
+    void addOrdertoBook(Order order);
+
+    boolean cancelOrder(Order order);
+
+    // see TradingEngine.amendOrder
+    List<Trade> amendOrder(Order order);
+}
@@ -0,0 +1,95 @@
+package services;
+
+import java.util.Arrays;
+
+/**
+ *  reusable, preallocated buffer of fills for the allocation free addOrder path.
+ *
+ *  fills are stored column-wise in primitive arrays and read back by index, so recording a fill
+ *  writes a few array slots and creates no objects. the buffer only grows when a single use
+ *  needs more fills than it has room for; size it for the largest expected sweep and the
+ *  steady state never allocates. call clear() before reusing it.
+ */
+public class ExecutionBuffer implements ExecutionSink {
+
+    private long[] tradeIds;
+    private long[] buyOrderIds;
+    private long[] sellOrderIds;
+    private double[] prices;
+    private long[] quantities;
+    private long[] timestamps;
+    private int size;
+
+    public ExecutionBuffer() {
+        this(64);
+    }
+
+    public ExecutionBuffer(int capacity) {
+        tradeIds = new long[capacity];
+        buyOrderIds = new long[capacity];
+        sellOrderIds = new long[capacity];
+        prices = new double[capacity];
+        quantities = new long[capacity];
+        timestamps = new long[capacity];
+    }
+
+    @Override
+    public void onTrade(long tradeId, long buyOrderId, long sellOrderId, double price, long quantity, long timestamp) {
+        if (size == tradeIds.length) {
+            grow();
+        }
+        tradeIds[size] = tradeId;
+        buyOrderIds[size] = buyOrderId;
+        sellOrderIds[size] = sellOrderId;
+        prices[size] = price;
+        quantities[size] = quantity;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, tradeIds.length << 1);
+        tradeIds = Arrays.copyOf(tradeIds, capacity);
+        buyOrderIds = Arrays.copyOf(buyOrderIds, capacity);
+        sellOrderIds = Arrays.copyOf(sellOrderIds, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return tradeIds.length;
+    }
+
+    public long getTradeId(int index) {
+        return tradeIds[index];
+    }
+
+    public long getBuyOrderId(int index) {
+        return buyOrderIds[index];
+    }
+
+    public long getSellOrderId(int index) {
+        return sellOrderIds[index];
+    }
+
+    public double getPrice(int index) {
+        return prices[index];
+    }
+
+    public long getQuantity(int index) {
+        return quantities[index];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+}
@@ -0,0 +1,22 @@
+package services;
+
+/**
+ *  receives every fill as it happens, on the matching thread.
+ *
+ *  the callback only carries primitives so publishing a fill allocates nothing; implementations
+ *  must be quick and must not call back into the engine.
+ */
+@FunctionalInterface
+public interface ExecutionSink {
+
+    ExecutionSink NONE = (tradeId, buyOrderId, sellOrderId, price, quantity, timestamp) -> { };
+
+    void onTrade(long tradeId, long buyOrderId, long sellOrderId, double price, long quantity, long timestamp);
+
+    default ExecutionSink andThen(ExecutionSink next) {
+        return (tradeId, buyOrderId, sellOrderId, price, quantity, timestamp) -> {
+            onTrade(tradeId, buyOrderId, sellOrderId, price, quantity, timestamp);
+            next.onTrade(tradeId, buyOrderId, sellOrderId, price, quantity, timestamp);
+        };
+    }
+}
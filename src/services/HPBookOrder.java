@@ -1,129 +1,222 @@
 package services;
 
+import model.DepthSink;
 import model.Order;
+import model.PriceLevel;
 import model.Trade;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-public class HPBookOrder {
+public class HPBookOrder implements TradingEngine {
 
     // using tree map with revere oder to maintain the buy order
     // higher price going first
 
-    ConcurrentSkipListMap<Double, Queue<Order>> buyOrders = new ConcurrentSkipListMap<>(Collections.reverseOrder());
+    ConcurrentSkipListMap<Double, PriceLevel> buyOrders = new ConcurrentSkipListMap<>(Collections.reverseOrder());
 
     // using tree for selling orders
     // Order with the lowest price with got higher priority
-    ConcurrentSkipListMap<Double, Queue<Order>> sellOrders = new ConcurrentSkipListMap<>();
+    ConcurrentSkipListMap<Double, PriceLevel> sellOrders = new ConcurrentSkipListMap<>();
 
     // all trades
 
     Map<String, Order> allOrders = new ConcurrentHashMap<>();
 
-    List<Trade> trades = new CopyOnWriteArrayList<>();
+    // every change to a level (add, fill, reduce, remove) happens under the level's monitor. a level
+    // that empties leaves its map under the monitor too, so an add that finds its level gone retries
+
+    // fills are streamed out instead of being accumulated in the book,
+    // the sink has to be safe for the threads calling addOrder
+    volatile ExecutionSink executionSink = ExecutionSink.NONE;
+
+    // same threading as the execution sink; updates of one level from different threads may arrive out of order
+    volatile LevelUpdateSink levelUpdateSink = LevelUpdateSink.NONE;
+
+    // ids are assigned by the book; atomics because several threads call in
+    final AtomicLong orderSequence = new AtomicLong();
+    final AtomicLong tradeSequence = new AtomicLong();
 
     public HPBookOrder() {
     }
 
     public List<Trade> addOrder(Order order) {
+        checkSupported(order);
+        assignId(order);
         List<Trade> executedTrade = new ArrayList<>();
-        switch (order.getOrderStrategy()){
-
-            case MARKET:
-                executedTrade.addAll(
-                        executeMarketOrder(order)
-                );
-                break;
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFill(order)) {
+            return executedTrade;
+        }
+        execute(order, order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER, ExecutionSink.NONE, executedTrade);
+        if (TimeInForcePolicy.restsRemainder(order)) {
+            addOrdertoBook(order);
+        }
+        return executedTrade;
 
-            case LIMIT_ORDER:
-                executedTrade.addAll(
-                        executeLimitMarketOrder(order)
-                );
+    }
 
+    public int addOrder(Order order, ExecutionBuffer out) {
+        return submit(order, out);
+    }
 
+    // each order of the batch still goes through the concurrent maps on its own; other threads
+    // may interleave their orders with the batch
+    public int addOrders(OrderBatch batch, ExecutionSink sink) {
+        int total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isRejected(i)) {
+                continue;
+            }
+            int fills = submit(batch.get(i), sink);
+            batch.setResult(i, fills);
+            total += fills;
         }
-        trades.addAll(executedTrade);
-
-        return executedTrade;
+        return total;
+    }
 
+    private int submit(Order order, ExecutionSink out) {
+        checkSupported(order);
+        assignId(order);
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFill(order)) {
+            return 0;
+        }
+        int fills = execute(order, order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER, out, null);
+        if (TimeInForcePolicy.restsRemainder(order)) {
+            addOrdertoBook(order);
+        }
+        return fills;
     }
 
     public void addOrdertoBook(Order order) {
-        ConcurrentSkipListMap <Double, Queue<Order>> books = order.getOrderType() == Order.OrderType.BUY ? buyOrders : sellOrders;
-
-        books.computeIfAbsent( order.getPrice(), k -> new LinkedList<>())
-                .offer(order);
-
-        allOrders.put( order.getOrderId(), order);
+        checkSupported(order);
+        TimeInForcePolicy.restingExpiry(order, 0, 0);
+        assignId(order);
+        ConcurrentSkipListMap <Double, PriceLevel> books = order.getOrderType() == Order.OrderType.BUY ? buyOrders : sellOrders;
+
+        while (true) {
+            PriceLevel level = books.computeIfAbsent( order.getPrice(), k -> new PriceLevel(order.getTicker(), k));
+            synchronized (level) {
+                if (books.get(order.getPrice()) == level) {
+                    level.add(order);
+                    allOrders.put( order.getOrderId(), order);
+                    levelUpdateSink.onLevelUpdate(order.getOrderType(), level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
+                    return;
+                }
+            }
+        }
 
     }
 
-    private Collection<? extends Trade> executeMarketOrder(Order marketOrder) {
+    // one sweep for both strategies, see TradingEngineImpl.execute
+    private int execute(Order order, boolean limit, ExecutionSink out, List<Trade> trades) {
 
-        List<Trade> executions = new ArrayList<>();
-        ConcurrentSkipListMap<Double, Queue<Order>> oppositeOrderBook  = marketOrder.getOrderType() == Order.OrderType.BUY? sellOrders: buyOrders;
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        ConcurrentSkipListMap<Double, PriceLevel> oppositeOrderBook  = buy ? sellOrders : buyOrders;
+        Order.OrderType oppositeSide = buy ? Order.OrderType.SELL : Order.OrderType.BUY;
 
-        long remainingQ = marketOrder.getRemaningQuality();
+        long remainingQ = order.getRemaningQuality();
+        double limitPrice = order.getPrice();
+        int fills = 0;
 
-        while(remainingQ >0 && !oppositeOrderBook.isEmpty()){
-            double bestOppPrice = oppositeOrderBook.firstKey();
-            Queue<Order> ordersAtBestPrice = oppositeOrderBook.get(bestOppPrice);
+        while(remainingQ >0){
+            Map.Entry<Double, PriceLevel> best = oppositeOrderBook.firstEntry();
+            if (best == null) {
+                break;
+            }
+            double bestOppPrice = best.getKey();
 
-            Order restingOrder =  ordersAtBestPrice.peek();
-            if(restingOrder ==null){
-                oppositeOrderBook.remove(bestOppPrice);
-                continue;
+            // if buy order, only fill order if aks price less than or equal limited price.
+            if(limit && (buy ? bestOppPrice > limitPrice : bestOppPrice < limitPrice)){
+                break;
             }
 
-            long tradeQ = Math.min(remainingQ, restingOrder.getRemaningQuality());
-            Trade trade = createTrade(
-                    marketOrder,
-                    restingOrder,
-                    bestOppPrice,
-                    tradeQ
-            );
-
-            executions.add(trade);
-            // update the quantity:
-            marketOrder.reduceQuantity(tradeQ);
-            restingOrder.reduceQuantity(tradeQ);
-            remainingQ -= tradeQ;
-
-            // Remove fully executed order
-            if(restingOrder.isOrderFilled()){
-                ordersAtBestPrice.poll();
-                allOrders.remove(restingOrder.getOrderId());
-
-                if(ordersAtBestPrice.isEmpty()){
-                    oppositeOrderBook.remove(bestOppPrice);
+            PriceLevel ordersAtBestPrice = best.getValue();
+            synchronized (ordersAtBestPrice) {
+                Order restingOrder =  ordersAtBestPrice.peek();
+                if(restingOrder ==null){
+                    // emptied by another thread, which takes it out of the map as well
+                    oppositeOrderBook.remove(bestOppPrice, ordersAtBestPrice);
+                    continue;
                 }
-            }
 
+                long tradeQ = Math.min(remainingQ, restingOrder.getRemaningQuality());
+                long tradeId = tradeSequence.incrementAndGet();
+                long timestamp = System.nanoTime();
+                long buyOrderId = buy ? order.getId() : restingOrder.getId();
+                long sellOrderId = buy ? restingOrder.getId() : order.getId();
+
+                executionSink.onTrade(tradeId, buyOrderId, sellOrderId, bestOppPrice, tradeQ, timestamp);
+                out.onTrade(tradeId, buyOrderId, sellOrderId, bestOppPrice, tradeQ, timestamp);
+                if(trades != null){
+                    trades.add(new Trade(
+                            tradeId,
+                            sellOrderId,
+                            buyOrderId,
+                            buy ? restingOrder.getOrderId() : order.getOrderId(),
+                            buy ? order.getOrderId() : restingOrder.getOrderId(),
+                            tradeQ,
+                            bestOppPrice,
+                            timestamp
+                    ));
+                }
+                fills++;
+
+                // update the quantity:
+                order.reduceQuantity(tradeQ);
+                remainingQ -= tradeQ;
 
+                // Remove fully executed order
+                if(ordersAtBestPrice.fill(restingOrder, tradeQ)){
+                    allOrders.remove(restingOrder.getOrderId(), restingOrder);
+
+                    if(ordersAtBestPrice.isEmpty()){
+                        oppositeOrderBook.remove(bestOppPrice, ordersAtBestPrice);
+                    }
+                }
+                levelUpdateSink.onLevelUpdate(oppositeSide, bestOppPrice, ordersAtBestPrice.getQuantity(), ordersAtBestPrice.getOrderCount());
+            }
         }
 
-        return executions;
+        return fills;
     }
 
-    private Trade createTrade(Order agressiveOrder, Order restingOrder, double bestPrice, long tradeQ) {
-
-        String buyOrderId = agressiveOrder.getOrderType() == Order.OrderType.BUY? agressiveOrder.getOrderId():
-                restingOrder.getOrderId();
+    // no clock here: orders that expire are refused. neither are there stops, triggering them in
+    // trade order would need the single matching thread this book does without
+    private static void checkSupported(Order order) {
+        if (order.getTimeInForce() == Order.TimeInForce.DAY || order.getTimeInForce() == Order.TimeInForce.GTD) {
+            throw new UnsupportedOperationException(order.getTimeInForce() + " orders need an engine with a clock");
+        }
+        if (order.isStop()) {
+            throw new UnsupportedOperationException(order.getOrderStrategy() + " orders need a single threaded engine");
+        }
+    }
 
-        String sellOrderId = agressiveOrder.getOrderType() == Order.OrderType.BUY? restingOrder.getOrderId():
-                agressiveOrder.getOrderId();
-        return new Trade(
-                UUID.randomUUID().toString(),
-                sellOrderId,
-                buyOrderId,
-                tradeQ,
-                bestPrice,
-                System.nanoTime()
-        );
+    // FOK check against the level aggregates. with several threads matching it is a snapshot:
+    // another taker may drain the levels first, and the order then fills only partly
+    private boolean canFill(Order order) {
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        boolean limit = order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER;
+        long needed = order.getRemaningQuality();
+        for (PriceLevel level : (buy ? sellOrders : buyOrders).values()) {
+            double price = level.getPriceLevel();
+            if (limit && (buy ? price > order.getPrice() : price < order.getPrice())) {
+                break;
+            }
+            needed -= level.getQuantity();
+            if (needed <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    private void assignId(Order order) {
+        if (order.getId() == 0) {
+            order.setId(orderSequence.incrementAndGet());
+        }
     }
 
     public  Double getBestBid(){
@@ -141,69 +234,128 @@ public class HPBookOrder {
     }
 
 
-    private List<Trade> executeLimitMarketOrder(Order limitOrder) {
-
+    public  boolean cancelOrder(Order order) {
+        Order ord = allOrders.remove(orderId(order));
+        if (ord == null) return false;
+
+        ConcurrentSkipListMap<Double, PriceLevel> book = ord.getOrderType() == Order.OrderType.BUY ? buyOrders : sellOrders;
+        PriceLevel ordersAtPrice = book.get(ord.getPrice());
+        if (ordersAtPrice != null) {
+            synchronized (ordersAtPrice) {
+                unlink(book, ordersAtPrice, ord);
+            }
+        }
+        return true;
 
-        List<Trade> executions = new ArrayList<>();
-        ConcurrentSkipListMap<Double, Queue<Order>> oppositeOrderBook  = limitOrder.getOrderType() == Order.OrderType.BUY? sellOrders: buyOrders;
+    }
 
-        long remainingQ = limitOrder.getRemaningQuality();
-        double limitPrice = limitOrder.getPrice();
+    // takes the order off its level, under the level's monitor; false when it no longer rests there
+    private boolean unlink(ConcurrentSkipListMap<Double, PriceLevel> book, PriceLevel level, Order order) {
+        if (!level.remove(order)) {
+            return false;
+        }
+        if (level.isEmpty()) {
+            book.remove(level.getPriceLevel(), level);
+        }
+        levelUpdateSink.onLevelUpdate(order.getOrderType(), level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
+        return true;
+    }
 
-        while(remainingQ >0 && !oppositeOrderBook.isEmpty()){
-            double bestOppPrice = oppositeOrderBook.firstKey();
+    // orders are found by order id here; one without it must not read as not resting, see TradingEngineImpl.engineId
+    private static String orderId(Order order) {
+        if (order.getOrderId() == null) {
+            throw new IllegalArgumentException("order " + order.getId() + " has no order id, HPBookOrder finds orders by order id");
+        }
+        return order.getOrderId();
+    }
 
-            boolean canExecute = limitOrder.getOrderType() == Order.OrderType.BUY ? limitPrice >= bestOppPrice : limitPrice <= bestOppPrice;
+    // see TradingEngineImpl.amendOrder; orders are found by their order id here
+    // the filled quantity is read and the order reduced or taken off under the level's monitor,
+    // so a fill from another thread lands either before or after the amend
+    public  List<Trade>  amendOrder(Order order) {
+        Order resting = allOrders.get(orderId(order));
+        if (resting == null) return null;
+
+        ConcurrentSkipListMap<Double, PriceLevel> book = resting.getOrderType() == Order.OrderType.BUY ? buyOrders : sellOrders;
+        PriceLevel level = book.get(resting.getPrice());
+        if (level == null) {
+            // another thread drained the level since the lookup, the order no longer rests
+            return null;
+        }
 
-            // if buy order, only fill order if aks price less than or equal limited price.
-            if(!canExecute){
-                break;
+        long remaining;
+        synchronized (level) {
+            if (!resting.isResting()) {
+                // filled or cancelled by another thread meanwhile
+                return null;
+            }
+            long filled = resting.getOrginalQuality() - resting.getRemaningQuality();
+            remaining = order.getOrginalQuality() - filled;
+            if (remaining <= 0) {
+                if (unlink(book, level, resting)) {
+                    allOrders.remove(resting.getOrderId(), resting);
+                }
+                return Collections.emptyList();
             }
 
-            Queue<Order> ordersAtBestPrice = oppositeOrderBook.get(bestOppPrice);
+            if (order.getPrice() == resting.getPrice() && remaining <= resting.getRemaningQuality()) {
+                resting.setOrginalQuality(Math.toIntExact(order.getOrginalQuality()));
+                if (remaining < resting.getRemaningQuality()) {
+                    level.reduce(resting, resting.getRemaningQuality() - remaining);
+                    levelUpdateSink.onLevelUpdate(resting.getOrderType(), level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
+                }
+                return Collections.emptyList();
+            }
 
-            Order restingOrder =  ordersAtBestPrice.peek();
-            if(restingOrder ==null){
-                oppositeOrderBook.remove(bestOppPrice);
-                continue;
+            if (!unlink(book, level, resting)) {
+                return null;
             }
+            allOrders.remove(resting.getOrderId(), resting);
+        }
 
-            long tradeQ = Math.min(remainingQ, restingOrder.getRemaningQuality());
-            Trade trade = createTrade(
-                    limitOrder,
-                    restingOrder,
-                    bestOppPrice,
-                    tradeQ
-            );
-
-            executions.add(trade);
-            // update the quantity:
-            limitOrder.reduceQuantity(tradeQ);
-            restingOrder.reduceQuantity(tradeQ);
-            remainingQ -= tradeQ;
-
-            // Remove fully executed order
-            if(restingOrder.isOrderFilled()){
-                ordersAtBestPrice.poll();
-                allOrders.remove(restingOrder.getOrderId());
-
-                if(ordersAtBestPrice.isEmpty()){
-                    oppositeOrderBook.remove(bestOppPrice);
-                }
+        resting.setOrginalQuality(Math.toIntExact(order.getOrginalQuality()));
+        resting.setPrice(order.getPrice());
+        resting.setRemaningQuality(Math.toIntExact(remaining));
+        List<Trade> executedTrade = new ArrayList<>();
+        execute(resting, true, ExecutionSink.NONE, executedTrade);
+        if (!resting.isOrderFilled()) {
+            addOrdertoBook(resting);
+        }
+        return executedTrade;
+    }
+
+    // no account index here, it would need a lock on the add path: mass cancel scans every resting order
+    public int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        int cancelled = 0;
+        for (Order order : allOrders.values()) {
+            if (order.getAccountId() == accountId && (side == null || order.getOrderType() == side)
+                    && order.getPrice() >= minPrice && order.getPrice() <= maxPrice && cancelOrder(order)) {
+                cancelled++;
             }
         }
+        return cancelled;
+    }
 
-        return executions;
+    public void forEachOrder(long accountId, Consumer<Order> action) {
+        for (Order order : allOrders.values()) {
+            if (order.getAccountId() == accountId) {
+                action.accept(order);
+            }
+        }
     }
 
-    public  boolean cancelOrder(Order order) {
-        Order ord = allOrders.remove(order.getOrderId());
-        return ord != null;
+    public void setExecutionSink(ExecutionSink sink) {
+        this.executionSink = sink;
+    }
 
+    public void setLevelUpdateSink(LevelUpdateSink sink) {
+        this.levelUpdateSink = sink;
     }
 
-    public  List<Trade>  amendOrder(Order order) {
-        return null;
+    public void getDepth(int levels, DepthSink sink) {
+        sink.clear();
+        TradingEngineImpl.collectDepth(buyOrders, levels, sink, true);
+        TradingEngineImpl.collectDepth(sellOrders, levels, sink, false);
     }
 
 
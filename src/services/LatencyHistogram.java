@@ -0,0 +1,102 @@
+package services;
+
+import java.util.Arrays;
+
+/**
+ *  fixed size log-linear histogram of latencies in nanoseconds.
+ *
+ *  every power of two range is split into 2^SUB_BITS linear buckets, so a recorded value is
+ *  reported with at most ~6% error. recording is an array increment and never allocates;
+ *  single writer, read it from another thread only once the writer has stopped.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS];
+    private long total;
+    private long max;
+    private long sum;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucketOf(nanos)]++;
+        total++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    // values below SUB_BUCKETS map 1:1, larger ones by magnitude and their next SUB_BITS bits
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+        int sub = (int) (value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    // highest value that falls into the bucket
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS | sub) << (magnitude - 1)) + (1L << (magnitude - 1)) - 1;
+    }
+
+    /**
+     *  value at the given percentile (0-100], as the upper bound of its bucket
+     */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    // one line summary in microseconds, e.g. for end of run reports
+    public String summary() {
+        return String.format("count=%d mean=%.2fus p50=%.2fus p99=%.2fus p99.9=%.2fus p99.99=%.2fus max=%.2fus",
+                total, getMean() / 1000.0, percentile(50) / 1000.0, percentile(99) / 1000.0,
+                percentile(99.9) / 1000.0, percentile(99.99) / 1000.0, max / 1000.0);
+    }
+}
@@ -0,0 +1,18 @@
+package services;
+
+import model.Order;
+
+/**
+ *  receives the new aggregate of a price level every time an add, fill or cancel changes it,
+ *  on the matching thread. quantity 0 means the level is gone.
+ *
+ *  like ExecutionSink it only carries primitives; implementations must be quick and must not
+ *  call back into the engine.
+ */
+@FunctionalInterface
+public interface LevelUpdateSink {
+
+    LevelUpdateSink NONE = (side, price, quantity, orderCount) -> { };
+
+    void onLevelUpdate(Order.OrderType side, double price, long quantity, int orderCount);
+}
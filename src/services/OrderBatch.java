@@ -0,0 +1,79 @@
+package services;
+
+import model.Order;
+
+import java.util.Arrays;
+
+/**
+ *  reusable batch of orders submitted together through TradingEngine.addOrders, e.g. one
+ *  network packet of a gateway.
+ *
+ *  the engine processes the orders in the order they were added, exactly as the same sequence
+ *  of addOrder calls would, and records each one's outcome in the batch: its number of fills
+ *  (the stops it triggered included), or REJECTED when a stage in front of the book, such as a
+ *  risk check, turned it away. the batch only grows when more orders are added than it has room
+ *  for; clear() it before reuse.
+ */
+public class OrderBatch {
+
+    public static final int REJECTED = -1;
+
+    private Order[] orders;
+    private int[] results;
+    private int size;
+
+    public OrderBatch() {
+        this(64);
+    }
+
+    public OrderBatch(int capacity) {
+        orders = new Order[capacity];
+        results = new int[capacity];
+    }
+
+    public void add(Order order) {
+        if (size == orders.length) {
+            int capacity = Math.max(16, orders.length << 1);
+            orders = Arrays.copyOf(orders, capacity);
+            results = Arrays.copyOf(results, capacity);
+        }
+        orders[size] = order;
+        results[size] = 0;
+        size++;
+    }
+
+    public Order get(int index) {
+        return orders[index];
+    }
+
+    // fills of the order, or REJECTED
+    public int getResult(int index) {
+        return results[index];
+    }
+
+    public void setResult(int index, int result) {
+        results[index] = result;
+    }
+
+    public boolean isRejected(int index) {
+        return results[index] == REJECTED;
+    }
+
+    public void reject(int index) {
+        results[index] = REJECTED;
+    }
+
+    // drops the order references so a reused batch keeps nothing alive
+    public void clear() {
+        Arrays.fill(orders, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return orders.length;
+    }
+}
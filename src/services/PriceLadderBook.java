@@ -0,0 +1,738 @@
+package services;
+
+import codec.OrderFlyweight;
+import model.AccountIndex;
+import model.DepthSink;
+import model.IdGenerator;
+import model.LongOrderMap;
+import model.Order;
+import model.OrderQueue;
+import model.StopBook;
+import model.TickSize;
+import model.TimerWheel;
+import model.Trade;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ *  single symbol order book on integer tick prices.
+ *
+ *  prices are converted to long ticks through the instrument tick size and each side is a
+ *  fixed ladder of price levels indexed by the tick offset from a reference price, so a level
+ *  lookup is an array index instead of a tree walk on boxed Double keys.
+ *  best bid and best ask are cursors into the ladders: reading them is O(1), adding an order is O(1),
+ *  and after a level empties the cursor moves to the next occupied slot.
+ *
+ *  the ladder covers [referencePrice - levels/2, referencePrice + levels/2) ticks;
+ *  orders priced outside that band are rejected.
+ *
+ *  encoded orders (codec.OrderFlyweight) are matched in place on their tick price; an Order
+ *  object is only created for the ones that rest.
+ *
+ *  DAY and GTD orders are scheduled on a timing wheel (model.TimerWheel) driven by advanceClock.
+ *  STOP and STOP_LIMIT orders wait in a model.StopBook until a trade crosses their stop price.
+ */
+public class PriceLadderBook implements TradingEngine, AuctionBook, SessionClock {
+
+    // returned by the tick getters when a side is empty
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final String symbol;
+    private final TickSize tickSize;
+
+    // tick price of ladder slot 0
+    private final long baseTicks;
+    private final int size;
+
+    // order queues per slot, created on first use and kept for reuse when the level empties
+    private final OrderQueue[] bidLevels;
+    private final OrderQueue[] askLevels;
+
+    // resting quantity per slot; a slot is occupied when its quantity is positive
+    private final long[] bidQuantity;
+    private final long[] askQuantity;
+
+    // best bid is the highest occupied bid slot (-1 when empty)
+    // best ask is the lowest occupied ask slot (size when empty)
+    private int bestBid = -1;
+    private int bestAsk;
+
+    private int bidLevelCount;
+    private int askLevelCount;
+
+    // fills since the book was created, so a call can count its own whatever sink it writes to
+    private long fillCount;
+
+    LongOrderMap allOrders = new LongOrderMap();
+
+    final AccountIndex accountIndex = new AccountIndex();
+
+    TimerWheel expiries = new TimerWheel();
+    long sessionEnd;
+    private final Consumer<Order> expire = this::expired;
+
+    // see TradingEngineImpl.stops
+    final StopBook stops = new StopBook();
+    private final OrderQueue triggered = new OrderQueue();
+    private double tradeLow = Double.POSITIVE_INFINITY;
+    private double tradeHigh = Double.NEGATIVE_INFINITY;
+    double lastTradePrice = Double.NaN;
+
+    // see TradingEngineImpl.auction
+    boolean auction;
+    private final CallAuction callAuction = new CallAuction();
+
+    ExecutionSink executionSink = ExecutionSink.NONE;
+
+    LevelUpdateSink levelUpdateSink = LevelUpdateSink.NONE;
+
+    final IdGenerator orderIds = new IdGenerator();
+    final IdGenerator tradeIds = new IdGenerator();
+
+    public PriceLadderBook(final String symbol, final TickSize tickSize, final double referencePrice, final int levels) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("ladder needs at least one level: " + levels);
+        }
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.size = levels;
+        this.baseTicks = tickSize.toTicks(referencePrice) - levels / 2;
+        this.bidLevels = new OrderQueue[levels];
+        this.askLevels = new OrderQueue[levels];
+        this.bidQuantity = new long[levels];
+        this.askQuantity = new long[levels];
+        this.bestAsk = levels;
+    }
+
+    @Override
+    public List<Trade> addOrder(Order order) {
+        List<Trade> executedTrade = new ArrayList<>();
+        submit(order, ExecutionSink.NONE, executedTrade);
+        return executedTrade;
+    }
+
+    @Override
+    public int addOrder(Order order, ExecutionBuffer out) {
+        return submit(order, out, null);
+    }
+
+    // a plain loop over submit, see TradingEngineImpl.addOrders
+    @Override
+    public int addOrders(OrderBatch batch, ExecutionSink sink) {
+        int total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isRejected(i)) {
+                continue;
+            }
+            int fills = submit(batch.get(i), sink, null);
+            batch.setResult(i, fills);
+            total += fills;
+        }
+        return total;
+    }
+
+    // see TradingEngineImpl.submit for the time in force and stop handling; returns the fills
+    private int submit(Order order, ExecutionSink out, List<Trade> trades) {
+        if (auction) {
+            CallAuction.checkEntry(order);
+            addOrdertoBook(order);
+            return 0;
+        }
+        if (order.isStop() && !TimeInForcePolicy.isTriggered(order, lastTradePrice)) {
+            addStop(order);
+            return 0;
+        }
+        long before = fillCount;
+        TimeInForcePolicy.entryExpiry(order, sessionEnd, expiries.getTime());
+        assignId(order);
+        if (order.isStop()) {
+            activate(order, out, trades);
+        } else {
+            match(order, out, trades, TimeInForcePolicy.restsRemainder(order));
+        }
+        runStops(out, trades);
+        return (int) (fillCount - before);
+    }
+
+    private void match(Order order, ExecutionSink out, List<Trade> trades, boolean restsRemainder) {
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        int limitSlot = limitSlotOf(order);
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFill(buy, order.getRemaningQuality(), limitSlot)) {
+            return;
+        }
+        sweep(buy, order.getId(), order.getRemaningQuality(), limitSlot, out, order, trades);
+        if (restsRemainder && !order.isOrderFilled()) {
+            addOrdertoBook(order);
+        }
+    }
+
+    private void activate(Order stop, ExecutionSink out, List<Trade> trades) {
+        TimeInForcePolicy.checkStop(stop);
+        accountIndex.remove(stop);
+        expiries.cancel(stop);
+        stop.setOrderStrategy(stop.getOrderStrategy() == Order.OrderStrategy.STOP_LIMIT
+                ? Order.OrderStrategy.LIMIT_ORDER : Order.OrderStrategy.MARKET);
+        match(stop, out, trades, TimeInForcePolicy.restsTriggeredRemainder(stop));
+    }
+
+    // see TradingEngineImpl.runStops
+    private void runStops(ExecutionSink out, List<Trade> trades) {
+        while (true) {
+            if (tradeLow <= tradeHigh) {
+                if (!stops.isEmpty()) {
+                    stops.trigger(tradeLow, tradeHigh, triggered);
+                }
+                tradeLow = Double.POSITIVE_INFINITY;
+                tradeHigh = Double.NEGATIVE_INFINITY;
+            }
+            Order stop = triggered.poll();
+            if (stop == null) {
+                return;
+            }
+            activate(stop, out, trades);
+        }
+    }
+
+    // the stop price is moved onto the tick grid so it compares exactly with the trade prices
+    private void addStop(Order stop) {
+        TimeInForcePolicy.checkStop(stop);
+        stop.setStopPrice(tickSize.toPrice(tickSize.toTicks(stop.getStopPrice())));
+        long expireAt = TimeInForcePolicy.entryExpiry(stop, sessionEnd, expiries.getTime());
+        assignId(stop);
+        stops.add(stop);
+        accountIndex.add(stop);
+        if (expireAt != 0) {
+            expiries.schedule(stop, expireAt);
+        }
+    }
+
+    /**
+     *  matches an encoded order in place, without creating an Order: the engine id and the
+     *  remaining quantity are written back into the message. returns the number of fills,
+     *  including those of the stops it triggers.
+     *  a FOK message that cannot fill in full is left untouched, and an expired DAY or GTD message
+     *  throws before anything is written; resting the remainder is up to the caller
+     *  (addOrdertoBook), whatever the time in force. a stop message, or any message during the
+     *  auction, is decoded and entered like an Order
+     */
+    public int addOrder(OrderFlyweight order, ExecutionBuffer out) {
+        if (auction || order.getStrategy() == Order.OrderStrategy.STOP || order.getStrategy() == Order.OrderStrategy.STOP_LIMIT) {
+            Order decoded = order.toOrder(tickSize);
+            int fills = addOrder(decoded, out);
+            order.setId(decoded.getId());
+            order.setRemainingQuantity(decoded.getRemaningQuality());
+            return fills;
+        }
+        TimeInForcePolicy.entryExpiry(order, sessionEnd, expiries.getTime());
+        boolean buy = order.isBuy();
+        int limitSlot = order.getStrategy() == Order.OrderStrategy.LIMIT_ORDER
+                ? slotOfTicks(order.getPriceTicks())
+                : marketSlot(buy);
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFill(buy, order.getRemainingQuantity(), limitSlot)) {
+            return 0;
+        }
+        if (order.getId() == 0) {
+            order.setId(orderIds.nextId());
+        }
+        int before = out.size();
+        order.setRemainingQuantity(sweep(buy, order.getId(), order.getRemainingQuantity(), limitSlot, out, null, null));
+        runStops(out, null);
+        return out.size() - before;
+    }
+
+    /**
+     *  rests an encoded order; this is where the Order object gets created. the engine id is
+     *  written back into the message
+     */
+    public Order addOrdertoBook(OrderFlyweight order) {
+        Order resting = order.toOrder(tickSize);
+        addOrdertoBook(resting);
+        order.setId(resting.getId());
+        return resting;
+    }
+
+    // a market order is a limit order at the far end of the ladder
+    private int limitSlotOf(Order order) {
+        if (order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER) {
+            return slotOf(order.getPrice());
+        }
+        return marketSlot(order.getOrderType() == Order.OrderType.BUY);
+    }
+
+    private int marketSlot(boolean buy) {
+        return buy ? size - 1 : 0;
+    }
+
+    // FOK: sums the opposite ladder from its best slot to limitSlot without matching anything
+    private boolean canFill(boolean buy, long quantity, int limitSlot) {
+        long[] oppositeQuantity = buy ? askQuantity : bidQuantity;
+        long needed = quantity;
+        if (buy) {
+            for (int slot = bestAsk; slot <= limitSlot && slot < size; slot++) {
+                needed -= oppositeQuantity[slot];
+                if (needed <= 0) return true;
+            }
+        } else {
+            for (int slot = bestBid; slot >= limitSlot && slot >= 0; slot--) {
+                needed -= oppositeQuantity[slot];
+                if (needed <= 0) return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addOrdertoBook(Order order) {
+        if (order.isStop()) {
+            addStop(order);
+            return;
+        }
+        int slot = slotOf(order.getPrice());
+        long quantity = order.getRemaningQuality();
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("resting order needs a positive quantity: " + order.getOrderId());
+        }
+        long expireAt = TimeInForcePolicy.restingExpiry(order, sessionEnd, expiries.getTime());
+        assignId(order);
+        index(order);
+
+        if (order.getOrderType() == Order.OrderType.BUY) {
+            if (bidQuantity[slot] == 0) {
+                bidLevelCount++;
+            }
+            levelAt(bidLevels, slot).offer(order);
+            bidQuantity[slot] += quantity;
+            if (slot > bestBid) {
+                bestBid = slot;
+            }
+        } else {
+            if (askQuantity[slot] == 0) {
+                askLevelCount++;
+            }
+            levelAt(askLevels, slot).offer(order);
+            askQuantity[slot] += quantity;
+            if (slot < bestAsk) {
+                bestAsk = slot;
+            }
+        }
+        accountIndex.add(order);
+        if (expireAt != 0) {
+            expiries.schedule(order, expireAt);
+        }
+        publishLevel(order.getOrderType() == Order.OrderType.BUY, slot);
+    }
+
+    // sweeps the opposite ladder from its best slot up to (and including) limitSlot and returns
+    // the aggressor's unfilled quantity. the aggressor is either an Order, reduced as it fills, or
+    // just an id (aggressiveOrder == null) when it is matched straight off an encoded message.
+    // Trade objects are only built when the caller asked for them (trades != null)
+    private long sweep(boolean buy, long aggressorId, long quantity, int limitSlot,
+                       ExecutionSink out, Order aggressiveOrder, List<Trade> trades) {
+        OrderQueue[] oppositeLevels = buy ? askLevels : bidLevels;
+        long[] oppositeQuantity = buy ? askQuantity : bidQuantity;
+
+        long remainingQ = quantity;
+
+        while (remainingQ > 0) {
+            int best = buy ? bestAsk : bestBid;
+            boolean canExecute = buy ? best < size && best <= limitSlot : best >= 0 && best >= limitSlot;
+            if (!canExecute) {
+                break;
+            }
+
+            OrderQueue ordersAtBestPrice = oppositeLevels[best];
+            Order restingOrder = ordersAtBestPrice.peek();
+
+            long tradeQ = Math.min(remainingQ, restingOrder.getRemaningQuality());
+            double price = tickSize.toPrice(baseTicks + best);
+            long tradeId = tradeIds.nextId();
+            long timestamp = System.nanoTime();
+            long buyOrderId = buy ? aggressorId : restingOrder.getId();
+            long sellOrderId = buy ? restingOrder.getId() : aggressorId;
+
+            executionSink.onTrade(tradeId, buyOrderId, sellOrderId, price, tradeQ, timestamp);
+            out.onTrade(tradeId, buyOrderId, sellOrderId, price, tradeQ, timestamp);
+            fillCount++;
+            lastTradePrice = price;
+            if (price < tradeLow) tradeLow = price;
+            if (price > tradeHigh) tradeHigh = price;
+            if (trades != null) {
+                trades.add(new Trade(tradeId, sellOrderId, buyOrderId,
+                        buy ? restingOrder.getOrderId() : aggressiveOrder.getOrderId(),
+                        buy ? aggressiveOrder.getOrderId() : restingOrder.getOrderId(),
+                        tradeQ, price, timestamp));
+            }
+
+            if (aggressiveOrder != null) {
+                aggressiveOrder.reduceQuantity(tradeQ);
+            }
+            restingOrder.reduceQuantity(tradeQ);
+            oppositeQuantity[best] -= tradeQ;
+            remainingQ -= tradeQ;
+
+            if (restingOrder.isOrderFilled()) {
+                ordersAtBestPrice.poll();
+                allOrders.remove(restingOrder.getId());
+                accountIndex.remove(restingOrder);
+                expiries.cancel(restingOrder);
+                if (ordersAtBestPrice.isEmpty()) {
+                    levelEmptied(!buy, best);
+                }
+            }
+            publishLevel(!buy, best);
+        }
+        return remainingQ;
+    }
+
+    @Override
+    public boolean cancelOrder(Order order) {
+        Order ord = allOrders.remove(TradingEngineImpl.engineId(order));
+        if (ord == null) {
+            ord = stops.remove(order.getId());
+            if (ord == null) return false;
+        } else {
+            unlink(ord);
+        }
+        accountIndex.remove(ord);
+        expiries.cancel(ord);
+        return true;
+    }
+
+    // see TradingEngineImpl.discard
+    private void discard(Order order) {
+        if (order.isStop()) {
+            stops.remove(order.getId());
+        } else {
+            allOrders.remove(order.getId());
+            unlink(order);
+        }
+    }
+
+    private void unlink(Order ord) {
+        int slot = slotOf(ord.getPrice());
+        boolean buy = ord.getOrderType() == Order.OrderType.BUY;
+        OrderQueue ordersAtPrice = (buy ? bidLevels : askLevels)[slot];
+        if (ordersAtPrice != null && ordersAtPrice.remove(ord)) {
+            (buy ? bidQuantity : askQuantity)[slot] -= ord.getRemaningQuality();
+            if (ordersAtPrice.isEmpty()) {
+                levelEmptied(buy, slot);
+            }
+            publishLevel(buy, slot);
+        }
+    }
+
+    // see TradingEngineImpl.amendOrder
+    @Override
+    public List<Trade> amendOrder(Order order) {
+        Order resting = allOrders.get(TradingEngineImpl.engineId(order));
+        if (resting == null) return null;
+
+        long filled = resting.getOrginalQuality() - resting.getRemaningQuality();
+        long remaining = order.getOrginalQuality() - filled;
+        if (remaining <= 0) {
+            cancelOrder(resting);
+            return Collections.emptyList();
+        }
+
+        boolean buy = resting.getOrderType() == Order.OrderType.BUY;
+        int slot = slotOf(resting.getPrice());
+        int newSlot = slotOf(order.getPrice());
+        resting.setOrginalQuality(Math.toIntExact(order.getOrginalQuality()));
+
+        if (newSlot == slot && remaining <= resting.getRemaningQuality()) {
+            long reduced = resting.getRemaningQuality() - remaining;
+            if (reduced > 0) {
+                resting.reduceQuantity(reduced);
+                (buy ? bidQuantity : askQuantity)[slot] -= reduced;
+                publishLevel(buy, slot);
+            }
+            return Collections.emptyList();
+        }
+
+        cancelOrder(resting);
+        resting.setPrice(order.getPrice());
+        resting.setRemaningQuality(Math.toIntExact(remaining));
+        List<Trade> executedTrade = new ArrayList<>();
+        if (!auction) {
+            sweep(buy, resting.getId(), remaining, newSlot, ExecutionSink.NONE, resting, executedTrade);
+        }
+        if (!resting.isOrderFilled()) {
+            addOrdertoBook(resting);
+        }
+        runStops(ExecutionSink.NONE, executedTrade);
+        return executedTrade;
+    }
+
+    @Override
+    public void beginAuction() {
+        auction = true;
+    }
+
+    // see TradingEngineImpl.uncross; the candidate prices are the occupied slots from the best ask to the best bid
+    @Override
+    public int uncross(ExecutionSink out) {
+        auction = false;
+        if (!equilibrium()) {
+            return 0;
+        }
+        long before = fillCount;
+        double price = callAuction.getPrice();
+        long remaining = callAuction.getVolume();
+        long timestamp = System.nanoTime();
+        while (remaining > 0) {
+            int bidSlot = bestBid;
+            int askSlot = bestAsk;
+            Order buy = bidLevels[bidSlot].peek();
+            Order sell = askLevels[askSlot].peek();
+            long tradeQ = Math.min(remaining, Math.min(buy.getRemaningQuality(), sell.getRemaningQuality()));
+            long tradeId = tradeIds.nextId();
+            executionSink.onTrade(tradeId, buy.getId(), sell.getId(), price, tradeQ, timestamp);
+            out.onTrade(tradeId, buy.getId(), sell.getId(), price, tradeQ, timestamp);
+            fillCount++;
+            remaining -= tradeQ;
+            // a level is published once it is done with: emptied, or where the volume ran out
+            uncrossFill(true, bidSlot, buy, tradeQ, remaining);
+            uncrossFill(false, askSlot, sell, tradeQ, remaining);
+        }
+        lastTradePrice = price;
+        if (price < tradeLow) tradeLow = price;
+        if (price > tradeHigh) tradeHigh = price;
+        runStops(out, null);
+        return (int) (fillCount - before);
+    }
+
+    private void uncrossFill(boolean bidSide, int slot, Order order, long tradeQ, long remaining) {
+        order.reduceQuantity(tradeQ);
+        (bidSide ? bidQuantity : askQuantity)[slot] -= tradeQ;
+        if (order.isOrderFilled()) {
+            OrderQueue level = (bidSide ? bidLevels : askLevels)[slot];
+            level.poll();
+            allOrders.remove(order.getId());
+            accountIndex.remove(order);
+            expiries.cancel(order);
+            if (level.isEmpty()) {
+                levelEmptied(bidSide, slot);
+                publishLevel(bidSide, slot);
+                return;
+            }
+        }
+        if (remaining == 0) {
+            publishLevel(bidSide, slot);
+        }
+    }
+
+    private boolean equilibrium() {
+        callAuction.clear();
+        if (bestBid < 0 || bestAsk >= size || bestBid < bestAsk) {
+            return false;
+        }
+        for (int slot = bestAsk; slot <= bestBid; slot++) {
+            if (bidQuantity[slot] != 0 || askQuantity[slot] != 0) {
+                callAuction.add(tickSize.toPrice(baseTicks + slot), bidQuantity[slot], askQuantity[slot]);
+            }
+        }
+        double reference = Double.isNaN(lastTradePrice)
+                ? (tickSize.toPrice(baseTicks + bestBid) + tickSize.toPrice(baseTicks + bestAsk)) / 2 : lastTradePrice;
+        return callAuction.solve(reference);
+    }
+
+    // see TradingEngineImpl.getIndicativePrice
+    public double getIndicativePrice() {
+        return equilibrium() ? callAuction.getPrice() : Double.NaN;
+    }
+
+    public long getIndicativeVolume() {
+        return equilibrium() ? callAuction.getVolume() : 0;
+    }
+
+    public boolean isAuction() {
+        return auction;
+    }
+
+    // see TradingEngineImpl.cancelAll
+    @Override
+    public int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        return accountIndex.removeIf(accountId,
+                order -> (side == null || order.getOrderType() == side) && order.getPrice() >= minPrice && order.getPrice() <= maxPrice,
+                order -> {
+                    expiries.cancel(order);
+                    discard(order);
+                });
+    }
+
+    @Override
+    public void forEachOrder(long accountId, Consumer<Order> action) {
+        for (Order order = accountIndex.first(accountId); order != null; order = AccountIndex.next(order)) {
+            action.accept(order);
+        }
+    }
+
+    @Override
+    public int advanceClock(long now, Consumer<Order> expired) {
+        return expiries.advance(now, expired == null ? expire : expire.andThen(expired));
+    }
+
+    // the wheel has already unscheduled the order
+    private void expired(Order order) {
+        accountIndex.remove(order);
+        discard(order);
+    }
+
+    @Override
+    public void setSessionEnd(long time) {
+        this.sessionEnd = time;
+    }
+
+    public long getSessionEnd() {
+        return sessionEnd;
+    }
+
+    public long getClock() {
+        return expiries.getTime();
+    }
+
+    @Override
+    public void setExecutionSink(ExecutionSink sink) {
+        this.executionSink = sink;
+    }
+
+    @Override
+    public void setLevelUpdateSink(LevelUpdateSink sink) {
+        this.levelUpdateSink = sink;
+    }
+
+    private void publishLevel(boolean bidSide, int slot) {
+        OrderQueue level = (bidSide ? bidLevels : askLevels)[slot];
+        levelUpdateSink.onLevelUpdate(bidSide ? Order.OrderType.BUY : Order.OrderType.SELL,
+                tickSize.toPrice(baseTicks + slot),
+                (bidSide ? bidQuantity : askQuantity)[slot],
+                level == null ? 0 : level.size());
+    }
+
+    @Override
+    public void getDepth(int levels, DepthSink sink) {
+        sink.clear();
+        int slot = bestBid;
+        for (int i = 0; i < levels && slot >= 0; i++) {
+            if (!sink.addBid(tickSize.toPrice(baseTicks + slot), bidQuantity[slot], bidLevels[slot].size())) break;
+            do slot--; while (slot >= 0 && bidQuantity[slot] == 0);
+        }
+        slot = bestAsk;
+        for (int i = 0; i < levels && slot < size; i++) {
+            if (!sink.addAsk(tickSize.toPrice(baseTicks + slot), askQuantity[slot], askLevels[slot].size())) break;
+            do slot++; while (slot < size && askQuantity[slot] == 0);
+        }
+    }
+
+    // clears the slot and, if it was the best level, walks the cursor to the next occupied slot
+    private void levelEmptied(boolean bidSide, int slot) {
+        if (bidSide) {
+            bidQuantity[slot] = 0;
+            bidLevelCount--;
+            if (slot == bestBid) {
+                int next = slot - 1;
+                while (next >= 0 && bidQuantity[next] == 0) next--;
+                bestBid = next;
+            }
+        } else {
+            askQuantity[slot] = 0;
+            askLevelCount--;
+            if (slot == bestAsk) {
+                int next = slot + 1;
+                while (next < size && askQuantity[next] == 0) next++;
+                bestAsk = next;
+            }
+        }
+    }
+
+    private static OrderQueue levelAt(OrderQueue[] levels, int slot) {
+        OrderQueue level = levels[slot];
+        if (level == null) {
+            level = new OrderQueue();
+            levels[slot] = level;
+        }
+        return level;
+    }
+
+    private int slotOf(double price) {
+        return slotOfTicks(tickSize.toTicks(price));
+    }
+
+    private int slotOfTicks(long ticks) {
+        long offset = ticks - baseTicks;
+        if (offset < 0 || offset >= size) {
+            throw new IllegalArgumentException("price " + tickSize.toPrice(ticks) + " is outside the " + symbol + " ladder ["
+                    + tickSize.toPrice(baseTicks) + ", " + tickSize.toPrice(baseTicks + size - 1) + "]");
+        }
+        return (int) offset;
+    }
+
+    // orders get an engine id the first time they reach the engine
+    private void assignId(Order order) {
+        if (order.getId() == 0) {
+            order.setId(orderIds.nextId());
+        }
+    }
+
+    // see TradingEngineImpl.index
+    private void index(Order order) {
+        Order previous = allOrders.put(order.getId(), order);
+        if (previous != null) {
+            allOrders.put(previous.getId(), previous);
+            throw new IllegalStateException("order " + order.getId() + " is already resting");
+        }
+    }
+
+    public long getBestBidTicks() {
+        return bestBid < 0 ? NO_PRICE : baseTicks + bestBid;
+    }
+
+    public long getBestAskTicks() {
+        return bestAsk >= size ? NO_PRICE : baseTicks + bestAsk;
+    }
+
+    // in ticks, NO_PRICE unless both sides are present
+    public long getSpreadTicks() {
+        return bestBid < 0 || bestAsk >= size ? NO_PRICE : bestAsk - bestBid;
+    }
+
+    public Double getBestBid() {
+        return bestBid < 0 ? null : tickSize.toPrice(baseTicks + bestBid);
+    }
+
+    public Double getBestAsk() {
+        return bestAsk >= size ? null : tickSize.toPrice(baseTicks + bestAsk);
+    }
+
+    public Double getSpread() {
+        long spread = getSpreadTicks();
+        return spread == NO_PRICE ? null : tickSize.toPrice(spread);
+    }
+
+    // NaN before the first trade
+    public double getLastTradePrice() {
+        return lastTradePrice;
+    }
+
+    // Statistics
+    public int getTotalOrderCount() {
+        return allOrders.size();
+    }
+
+    public int getStopOrderCount() {
+        return stops.size();
+    }
+
+    public int getBidLevels() {
+        return bidLevelCount;
+    }
+
+    public int getAskLevels() {
+        return askLevelCount;
+    }
+
+    public TickSize getTickSize() {
+        return tickSize;
+    }
+}
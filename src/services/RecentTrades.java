@@ -0,0 +1,65 @@
+package services;
+
+import model.Trade;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  bounded retention of the most recent fills.
+ *
+ *  a ring of preallocated Trade objects that are overwritten in place, so memory stays
+ *  constant however many fills the engine produces. register it as (part of) the engine's
+ *  ExecutionSink; it must be read on the matching thread, e.g. between commands.
+ */
+public class RecentTrades implements ExecutionSink {
+
+    private final Trade[] ring;
+    private final int mask;
+    private long total;
+
+    public RecentTrades(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        // rounded up to a power of two so the slot is a mask of the sequence
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        ring = new Trade[size];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Trade();
+        }
+        mask = ring.length - 1;
+    }
+
+    @Override
+    public void onTrade(long tradeId, long buyOrderId, long sellOrderId, double price, long quantity, long timestamp) {
+        ring[(int) (total++ & mask)].set(tradeId, sellOrderId, buyOrderId, quantity, price, timestamp);
+    }
+
+    /**
+     *  copies of the retained trades, oldest first
+     */
+    public List<Trade> snapshot() {
+        int count = size();
+        List<Trade> copy = new ArrayList<>(count);
+        for (long seq = total - count; seq < total; seq++) {
+            Trade trade = ring[(int) (seq & mask)];
+            copy.add(new Trade(trade.getId(), trade.getSellId(), trade.getBuyId(), null, null,
+                    trade.getTradeQuality(), trade.getPrice(), trade.getTimestamp()));
+        }
+        return copy;
+    }
+
+    public int size() {
+        return (int) Math.min(total, ring.length);
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    // fills seen since creation, including the ones already overwritten
+    public long getTotalTrades() {
+        return total;
+    }
+}
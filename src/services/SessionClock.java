@@ -0,0 +1,24 @@
+package services;
+
+import model.Order;
+
+import java.util.function.Consumer;
+
+/**
+ *  the engine clock that expires DAY and GTD orders: TradingEngineImpl and PriceLadderBook. an
+ *  engine without one refuses those orders and does not implement it
+ */
+public interface SessionClock {
+
+    // moves the engine clock forward (any unit, e.g. epoch millis) and cancels every DAY / GTD
+    // order expiring at or before now, handing each to expired (may be null) once it is off the
+    // book. returns how many expired
+    int advanceClock(long now, Consumer<Order> expired);
+
+    default int advanceClock(long now) {
+        return advanceClock(now, null);
+    }
+
+    // the clock time DAY orders entered from now on expire at
+    void setSessionEnd(long time);
+}
@@ -0,0 +1,546 @@
+package services;
+
+import model.DepthSink;
+import model.IdGenerator;
+import model.Order;
+import model.OrderStore;
+import model.SlotIndex;
+import model.TickSize;
+import model.Trade;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ *  single symbol tick ladder (see PriceLadderBook) whose resting orders are slots in a
+ *  model.OrderStore rather than Order objects.
+ *
+ *  a resting order is a record in the store, found by id through a model.SlotIndex, and every
+ *  price level is a FIFO of slots linked through the records' prev / next fields. the matching
+ *  loop reads and reduces quantities in the store directly. with a model.OrderSlab the records and
+ *  the index live off the heap and the heap holds nothing per order; with a model.OrderPool they
+ *  are a few primitive columns on the heap. either way there is no order graph for a collection
+ *  to mark or copy.
+ *
+ *  the Order passed to addOrder is read, not kept: it gets its engine id and its remaining
+ *  quantity back like with the other engines, but what rests is a copy, so its isResting() stays
+ *  false; ask the book (isResting(id), getRemainingQuantity(id)). orders handed out by
+ *  forEachOrder are copies as well. cancelOrder and amendOrder find the order by its engine id.
+ *  that is why it is only a CommandTarget and not a TradingEngine: RiskCheckedEngine, ReplayDriver
+ *  and LoadRunner follow the caller's Order objects on the book and cannot wrap or drive it.
+ *
+ *  LIMIT and MARKET orders with GTC, IOC or FOK (or no) time in force. there is no clock, no
+ *  stop book and no auction: DAY / GTD and stop orders are refused with an
+ *  IllegalArgumentException, use PriceLadderBook for those. no account index either, mass cancel
+ *  scans the store
+ */
+public class SlotLadderBook implements CommandTarget {
+
+    private static final long NIL = OrderStore.NIL;
+
+    private final String symbol;
+    private final TickSize tickSize;
+
+    // tick price of ladder slot 0
+    private final long baseTicks;
+    private final int size;
+
+    // first and last order slot per ladder slot, NIL when the level is empty
+    private final long[] bidHeads;
+    private final long[] bidTails;
+    private final long[] askHeads;
+    private final long[] askTails;
+
+    // resting quantity and order count per ladder slot; a slot is occupied when its quantity is positive
+    private final long[] bidQuantity;
+    private final long[] askQuantity;
+    private final int[] bidOrders;
+    private final int[] askOrders;
+
+    // see PriceLadderBook.bestBid
+    private int bestBid = -1;
+    private int bestAsk;
+
+    private int bidLevelCount;
+    private int askLevelCount;
+
+    private long fillCount;
+
+    final OrderStore orders;
+    final SlotIndex index;
+
+    ExecutionSink executionSink = ExecutionSink.NONE;
+
+    LevelUpdateSink levelUpdateSink = LevelUpdateSink.NONE;
+
+    final IdGenerator orderIds = new IdGenerator();
+    final IdGenerator tradeIds = new IdGenerator();
+
+    public SlotLadderBook(final String symbol, final TickSize tickSize, final double referencePrice, final int levels,
+                          final OrderStore orders) {
+        this(symbol, tickSize, referencePrice, levels, orders, 1024);
+    }
+
+    // expectedOrders sizes the index up front, so a deep book never rehashes it
+    public SlotLadderBook(final String symbol, final TickSize tickSize, final double referencePrice, final int levels,
+                          final OrderStore orders, final long expectedOrders) {
+        if (levels <= 0) {
+            throw new IllegalArgumentException("ladder needs at least one level: " + levels);
+        }
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.size = levels;
+        this.baseTicks = tickSize.toTicks(referencePrice) - levels / 2;
+        this.bidHeads = newLinks(levels);
+        this.bidTails = newLinks(levels);
+        this.askHeads = newLinks(levels);
+        this.askTails = newLinks(levels);
+        this.bidQuantity = new long[levels];
+        this.askQuantity = new long[levels];
+        this.bidOrders = new int[levels];
+        this.askOrders = new int[levels];
+        this.bestAsk = levels;
+        this.orders = orders;
+        this.index = new SlotIndex(expectedOrders, orders.isOffHeap());
+    }
+
+    private static long[] newLinks(int levels) {
+        long[] links = new long[levels];
+        Arrays.fill(links, NIL);
+        return links;
+    }
+
+    public List<Trade> addOrder(Order order) {
+        List<Trade> executedTrade = new ArrayList<>();
+        submit(order, ExecutionSink.NONE, executedTrade);
+        return executedTrade;
+    }
+
+    @Override
+    public int addOrder(Order order, ExecutionBuffer out) {
+        return submit(order, out, null);
+    }
+
+    public int addOrders(OrderBatch batch, ExecutionSink sink) {
+        int total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isRejected(i)) {
+                continue;
+            }
+            int fills = submit(batch.get(i), sink, null);
+            batch.setResult(i, fills);
+            total += fills;
+        }
+        return total;
+    }
+
+    private int submit(Order order, ExecutionSink out, List<Trade> trades) {
+        checkSupported(order);
+        long before = fillCount;
+        assignId(order);
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        int limitSlot = order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER ? slotOf(order.getPrice()) : marketSlot(buy);
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFill(buy, order.getRemaningQuality(), limitSlot)) {
+            return 0;
+        }
+        sweep(buy, order.getId(), order.getRemaningQuality(), limitSlot, out, order, trades);
+        if (TimeInForcePolicy.restsRemainder(order)) {
+            rest(order);
+        }
+        return (int) (fillCount - before);
+    }
+
+    private static void checkSupported(Order order) {
+        if (order.getTimeInForce() == Order.TimeInForce.DAY || order.getTimeInForce() == Order.TimeInForce.GTD) {
+            throw new IllegalArgumentException(order.getTimeInForce() + " order " + order.getOrderId() + " needs an engine with a clock, use PriceLadderBook");
+        }
+        if (order.isStop()) {
+            throw new IllegalArgumentException(order.getOrderStrategy() + " order " + order.getOrderId() + " needs a stop book, use PriceLadderBook");
+        }
+    }
+
+    private int marketSlot(boolean buy) {
+        return buy ? size - 1 : 0;
+    }
+
+    // see PriceLadderBook.canFill
+    private boolean canFill(boolean buy, long quantity, int limitSlot) {
+        long[] oppositeQuantity = buy ? askQuantity : bidQuantity;
+        long needed = quantity;
+        if (buy) {
+            for (int slot = bestAsk; slot <= limitSlot && slot < size; slot++) {
+                needed -= oppositeQuantity[slot];
+                if (needed <= 0) return true;
+            }
+        } else {
+            for (int slot = bestBid; slot >= limitSlot && slot >= 0; slot--) {
+                needed -= oppositeQuantity[slot];
+                if (needed <= 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *  copies the order onto the book; the Order object itself is not kept
+     */
+    @Override
+    public void addOrdertoBook(Order order) {
+        checkSupported(order);
+        if (order.getRemaningQuality() <= 0) {
+            throw new IllegalArgumentException("resting order needs a positive quantity: " + order.getOrderId());
+        }
+        TimeInForcePolicy.restingExpiry(order, 0, 0);
+        assignId(order);
+        rest(order);
+    }
+
+    private void rest(Order order) {
+        int level = slotOf(order.getPrice());
+        long slot = orders.allocate();
+        // written before it is indexed, so an order the store cannot take leaves nothing behind
+        try {
+            orders.write(slot, order);
+        } catch (RuntimeException e) {
+            orders.release(slot);
+            throw e;
+        }
+        orders.setPriceTicks(slot, baseTicks + level);
+        // one probe of the index for the duplicate check and the insert
+        long previous = index.put(order.getId(), slot);
+        if (previous != NIL) {
+            index.put(order.getId(), previous);
+            orders.release(slot);
+            throw new IllegalStateException("order " + order.getId() + " is already resting");
+        }
+
+        long quantity = order.getRemaningQuality();
+        if (order.getOrderType() == Order.OrderType.BUY) {
+            if (bidQuantity[level] == 0) {
+                bidLevelCount++;
+            }
+            offer(bidHeads, bidTails, level, slot);
+            bidOrders[level]++;
+            bidQuantity[level] += quantity;
+            if (level > bestBid) {
+                bestBid = level;
+            }
+        } else {
+            if (askQuantity[level] == 0) {
+                askLevelCount++;
+            }
+            offer(askHeads, askTails, level, slot);
+            askOrders[level]++;
+            askQuantity[level] += quantity;
+            if (level < bestAsk) {
+                bestAsk = level;
+            }
+        }
+        publishLevel(order.getOrderType() == Order.OrderType.BUY, level);
+    }
+
+    private void offer(long[] heads, long[] tails, int level, long slot) {
+        long tail = tails[level];
+        orders.setPrev(slot, tail);
+        orders.setNext(slot, NIL);
+        if (tail == NIL) {
+            heads[level] = slot;
+        } else {
+            orders.setNext(tail, slot);
+        }
+        tails[level] = slot;
+    }
+
+    private void unlink(long[] heads, long[] tails, int level, long slot) {
+        long prev = orders.getPrev(slot);
+        long next = orders.getNext(slot);
+        if (prev == NIL) {
+            heads[level] = next;
+        } else {
+            orders.setNext(prev, next);
+        }
+        if (next == NIL) {
+            tails[level] = prev;
+        } else {
+            orders.setPrev(next, prev);
+        }
+    }
+
+    // see PriceLadderBook.sweep; the resting side is read and reduced in its store record
+    private long sweep(boolean buy, long aggressorId, long quantity, int limitSlot,
+                       ExecutionSink out, Order aggressiveOrder, List<Trade> trades) {
+        long[] oppositeHeads = buy ? askHeads : bidHeads;
+        long[] oppositeTails = buy ? askTails : bidTails;
+        long[] oppositeQuantity = buy ? askQuantity : bidQuantity;
+        int[] oppositeOrders = buy ? askOrders : bidOrders;
+
+        long remainingQ = quantity;
+
+        while (remainingQ > 0) {
+            int best = buy ? bestAsk : bestBid;
+            boolean canExecute = buy ? best < size && best <= limitSlot : best >= 0 && best >= limitSlot;
+            if (!canExecute) {
+                break;
+            }
+
+            long resting = oppositeHeads[best];
+            int restingQ = orders.getRemainingQuantity(resting);
+            long restingId = orders.getId(resting);
+
+            int tradeQ = (int) Math.min(remainingQ, restingQ);
+            double price = tickSize.toPrice(baseTicks + best);
+            long tradeId = tradeIds.nextId();
+            long timestamp = System.nanoTime();
+            long buyOrderId = buy ? aggressorId : restingId;
+            long sellOrderId = buy ? restingId : aggressorId;
+
+            executionSink.onTrade(tradeId, buyOrderId, sellOrderId, price, tradeQ, timestamp);
+            out.onTrade(tradeId, buyOrderId, sellOrderId, price, tradeQ, timestamp);
+            fillCount++;
+            if (trades != null) {
+                // the resting side keeps no string order id
+                trades.add(new Trade(tradeId, sellOrderId, buyOrderId,
+                        buy ? null : aggressiveOrder.getOrderId(),
+                        buy ? aggressiveOrder.getOrderId() : null,
+                        tradeQ, price, timestamp));
+            }
+
+            aggressiveOrder.reduceQuantity(tradeQ);
+            orders.setRemainingQuantity(resting, restingQ - tradeQ);
+            oppositeQuantity[best] -= tradeQ;
+            remainingQ -= tradeQ;
+
+            if (restingQ == tradeQ) {
+                unlink(oppositeHeads, oppositeTails, best, resting);
+                oppositeOrders[best]--;
+                index.remove(restingId);
+                orders.release(resting);
+                if (oppositeHeads[best] == NIL) {
+                    levelEmptied(!buy, best);
+                }
+            }
+            publishLevel(!buy, best);
+        }
+        return remainingQ;
+    }
+
+    @Override
+    public boolean cancelOrder(Order order) {
+        long slot = index.remove(TradingEngineImpl.engineId(order));
+        if (slot == NIL) {
+            return false;
+        }
+        remove(slot);
+        return true;
+    }
+
+    // takes an indexed-out slot off its level and frees it
+    private void remove(long slot) {
+        boolean buy = orders.isBuy(slot);
+        int level = (int) (orders.getPriceTicks(slot) - baseTicks);
+        if (buy) {
+            unlink(bidHeads, bidTails, level, slot);
+            bidOrders[level]--;
+            bidQuantity[level] -= orders.getRemainingQuantity(slot);
+            if (bidHeads[level] == NIL) {
+                levelEmptied(true, level);
+            }
+        } else {
+            unlink(askHeads, askTails, level, slot);
+            askOrders[level]--;
+            askQuantity[level] -= orders.getRemainingQuantity(slot);
+            if (askHeads[level] == NIL) {
+                levelEmptied(false, level);
+            }
+        }
+        orders.release(slot);
+        publishLevel(buy, level);
+    }
+
+    // see TradingEngineImpl.amendOrder; a re-entered order is read back into an Order for the sweep
+    @Override
+    public List<Trade> amendOrder(Order order) {
+        long slot = index.get(TradingEngineImpl.engineId(order));
+        if (slot == NIL) return null;
+
+        long filled = orders.getOriginalQuantity(slot) - orders.getRemainingQuantity(slot);
+        long remaining = order.getOrginalQuality() - filled;
+        if (remaining <= 0) {
+            cancelOrder(order);
+            return Collections.emptyList();
+        }
+
+        boolean buy = orders.isBuy(slot);
+        int level = (int) (orders.getPriceTicks(slot) - baseTicks);
+        int newLevel = slotOf(order.getPrice());
+        int restingQ = orders.getRemainingQuantity(slot);
+
+        if (newLevel == level && remaining <= restingQ) {
+            orders.setOriginalQuantity(slot, Math.toIntExact(order.getOrginalQuality()));
+            long reduced = restingQ - remaining;
+            if (reduced > 0) {
+                orders.setRemainingQuantity(slot, (int) remaining);
+                (buy ? bidQuantity : askQuantity)[level] -= reduced;
+                publishLevel(buy, level);
+            }
+            return Collections.emptyList();
+        }
+
+        Order resting = orders.read(slot, new Order(), tickSize);
+        resting.setTicker(symbol);
+        index.remove(resting.getId());
+        remove(slot);
+        resting.setOrginalQuality(Math.toIntExact(order.getOrginalQuality()));
+        resting.setPrice(order.getPrice());
+        resting.setRemaningQuality(Math.toIntExact(remaining));
+        List<Trade> executedTrade = new ArrayList<>();
+        sweep(buy, resting.getId(), remaining, newLevel, ExecutionSink.NONE, resting, executedTrade);
+        if (!resting.isOrderFilled()) {
+            rest(resting);
+        }
+        return executedTrade;
+    }
+
+    public int cancelAll(long accountId) {
+        return cancelAll(accountId, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    // see TradingEngine.cancelAll. no account index: one pass over every slot handed out so far.
+    // the bounds are compared as prices, so they may lie anywhere, on the tick grid or not
+    public int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        int cancelled = 0;
+        for (long slot = 0; slot < orders.getHighWater(); slot++) {
+            if (orders.isUsed(slot) && orders.getAccountId(slot) == accountId
+                    && (side == null || orders.isBuy(slot) == (side == Order.OrderType.BUY))
+                    && inRange(tickSize.toPrice(orders.getPriceTicks(slot)), minPrice, maxPrice)) {
+                index.remove(orders.getId(slot));
+                remove(slot);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    private static boolean inRange(double price, double minPrice, double maxPrice) {
+        return price >= minPrice && price <= maxPrice;
+    }
+
+    // each order is handed out as a fresh copy of its record
+    public void forEachOrder(long accountId, Consumer<Order> action) {
+        for (long slot = 0; slot < orders.getHighWater(); slot++) {
+            if (orders.isUsed(slot) && orders.getAccountId(slot) == accountId) {
+                Order order = orders.read(slot, new Order(), tickSize);
+                order.setTicker(symbol);
+                action.accept(order);
+            }
+        }
+    }
+
+    public void setExecutionSink(ExecutionSink sink) {
+        this.executionSink = sink;
+    }
+
+    public void setLevelUpdateSink(LevelUpdateSink sink) {
+        this.levelUpdateSink = sink;
+    }
+
+    private void publishLevel(boolean bidSide, int slot) {
+        levelUpdateSink.onLevelUpdate(bidSide ? Order.OrderType.BUY : Order.OrderType.SELL,
+                tickSize.toPrice(baseTicks + slot),
+                (bidSide ? bidQuantity : askQuantity)[slot],
+                (bidSide ? bidOrders : askOrders)[slot]);
+    }
+
+    public void getDepth(int levels, DepthSink sink) {
+        sink.clear();
+        int slot = bestBid;
+        for (int i = 0; i < levels && slot >= 0; i++) {
+            if (!sink.addBid(tickSize.toPrice(baseTicks + slot), bidQuantity[slot], bidOrders[slot])) break;
+            do slot--; while (slot >= 0 && bidQuantity[slot] == 0);
+        }
+        slot = bestAsk;
+        for (int i = 0; i < levels && slot < size; i++) {
+            if (!sink.addAsk(tickSize.toPrice(baseTicks + slot), askQuantity[slot], askOrders[slot])) break;
+            do slot++; while (slot < size && askQuantity[slot] == 0);
+        }
+    }
+
+    // see PriceLadderBook.levelEmptied
+    private void levelEmptied(boolean bidSide, int slot) {
+        if (bidSide) {
+            bidQuantity[slot] = 0;
+            bidLevelCount--;
+            if (slot == bestBid) {
+                int next = slot - 1;
+                while (next >= 0 && bidQuantity[next] == 0) next--;
+                bestBid = next;
+            }
+        } else {
+            askQuantity[slot] = 0;
+            askLevelCount--;
+            if (slot == bestAsk) {
+                int next = slot + 1;
+                while (next < size && askQuantity[next] == 0) next++;
+                bestAsk = next;
+            }
+        }
+    }
+
+    private int slotOf(double price) {
+        long offset = tickSize.toTicks(price) - baseTicks;
+        if (offset < 0 || offset >= size) {
+            throw new IllegalArgumentException("price " + price + " is outside the " + symbol + " ladder ["
+                    + tickSize.toPrice(baseTicks) + ", " + tickSize.toPrice(baseTicks + size - 1) + "]");
+        }
+        return (int) offset;
+    }
+
+    private void assignId(Order order) {
+        if (order.getId() == 0) {
+            order.setId(orderIds.nextId());
+        }
+    }
+
+    public boolean isResting(long orderId) {
+        return index.get(orderId) != NIL;
+    }
+
+    // 0 when the order does not rest
+    public int getRemainingQuantity(long orderId) {
+        long slot = index.get(orderId);
+        return slot == NIL ? 0 : orders.getRemainingQuantity(slot);
+    }
+
+    public Double getBestBid() {
+        return bestBid < 0 ? null : tickSize.toPrice(baseTicks + bestBid);
+    }
+
+    public Double getBestAsk() {
+        return bestAsk >= size ? null : tickSize.toPrice(baseTicks + bestAsk);
+    }
+
+    // Statistics
+    public int getTotalOrderCount() {
+        return (int) index.size();
+    }
+
+    public int getBidLevels() {
+        return bidLevelCount;
+    }
+
+    public int getAskLevels() {
+        return askLevelCount;
+    }
+
+    // direct memory of the store and the index, 0 for an OrderPool book
+    public long getOffHeapBytes() {
+        return orders.getOffHeapBytes() + index.getOffHeapBytes();
+    }
+
+    public TickSize getTickSize() {
+        return tickSize;
+    }
+}
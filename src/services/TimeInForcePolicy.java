@@ -0,0 +1,96 @@
+package services;
+
+import codec.OrderFlyweight;
+import model.Order;
+
+/**
+ *  time in force and stop trigger rules shared by the engines that support them
+ */
+final class TimeInForcePolicy {
+
+    private TimeInForcePolicy() {
+    }
+
+    /**
+     *  the clock time the order expires at once resting, 0 if it never does. throws before the
+     *  order touches the book when it cannot rest: IOC/FOK, or already expired
+     */
+    static long restingExpiry(Order order, long sessionEnd, long now) {
+        Order.TimeInForce timeInForce = order.getTimeInForce();
+        if (timeInForce == null || timeInForce == Order.TimeInForce.GTC) {
+            return 0;
+        }
+        if (timeInForce == Order.TimeInForce.IOC || timeInForce == Order.TimeInForce.FOK) {
+            throw new IllegalArgumentException(timeInForce + " order " + order.getOrderId() + " cannot rest");
+        }
+        return entryExpiry(order, sessionEnd, now);
+    }
+
+    /**
+     *  the same check for an order entering through addOrder, where IOC and FOK are fine
+     */
+    static long entryExpiry(Order order, long sessionEnd, long now) {
+        Order.TimeInForce timeInForce = order.getTimeInForce();
+        if (timeInForce != Order.TimeInForce.DAY && timeInForce != Order.TimeInForce.GTD) {
+            return 0;
+        }
+        return entryExpiry(timeInForce, order.getExpireTime(), order.getOrderId(), sessionEnd, now);
+    }
+
+    // the same for an encoded order; its id string is only decoded for DAY and GTD messages
+    static long entryExpiry(OrderFlyweight order, long sessionEnd, long now) {
+        Order.TimeInForce timeInForce = order.getTimeInForce();
+        if (timeInForce != Order.TimeInForce.DAY && timeInForce != Order.TimeInForce.GTD) {
+            return 0;
+        }
+        return entryExpiry(timeInForce, order.getExpireTime(), order.getOrderId(), sessionEnd, now);
+    }
+
+    private static long entryExpiry(Order.TimeInForce timeInForce, long expireTime, String orderId, long sessionEnd, long now) {
+        long expireAt;
+        if (timeInForce == Order.TimeInForce.DAY) {
+            // an order that rested before keeps the session end it was stamped with
+            expireAt = expireTime != 0 ? expireTime : sessionEnd;
+            if (expireAt == 0) {
+                throw new IllegalStateException("DAY order " + orderId + " but no session end is set");
+            }
+        } else {
+            expireAt = expireTime;
+            if (expireAt == 0) {
+                throw new IllegalArgumentException("GTD order " + orderId + " has no expire time");
+            }
+        }
+        if (expireAt <= now) {
+            throw new IllegalArgumentException("order " + orderId + " expired at " + expireAt + ", clock is " + now);
+        }
+        return expireAt;
+    }
+
+    // whether what addOrder leaves unfilled goes on the book; market orders never rest
+    static boolean restsRemainder(Order order) {
+        Order.TimeInForce timeInForce = order.getTimeInForce();
+        return timeInForce != null && timeInForce != Order.TimeInForce.IOC && timeInForce != Order.TimeInForce.FOK
+                && order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER && !order.isOrderFilled();
+    }
+
+    // a triggered stop limit keeps working like an order put on the book: a null time in force
+    // counts as GTC here
+    static boolean restsTriggeredRemainder(Order order) {
+        return order.getTimeInForce() == null
+                ? order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER && !order.isOrderFilled()
+                : restsRemainder(order);
+    }
+
+    static void checkStop(Order order) {
+        if (!(order.getStopPrice() > 0)) {
+            throw new IllegalArgumentException(order.getOrderStrategy() + " order " + order.getOrderId()
+                    + " needs a positive stop price: " + order.getStopPrice());
+        }
+    }
+
+    // a buy stop triggers on a trade at or above its stop price, a sell stop at or below;
+    // nothing triggers before the first trade (NaN)
+    static boolean isTriggered(Order stop, double tradePrice) {
+        return stop.getOrderType() == Order.OrderType.BUY ? tradePrice >= stop.getStopPrice() : tradePrice <= stop.getStopPrice();
+    }
+}
@@ -1,13 +1,63 @@
 package services;
 
+import model.DepthSink;
 import model.Order;
 import model.Trade;
 
 import java.util.List;
+import java.util.function.Consumer;
 
-public interface TradingEngine {
+/**
+ *  a single symbol matching engine. call auctions and the expiry clock are AuctionBook and
+ *  SessionClock, implemented by the engines that have them
+ */
+public interface TradingEngine extends CommandTarget {
    List<Trade> addOrder(Order order);
+
+    // allocation free matching: fills are appended to a reusable buffer, returns the number of fills
+    @Override
+    int addOrder(Order order, ExecutionBuffer out);
+
+    // a batch of orders in one call: processed in arrival order like the same addOrder calls, with
+    // every fill going to the sink and each order's fill count (or rejection) recorded in the batch.
+    // returns the fills of the whole batch. an order the engine refuses throws as from addOrder
+    // and the rest of the batch is not processed. it is for callers that receive orders in
+    // batches, such as a gateway packet: the engines do the same work per order as addOrder
+    int addOrders(OrderBatch batch, ExecutionSink sink);
+
+    // the order carries the engine id addOrder assigned (HPBookOrder: its order id); one without
+    // it throws IllegalArgumentException rather than reading as not resting
+    @Override
     boolean cancelOrder(Order order);
+
+    // the order carries the engine id of a resting order (HPBookOrder: its order id), the new
+    // price and the new total quantity as original quantity. a reduction at the same price keeps
+    // time priority; a price change or an increase re-enters the order, which may match first.
+    // a total at or below the quantity already filled ends the order like a cancel.
+    // returns the fills, empty when amended in place, null when the order is not resting
+    @Override
     List<Trade>  amendOrder( Order order);
+
+    @Override
     void addOrdertoBook(Order order);
+
+    // cancels every resting order of the account in one pass, returns how many were cancelled
+    default int cancelAll(long accountId) {
+        return cancelAll(accountId, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    // the same limited to one side (null for both) and prices in [minPrice, maxPrice]
+    int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice);
+
+    // every resting order of the account, e.g. to list them or settle state after a mass cancel
+    void forEachOrder(long accountId, Consumer<Order> action);
+
+    // fills the caller's sink with up to `levels` best levels per side, without allocating
+    void getDepth(int levels, DepthSink sink);
+
+    // every fill is published to the sink as it happens; use RecentTrades to keep a bounded history
+    void setExecutionSink(ExecutionSink sink);
+
+    // every change of a level's aggregate quantity is published to the sink, e.g. for market data
+    void setLevelUpdateSink(LevelUpdateSink sink);
 }
@@ -1,136 +1,377 @@
 package services;
 
+import model.AccountIndex;
+import model.DepthSink;
+import model.IdGenerator;
+import model.LongOrderMap;
 import model.Order;
+import model.OrderQueue;
+import model.PriceLevel;
+import model.StopBook;
+import model.TimerWheel;
 import model.Trade;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  *  simple order books for single symbol
- *   to extend to support multiple asset class or symbol such as amazon/apple/google
+ *   multiple symbols such as amazon/apple/google are served by router.MatchingEngineRouter,
+ *   which owns one engine per symbol
  */
-public class TradingEngineImpl implements TradingEngine{
+public class TradingEngineImpl implements TradingEngine, AuctionBook, SessionClock {
 
 
     // using tree map with revere oder to maintain the buy order
     // higher price going first
 
     private final String symbol;
-    TreeMap<Double, Queue<Order>> buyOrders = new TreeMap<>(Collections.reverseOrder());
+    TreeMap<Double, PriceLevel> buyOrders = new TreeMap<>(Collections.reverseOrder());
 
     // using tree for selling orders
     // Order with the lowest price with got higher priority
-    TreeMap<Double, Queue<Order>> sellOrders = new TreeMap<>();
+    TreeMap<Double, PriceLevel> sellOrders = new TreeMap<>();
 
-    // all trades
+    // best level of each side, resolved from the tree on first use and kept until a level is
+    // added to or removed from that side: consecutive fills and orders skip the tree descents
+    private PriceLevel bestBidLevel;
+    private PriceLevel bestAskLevel;
 
-    Map<String, Order> allOrders = new ConcurrentHashMap<>();
+    // resting orders by engine id
 
-    List<Trade> trades = new ArrayList<>();
+    LongOrderMap allOrders = new LongOrderMap();
+
+    // resting orders by account, for mass cancel
+    final AccountIndex accountIndex = new AccountIndex();
+
+    // DAY and GTD orders by expiry; its time is the engine clock
+    TimerWheel expiries = new TimerWheel();
+    long sessionEnd;
+    private final Consumer<Order> expire = this::expired;
+
+    // pending STOP / STOP_LIMIT orders, and the triggered ones waiting to run
+    final StopBook stops = new StopBook();
+    private final OrderQueue triggered = new OrderQueue();
+
+    // price range of the trades since stops were last triggered (low > high: none), and the last trade
+    private double tradeLow = Double.POSITIVE_INFINITY;
+    private double tradeHigh = Double.NEGATIVE_INFINITY;
+    double lastTradePrice = Double.NaN;
+
+    // between beginAuction and uncross orders only accumulate, the book may cross meanwhile
+    boolean auction;
+    private final CallAuction callAuction = new CallAuction();
+
+    // fills are streamed out instead of being accumulated in the engine
+
+    ExecutionSink executionSink = ExecutionSink.NONE;
+
+    LevelUpdateSink levelUpdateSink = LevelUpdateSink.NONE;
+
+    // one sequence per engine; the node prefix keeps ids unique across engines/shards
+    final IdGenerator orderIds;
+    final IdGenerator tradeIds;
 
     public TradingEngineImpl(final String symbol) {
+        this(symbol, 0);
+    }
+
+    public TradingEngineImpl(final String symbol, final int node) {
         this.symbol = symbol;
+        this.orderIds = new IdGenerator(node);
+        this.tradeIds = new IdGenerator(node);
     }
 
+    // the returned trades include those of the stops the order triggers
     @Override
     public List<Trade> addOrder(Order order) {
         List<Trade> executedTrade = new ArrayList<>();
-        switch (order.getOrderStrategy()){
+        submit(order, ExecutionSink.NONE, executedTrade);
+        return executedTrade;
 
-            case MARKET:
-                 executedTrade.addAll(
-                         executeMarketOrder(order)
-                 );
-                 break;
+    }
 
-            case LIMIT_ORDER:
-                executedTrade.addAll(
-                        executeLimitMarketOrder(order)
-                );
+    /**
+     *  allocation free variant of addOrder: fills are appended to the caller's reusable buffer
+     *  instead of being returned as Trade objects. returns the number of fills of this order and
+     *  of the stops it triggers
+     */
+    @Override
+    public int addOrder(Order order, ExecutionBuffer out) {
+        return submit(order, out, null);
+    }
 
+    /**
+     *  a plain loop over the addOrder path with one sink for all its fills: nothing is set up
+     *  once per batch, so it costs what the same addOrder calls do (see BatchSubmitBenchmark)
+     */
+    @Override
+    public int addOrders(OrderBatch batch, ExecutionSink sink) {
+        int total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isRejected(i)) {
+                continue;
+            }
+            int fills = submit(batch.get(i), sink, null);
+            batch.setResult(i, fills);
+            total += fills;
+        }
+        return total;
+    }
 
+    // a stop not yet crossed by the last trade waits in the stop book, anything else matches now
+    private int submit(Order order, ExecutionSink out, List<Trade> trades) {
+        if (auction) {
+            CallAuction.checkEntry(order);
+            addOrdertoBook(order);
+            return 0;
         }
-        trades.addAll(executedTrade);
+        if (order.isStop() && !TimeInForcePolicy.isTriggered(order, lastTradePrice)) {
+            addStop(order);
+            return 0;
+        }
+        TimeInForcePolicy.entryExpiry(order, sessionEnd, expiries.getTime());
+        assignId(order);
+        int fills = order.isStop() ? activate(order, out, trades) : enter(order, out, trades);
+        return fills + runStops(out, trades);
+    }
 
-        return executedTrade;
+    // the FOK check, the sweep and the remainder on the book when the time in force keeps it
+    private int enter(Order order, ExecutionSink out, List<Trade> trades) {
+        if (order.getTimeInForce() == Order.TimeInForce.FOK && !canFill(order)) {
+            return 0;
+        }
+        int fills = execute(order, isLimit(order), out, trades);
+        if (TimeInForcePolicy.restsRemainder(order)) {
+            addOrdertoBook(order);
+        }
+        return fills;
+    }
 
+    // a triggered stop becomes the market or limit order it stands for and enters like one
+    private int activate(Order stop, ExecutionSink out, List<Trade> trades) {
+        TimeInForcePolicy.checkStop(stop);
+        accountIndex.remove(stop);
+        expiries.cancel(stop);
+        stop.setOrderStrategy(stop.getOrderStrategy() == Order.OrderStrategy.STOP_LIMIT
+                ? Order.OrderStrategy.LIMIT_ORDER : Order.OrderStrategy.MARKET);
+        if (stop.getTimeInForce() == Order.TimeInForce.FOK && !canFill(stop)) {
+            return 0;
+        }
+        int fills = execute(stop, isLimit(stop), out, trades);
+        if (TimeInForcePolicy.restsTriggeredRemainder(stop)) {
+            addOrdertoBook(stop);
+        }
+        return fills;
     }
 
+    // runs the stops crossed by the trades so far in trigger order. their own trades may cross
+    // further stops, which queue up behind them: a cascade is a loop, never a recursion
+    private int runStops(ExecutionSink out, List<Trade> trades) {
+        int fills = 0;
+        while (true) {
+            if (tradeLow <= tradeHigh) {
+                if (!stops.isEmpty()) {
+                    stops.trigger(tradeLow, tradeHigh, triggered);
+                }
+                tradeLow = Double.POSITIVE_INFINITY;
+                tradeHigh = Double.NEGATIVE_INFINITY;
+            }
+            Order stop = triggered.poll();
+            if (stop == null) {
+                return fills;
+            }
+            fills += activate(stop, out, trades);
+        }
+    }
+
+    // a stop waits in the stop book until a trade crosses its stop price; IOC and FOK apply once it triggers
+    private void addStop(Order stop) {
+        TimeInForcePolicy.checkStop(stop);
+        long expireAt = TimeInForcePolicy.entryExpiry(stop, sessionEnd, expiries.getTime());
+        assignId(stop);
+        stops.add(stop);
+        accountIndex.add(stop);
+        if (expireAt != 0) {
+            expiries.schedule(stop, expireAt);
+        }
+    }
+
+    // a STOP / STOP_LIMIT order is not put on the book but into the stop book, whatever the last trade
     @Override
     public void addOrdertoBook(Order order) {
-        TreeMap <Double, Queue<Order>> books = order.getOrderType() == Order.OrderType.BUY ? buyOrders : sellOrders;
+        if (order.isStop()) {
+            addStop(order);
+            return;
+        }
+        long expireAt = TimeInForcePolicy.restingExpiry(order, sessionEnd, expiries.getTime());
+        assignId(order);
+        index(order);
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        TreeMap <Double, PriceLevel> books = buy ? buyOrders : sellOrders;
+
+        PriceLevel level = books.get(order.getPrice());
+        if (level == null) {
+            level = new PriceLevel(symbol, order.getPrice());
+            books.put(level.getPriceLevel(), level);
+            levelsChanged(buy);
+        }
+        level.add(order);
 
-        books.computeIfAbsent( order.getPrice(), k -> new LinkedList<>())
-                        .offer(order);
+        accountIndex.add(order);
+        if (expireAt != 0) {
+            expiries.schedule(order, expireAt);
+        }
+        levelUpdateSink.onLevelUpdate(order.getOrderType(), level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
 
-        allOrders.put( order.getOrderId(), order);
+    }
 
+    private static boolean isLimit(Order order) {
+        return order.getOrderStrategy() == Order.OrderStrategy.LIMIT_ORDER;
+    }
+
+    // FOK: whether the opposite side holds the whole quantity within the limit, read off the
+    // level aggregates before anything is matched
+    private boolean canFill(Order order) {
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        boolean limit = isLimit(order);
+        long needed = order.getRemaningQuality();
+        for (PriceLevel level : (buy ? sellOrders : buyOrders).values()) {
+            double price = level.getPriceLevel();
+            if (limit && (buy ? price > order.getPrice() : price < order.getPrice())) {
+                break;
+            }
+            needed -= level.getQuantity();
+            if (needed <= 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private Collection<? extends Trade> executeMarketOrder(Order marketOrder) {
+    // one sweep for both strategies: a market order takes any opposite price,
+    // a limit order stops at the first level priced worse than its limit.
+    // Trade objects are only built when the caller asked for them (trades != null)
+    private int execute(Order order, boolean limit, ExecutionSink out, List<Trade> trades) {
 
-        List<Trade> executions = new ArrayList<>();
-        TreeMap<Double, Queue<Order>> oppositeOrderBook  = marketOrder.getOrderType() == Order.OrderType.BUY? sellOrders: buyOrders;
+        boolean buy = order.getOrderType() == Order.OrderType.BUY;
+        TreeMap<Double, PriceLevel> oppositeOrderBook  = buy ? sellOrders : buyOrders;
+        Order.OrderType oppositeSide = buy ? Order.OrderType.SELL : Order.OrderType.BUY;
 
-        long remainingQ = marketOrder.getRemaningQuality();
+        long remainingQ = order.getRemaningQuality();
+        double limitPrice = order.getPrice();
+        int fills = 0;
 
-        while(remainingQ >0 && !oppositeOrderBook.isEmpty()){
-            double bestOppPrice = oppositeOrderBook.firstKey();
-            Queue<Order> ordersAtBestPrice = oppositeOrderBook.get(bestOppPrice);
+        PriceLevel ordersAtBestPrice;
+        while(remainingQ >0 && (ordersAtBestPrice = bestLevel(!buy)) != null){
+            double bestOppPrice = ordersAtBestPrice.getPriceLevel();
+
+            // if buy order, only fill order if aks price less than or equal limited price.
+            if(limit && (buy ? bestOppPrice > limitPrice : bestOppPrice < limitPrice)){
+                break;
+            }
 
             Order restingOrder =  ordersAtBestPrice.peek();
             if(restingOrder ==null){
                 oppositeOrderBook.remove(bestOppPrice);
+                levelsChanged(!buy);
                 continue;
             }
 
             long tradeQ = Math.min(remainingQ, restingOrder.getRemaningQuality());
-            Trade trade = createTrade(
-                    marketOrder,
-                    restingOrder,
-                    bestOppPrice,
-                    tradeQ
-            );
-
-            executions.add(trade);
+            long tradeId = tradeIds.nextId();
+            long timestamp = System.nanoTime();
+            long buyOrderId = buy ? order.getId() : restingOrder.getId();
+            long sellOrderId = buy ? restingOrder.getId() : order.getId();
+
+            executionSink.onTrade(tradeId, buyOrderId, sellOrderId, bestOppPrice, tradeQ, timestamp);
+            out.onTrade(tradeId, buyOrderId, sellOrderId, bestOppPrice, tradeQ, timestamp);
+            if(trades != null){
+                trades.add(new Trade(
+                        tradeId,
+                        sellOrderId,
+                        buyOrderId,
+                        buy ? restingOrder.getOrderId() : order.getOrderId(),
+                        buy ? order.getOrderId() : restingOrder.getOrderId(),
+                        tradeQ,
+                        bestOppPrice,
+                        timestamp
+                ));
+            }
+            fills++;
+            printed(bestOppPrice);
+
             // update the quantity:
-            marketOrder.reduceQuantity(tradeQ);
-            restingOrder.reduceQuantity(tradeQ);
+            order.reduceQuantity(tradeQ);
             remainingQ -= tradeQ;
 
             // Remove fully executed order
-            if(restingOrder.isOrderFilled()){
-                ordersAtBestPrice.poll();
-                allOrders.remove(restingOrder.getOrderId());
+            if(ordersAtBestPrice.fill(restingOrder, tradeQ)){
+                allOrders.remove(restingOrder.getId());
+                accountIndex.remove(restingOrder);
+                expiries.cancel(restingOrder);
 
                 if(ordersAtBestPrice.isEmpty()){
                       oppositeOrderBook.remove(bestOppPrice);
+                      levelsChanged(!buy);
                 }
             }
+            levelUpdateSink.onLevelUpdate(oppositeSide, bestOppPrice, ordersAtBestPrice.getQuantity(), ordersAtBestPrice.getOrderCount());
+        }
 
+        return fills;
+    }
 
+    private PriceLevel bestLevel(boolean bids) {
+        PriceLevel level = bids ? bestBidLevel : bestAskLevel;
+        if (level == null) {
+            TreeMap<Double, PriceLevel> book = bids ? buyOrders : sellOrders;
+            if (book.isEmpty()) {
+                return null;
+            }
+            level = book.get(book.firstKey());
+            if (bids) {
+                bestBidLevel = level;
+            } else {
+                bestAskLevel = level;
+            }
         }
+        return level;
+    }
 
-        return executions;
+    // a level was added to or removed from the side: its best level is resolved again on next use
+    private void levelsChanged(boolean bids) {
+        if (bids) {
+            bestBidLevel = null;
+        } else {
+            bestAskLevel = null;
+        }
     }
 
-    private Trade createTrade(Order agressiveOrder, Order restingOrder, double bestPrice, long tradeQ) {
+    private void printed(double price) {
+        lastTradePrice = price;
+        if (price < tradeLow) tradeLow = price;
+        if (price > tradeHigh) tradeHigh = price;
+    }
 
-        String buyOrderId = agressiveOrder.getOrderType() == Order.OrderType.BUY? agressiveOrder.getOrderId():
-                restingOrder.getOrderId();
+    // orders get an engine id the first time they reach the engine
+    private void assignId(Order order) {
+        if (order.getId() == 0) {
+            order.setId(orderIds.nextId());
+        }
+    }
 
-        String sellOrderId = agressiveOrder.getOrderType() == Order.OrderType.BUY? restingOrder.getOrderId():
-                agressiveOrder.getOrderId();
-        return new Trade(
-                UUID.randomUUID().toString(),
-                sellOrderId,
-                buyOrderId,
-                tradeQ,
-                bestPrice,
-                System.nanoTime()
-        );
+    // the id lookup goes in before the order is linked into a level, so a duplicate id leaves the book as it was
+    private void index(Order order) {
+        Order previous = allOrders.put(order.getId(), order);
+        if (previous != null) {
+            allOrders.put(previous.getId(), previous);
+            throw new IllegalStateException("order " + order.getId() + " is already resting");
+        }
+    }
 
+    public String getSymbol() {
+        return symbol;
     }
 
     public  Double getBestBid(){
@@ -148,89 +389,282 @@ public class TradingEngineImpl implements TradingEngine{
     }
 
 
-    private List<Trade> executeLimitMarketOrder(Order limitOrder) {
+    @Override
+    public  boolean cancelOrder(Order order) {
+         Order ord = allOrders.remove(engineId(order));
+
+        if (ord ==null) {
+            // a pending stop, if anything
+            ord = stops.remove(order.getId());
+            if (ord == null) return false;
+        } else {
+            unlink(ord);
+        }
+        accountIndex.remove(ord);
+        expiries.cancel(ord);
+        return  true;
 
+    }
 
-        List<Trade> executions = new ArrayList<>();
-        TreeMap<Double, Queue<Order>> oppositeOrderBook  = limitOrder.getOrderType() == Order.OrderType.BUY? sellOrders: buyOrders;
+    // orders are found by engine id; one that only carries the client's order id was never seen
+    // by the engine, or the caller lost the id, and must not be dropped as "not resting"
+    static long engineId(Order order) {
+        if (order.getId() == 0) {
+            throw new IllegalArgumentException("order " + order.getOrderId() + " has no engine id, cancel and amend need the id addOrder assigned");
+        }
+        return order.getId();
+    }
 
-        long remainingQ = limitOrder.getRemaningQuality();
-        double limitPrice = limitOrder.getPrice();
+    // takes an order found through the account index or the wheel off the book or the stop book
+    private void discard(Order order) {
+        if (order.isStop()) {
+            stops.remove(order.getId());
+        } else {
+            allOrders.remove(order.getId());
+            unlink(order);
+        }
+    }
 
-        while(remainingQ >0 && !oppositeOrderBook.isEmpty()){
-            double bestOppPrice = oppositeOrderBook.firstKey();
+    // takes a resting order off its level; the indexed order carries its links, unlinking it does not scan the level
+    private void unlink(Order ord) {
+        TreeMap<Double, PriceLevel> book = ord.getOrderType() == Order.OrderType.BUY? buyOrders: sellOrders;
+        PriceLevel  ordersAtPrice = book.get(ord.getPrice());
+        if(ordersAtPrice !=null && ordersAtPrice.remove(ord)){
+            if(ordersAtPrice.isEmpty()){
+                 book.remove(ord.getPrice());
+                 levelsChanged(ord.getOrderType() == Order.OrderType.BUY);
+            }
+            levelUpdateSink.onLevelUpdate(ord.getOrderType(), ordersAtPrice.getPriceLevel(), ordersAtPrice.getQuantity(), ordersAtPrice.getOrderCount());
+        }
+    }
+
+    // pending stops are not amended, they return null like any order that is not resting
+    @Override
+    public  List<Trade>  amendOrder(Order order) {
+        Order resting = allOrders.get(engineId(order));
+        if (resting == null) return null;
+
+        long filled = resting.getOrginalQuality() - resting.getRemaningQuality();
+        long remaining = order.getOrginalQuality() - filled;
+        if (remaining <= 0) {
+            cancelOrder(resting);
+            return Collections.emptyList();
+        }
 
-            boolean canExecute = limitOrder.getOrderType() == Order.OrderType.BUY ? limitPrice >= bestOppPrice : limitPrice <= bestOppPrice;
+        TreeMap<Double, PriceLevel> book = resting.getOrderType() == Order.OrderType.BUY ? buyOrders : sellOrders;
+        PriceLevel level = book.get(resting.getPrice());
+        resting.setOrginalQuality(Math.toIntExact(order.getOrginalQuality()));
 
-            // if buy order, only fill order if aks price less than or equal limited price.
-            if(!canExecute){
-                break;
+        // same price and less quantity: the order stays where it is, no map is touched
+        if (order.getPrice() == resting.getPrice() && remaining <= resting.getRemaningQuality()) {
+            if (remaining < resting.getRemaningQuality()) {
+                level.reduce(resting, resting.getRemaningQuality() - remaining);
+                levelUpdateSink.onLevelUpdate(resting.getOrderType(), level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
             }
+            return Collections.emptyList();
+        }
 
-             Queue<Order> ordersAtBestPrice = oppositeOrderBook.get(bestOppPrice);
-
-             Order restingOrder =  ordersAtBestPrice.peek();
-             if(restingOrder ==null){
-                 oppositeOrderBook.remove(bestOppPrice);
-                 continue;
-             }
+        // otherwise it goes to the back: off its level, matched as a limit order at the new
+        // price, and whatever is left rests again under the same id
+        level.remove(resting);
+        if (level.isEmpty()) {
+            book.remove(resting.getPrice());
+            levelsChanged(resting.getOrderType() == Order.OrderType.BUY);
+        }
+        levelUpdateSink.onLevelUpdate(resting.getOrderType(), level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
+        allOrders.remove(resting.getId());
+        accountIndex.remove(resting);
+        expiries.cancel(resting);
 
-             long tradeQ = Math.min(remainingQ, restingOrder.getRemaningQuality());
-             Trade trade = createTrade(
-                     limitOrder,
-                     restingOrder,
-                     bestOppPrice,
-                     tradeQ
-             );
+        resting.setPrice(order.getPrice());
+        resting.setRemaningQuality(Math.toIntExact(remaining));
+        List<Trade> executedTrade = new ArrayList<>();
+        if (!auction) {
+            execute(resting, true, ExecutionSink.NONE, executedTrade);
+        }
+        if (!resting.isOrderFilled()) {
+            addOrdertoBook(resting);
+        }
+        runStops(ExecutionSink.NONE, executedTrade);
+        return executedTrade;
+    }
 
-             executions.add(trade);
-             // update the quantity:
-             limitOrder.reduceQuantity(tradeQ);
-             restingOrder.reduceQuantity(tradeQ);
-             remainingQ -= tradeQ;
+    @Override
+    public void beginAuction() {
+        auction = true;
+    }
 
-             // Remove fully executed order
-             if(restingOrder.isOrderFilled()){
-                 ordersAtBestPrice.poll();
-                 allOrders.remove(restingOrder.getOrderId());
+    /**
+     *  executes the crossed part of the book in one go at the equilibrium price (see CallAuction),
+     *  the last trade price or else the mid of the crossed touch breaking ties. bids are taken best
+     *  first against asks best first, each side in time priority, until the volume is done; then
+     *  the stops crossed by that price run as in continuous trading
+     */
+    @Override
+    public int uncross(ExecutionSink out) {
+        auction = false;
+        if (!equilibrium()) {
+            return 0;
+        }
+        double price = callAuction.getPrice();
+        long remaining = callAuction.getVolume();
+        long timestamp = System.nanoTime();
+        int fills = 0;
+        PriceLevel bids = bestLevel(true);
+        PriceLevel asks = bestLevel(false);
+        while (true) {
+            Order buy = bids.peek();
+            Order sell = asks.peek();
+            long tradeQ = Math.min(remaining, Math.min(buy.getRemaningQuality(), sell.getRemaningQuality()));
+            long tradeId = tradeIds.nextId();
+            executionSink.onTrade(tradeId, buy.getId(), sell.getId(), price, tradeQ, timestamp);
+            out.onTrade(tradeId, buy.getId(), sell.getId(), price, tradeQ, timestamp);
+            fills++;
+            remaining -= tradeQ;
+
+            if (bids.fill(buy, tradeQ)) {
+                retire(buy);
+                if (bids.isEmpty()) {
+                    bids = levelFilled(buyOrders, bids, remaining > 0);
+                }
+            }
+            if (asks.fill(sell, tradeQ)) {
+                retire(sell);
+                if (asks.isEmpty()) {
+                    asks = levelFilled(sellOrders, asks, remaining > 0);
+                }
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        if (bids != null) {
+            levelUpdateSink.onLevelUpdate(Order.OrderType.BUY, bids.getPriceLevel(), bids.getQuantity(), bids.getOrderCount());
+        }
+        if (asks != null) {
+            levelUpdateSink.onLevelUpdate(Order.OrderType.SELL, asks.getPriceLevel(), asks.getQuantity(), asks.getOrderCount());
+        }
+        printed(price);
+        return fills + runStops(out, null);
+    }
 
-                 if(ordersAtBestPrice.isEmpty()){
-                     oppositeOrderBook.remove(bestOppPrice);
-                 }
-             }
+    // the candidate prices are the levels of both sides between the best ask and the best bid, merged ascending
+    private boolean equilibrium() {
+        callAuction.clear();
+        if (buyOrders.isEmpty() || sellOrders.isEmpty()) {
+            return false;
+        }
+        double bestBid = buyOrders.firstKey();
+        double bestAsk = sellOrders.firstKey();
+        if (bestBid < bestAsk) {
+            return false;
+        }
+        Iterator<PriceLevel> bids = buyOrders.headMap(bestAsk, true).descendingMap().values().iterator();
+        Iterator<PriceLevel> asks = sellOrders.headMap(bestBid, true).values().iterator();
+        PriceLevel bid = bids.next();
+        PriceLevel ask = asks.next();
+        while (bid != null || ask != null) {
+            double bidPrice = bid == null ? Double.POSITIVE_INFINITY : bid.getPriceLevel();
+            double askPrice = ask == null ? Double.POSITIVE_INFINITY : ask.getPriceLevel();
+            if (bidPrice <= askPrice) {
+                callAuction.add(bidPrice, bid.getQuantity(), bidPrice == askPrice ? ask.getQuantity() : 0);
+                if (bidPrice == askPrice) {
+                    ask = asks.hasNext() ? asks.next() : null;
+                }
+                bid = bids.hasNext() ? bids.next() : null;
+            } else {
+                callAuction.add(askPrice, 0, ask.getQuantity());
+                ask = asks.hasNext() ? asks.next() : null;
+            }
         }
+        return callAuction.solve(Double.isNaN(lastTradePrice) ? (bestBid + bestAsk) / 2 : lastTradePrice);
+    }
+
+    // an uncrossed level that emptied leaves the book; the next best one when more volume is due
+    private PriceLevel levelFilled(TreeMap<Double, PriceLevel> book, PriceLevel level, boolean more) {
+        boolean bids = book == buyOrders;
+        book.remove(level.getPriceLevel());
+        levelsChanged(bids);
+        levelUpdateSink.onLevelUpdate(bids ? Order.OrderType.BUY : Order.OrderType.SELL, level.getPriceLevel(), 0, 0);
+        return more ? bestLevel(bids) : null;
+    }
+
+    // a resting order that was filled leaves the indexes
+    private void retire(Order order) {
+        allOrders.remove(order.getId());
+        accountIndex.remove(order);
+        expiries.cancel(order);
+    }
+
+    // the price and volume uncross() would execute at now, NaN when the book does not cross
+    public double getIndicativePrice() {
+        return equilibrium() ? callAuction.getPrice() : Double.NaN;
+    }
+
+    public long getIndicativeVolume() {
+        return equilibrium() ? callAuction.getVolume() : 0;
+    }
 
-        return executions;
+    public boolean isAuction() {
+        return auction;
     }
 
     @Override
-    public  boolean cancelOrder(Order order) {
-         Order ord = allOrders.remove(order.getOrderId());
+    public int cancelAll(long accountId, Order.OrderType side, double minPrice, double maxPrice) {
+        return accountIndex.removeIf(accountId,
+                order -> (side == null || order.getOrderType() == side) && order.getPrice() >= minPrice && order.getPrice() <= maxPrice,
+                order -> {
+                    expiries.cancel(order);
+                    discard(order);
+                });
+    }
 
-        if (ord ==null) return false;
-        TreeMap<Double, Queue<Order>> book = order.getOrderType() == Order.OrderType.BUY? buyOrders: sellOrders;
-        Queue<Order>  ordersAtPrice = book.get(order.getPrice());
-        if(ordersAtPrice !=null){
-            ordersAtPrice.remove(order);
-            if(ordersAtPrice.isEmpty()){
-                 book.remove(order.getPrice());
-            }
+    @Override
+    public void forEachOrder(long accountId, Consumer<Order> action) {
+        for (Order order = accountIndex.first(accountId); order != null; order = AccountIndex.next(order)) {
+            action.accept(order);
         }
-        return  true;
+    }
+
+    @Override
+    public int advanceClock(long now, Consumer<Order> expired) {
+        return expiries.advance(now, expired == null ? expire : expire.andThen(expired));
+    }
 
+    // the wheel has already unscheduled the order
+    private void expired(Order order) {
+        accountIndex.remove(order);
+        discard(order);
     }
 
     @Override
-    public  List<Trade>  amendOrder(Order order) {
-        return null;
+    public void setSessionEnd(long time) {
+        this.sessionEnd = time;
+    }
+
+    public long getSessionEnd() {
+        return sessionEnd;
+    }
+
+    public long getClock() {
+        return expiries.getTime();
     }
 
 
+    // NaN before the first trade
+    public double getLastTradePrice() {
+        return lastTradePrice;
+    }
+
     // Statistics
     public int getTotalOrderCount() {
         return allOrders.size();
     }
 
+    public int getStopOrderCount() {
+        return stops.size();
+    }
+
     public int getBidLevels() {
         return buyOrders.size();
     }
@@ -239,29 +673,53 @@ public class TradingEngineImpl implements TradingEngine{
         return sellOrders.size();
     }
 
+    @Override
+    public void setExecutionSink(ExecutionSink sink) {
+        this.executionSink = sink;
+    }
+
+    @Override
+    public void setLevelUpdateSink(LevelUpdateSink sink) {
+        this.levelUpdateSink = sink;
+    }
+
+    @Override
+    public void getDepth(int levels, DepthSink sink) {
+        sink.clear();
+        collectDepth(buyOrders, levels, sink, true);
+        collectDepth(sellOrders, levels, sink, false);
+    }
+
+    // walks the best levels by key so no iterator or map entry is allocated
+    static void collectDepth(NavigableMap<Double, PriceLevel> book, int levels, DepthSink sink, boolean bids) {
+        Double price = book.isEmpty() ? null : book.firstKey();
+        for (int i = 0; i < levels && price != null; i++) {
+            PriceLevel level = book.get(price);
+            boolean added = bids
+                    ? sink.addBid(level.getPriceLevel(), level.getQuantity(), level.getOrderCount())
+                    : sink.addAsk(level.getPriceLevel(), level.getQuantity(), level.getOrderCount());
+            if (!added) break;
+            price = book.higherKey(price);
+        }
+    }
+
     // Display order book state
     public void printOrderBook(int levels) {
+        DepthSink depth = new DepthSink(levels);
+        getDepth(levels, depth);
+
         System.out.println("=== Order Book for " + symbol + " ===");
 
         // Print sell orders (asks) - highest to lowest
-        List<Double> askPrices = new ArrayList<>(sellOrders.keySet());
-        Collections.reverse(askPrices);
-
-        for (int i = 0; i < Math.min(levels, askPrices.size()); i++) {
-            Double price = askPrices.get(i);
-            long totalQty = sellOrders.get(price).stream()
-                    .mapToLong(Order::getRemaningQuality).sum();
-            System.out.printf("ASK: %.4f x %d%n", price, totalQty);
+        for (int i = depth.getAskLevels() - 1; i >= 0; i--) {
+            System.out.printf("ASK: %.4f x %d%n", depth.getAskPrice(i), depth.getAskQuantity(i));
         }
 
         System.out.println("----------");
 
         // Print buy orders (bids) - highest to lowest
-        for (Double price : buyOrders.keySet()) {
-            long totalQty = buyOrders.get(price).stream()
-                    .mapToLong(Order::getRemaningQuality).sum();
-            System.out.printf("BID: %.4f x %d%n", price, totalQty);
-            if (--levels <= 0) break;
+        for (int i = 0; i < depth.getBidLevels(); i++) {
+            System.out.printf("BID: %.4f x %d%n", depth.getBidPrice(i), depth.getBidQuantity(i));
         }
 
         System.out.println("=========================");